@@ -0,0 +1,216 @@
+package engine;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Logging handler that never does I/O on the calling thread. Records are
+ * stored on a bounded ring buffer and written to the wrapped handlers by a
+ * background thread. When the buffer is full records are dropped and
+ * counted, instead of blocking the game.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public class AsyncHandler extends Handler {
+
+	/** Time between buffer checks when it is empty. */
+	private static final long DRAIN_INTERVAL = TimeUnit.MILLISECONDS
+			.toNanos(20);
+	/** Maximum time waiting for the buffer to empty on flush. */
+	private static final long FLUSH_TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+
+	/** Buffered records, null where the slot is free. */
+	private final AtomicReferenceArray<LogRecord> buffer;
+	/** Mask to map sequence numbers to buffer slots. */
+	private final int mask;
+	/** Sequence of the next record to be claimed by a producer. */
+	private final AtomicLong tail;
+	/** Sequence of the next record to be written, consumer owned. */
+	private volatile long head;
+	/** Records dropped because the buffer was full. */
+	private final AtomicLong dropped;
+	/** Dropped records already reported. */
+	private long droppedReported;
+	/** Handlers the records are written to. */
+	private final List<Handler> handlers;
+	/** Thread writing the records. */
+	private final Thread writer;
+	/** If the handler was closed. */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor, starts the writer thread.
+	 *
+	 * @param capacity
+	 *            Number of records buffered, rounded up to a power of two.
+	 */
+	public AsyncHandler(final int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.buffer = new AtomicReferenceArray<LogRecord>(size);
+		this.mask = size - 1;
+		this.tail = new AtomicLong();
+		this.head = 0;
+		this.dropped = new AtomicLong();
+		this.handlers = new CopyOnWriteArrayList<Handler>();
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drainLoop();
+			}
+		}, "Log writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Adds a handler the records are written to.
+	 *
+	 * @param handler
+	 *            Handler to wrap.
+	 */
+	public final void addHandler(final Handler handler) {
+		this.handlers.add(handler);
+	}
+
+	/**
+	 * Getter for the records dropped because the buffer was full.
+	 *
+	 * @return Number of dropped records.
+	 */
+	public final long getDroppedRecords() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Getter for the records waiting to be written.
+	 *
+	 * @return Number of buffered records.
+	 */
+	public final long getPendingRecords() {
+		return this.tail.get() - this.head;
+	}
+
+	/**
+	 * Buffers a record, or drops it if the buffer is full.
+	 *
+	 * @param record
+	 *            Record to log.
+	 */
+	@Override
+	public final void publish(final LogRecord record) {
+		if (this.closed || !isLoggable(record))
+			return;
+
+		long sequence;
+		do {
+			sequence = this.tail.get();
+			if (sequence - this.head > this.mask) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+		} while (!this.tail.compareAndSet(sequence, sequence + 1));
+
+		this.buffer.set((int) (sequence & this.mask), record);
+	}
+
+	/**
+	 * Waits until the buffered records are written, then flushes the wrapped
+	 * handlers.
+	 */
+	@Override
+	public final void flush() {
+		long target = this.tail.get();
+		long deadline = System.nanoTime() + FLUSH_TIMEOUT;
+		while (this.head < target && System.nanoTime() < deadline
+				&& this.writer.isAlive()) {
+			LockSupport.unpark(this.writer);
+			Thread.yield();
+		}
+		for (Handler handler : this.handlers)
+			handler.flush();
+	}
+
+	/**
+	 * Writes the remaining records and closes the wrapped handlers.
+	 */
+	@Override
+	public final void close() {
+		flush();
+		this.closed = true;
+		this.writer.interrupt();
+		try {
+			this.writer.join(TimeUnit.NANOSECONDS.toMillis(FLUSH_TIMEOUT));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		reportDropped();
+		for (Handler handler : this.handlers)
+			handler.close();
+	}
+
+	/**
+	 * Writes records as they arrive, until the handler is closed.
+	 */
+	private void drainLoop() {
+		while (!this.closed) {
+			if (!drain())
+				LockSupport.parkNanos(this, DRAIN_INTERVAL);
+		}
+		drain();
+	}
+
+	/**
+	 * Writes every record buffered at this moment.
+	 *
+	 * @return True if any record was written.
+	 */
+	private boolean drain() {
+		boolean written = false;
+		while (this.head < this.tail.get()) {
+			int slot = (int) (this.head & this.mask);
+			LogRecord record = this.buffer.get(slot);
+			// Claimed, but not stored yet.
+			if (record == null)
+				break;
+			this.buffer.set(slot, null);
+			this.head++;
+
+			for (Handler handler : this.handlers) {
+				try {
+					handler.publish(record);
+				} catch (RuntimeException e) {
+					reportError(null, e, ErrorManager.WRITE_FAILURE);
+				}
+			}
+			written = true;
+		}
+		if (written)
+			reportDropped();
+		return written;
+	}
+
+	/**
+	 * Writes a warning with the records dropped since the last report.
+	 */
+	private void reportDropped() {
+		long total = this.dropped.get();
+		if (total == this.droppedReported)
+			return;
+
+		LogRecord record = new LogRecord(Level.WARNING, (total
+				- this.droppedReported) + " log records dropped, "
+				+ total + " in total.");
+		this.droppedReported = total;
+		for (Handler handler : this.handlers)
+			handler.publish(record);
+	}
+}
@@ -0,0 +1,263 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Mixes sound effects on its own thread. Effects are kept as PCM samples in
+ * memory, and play requests arrive through a lock-free queue, so playing a
+ * sound never allocates or blocks the caller. Up to a fixed number of voices
+ * sound at once; when all are busy, the one closest to its end is replaced.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class AudioMixer extends Thread {
+
+	/** Samples per second. */
+	public static final int SAMPLE_RATE = 44100;
+	/** Format of every sample handled, 16 bit signed mono. */
+	public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16,
+			1, true, false);
+	/** Samples mixed per write, about 6 milliseconds. */
+	public static final int BLOCK_FRAMES = 256;
+	/** Blocks the device buffer holds, the output latency. */
+	private static final int BUFFER_BLOCKS = 3;
+	/** Play requests queued before they are dropped. */
+	private static final int REQUEST_CAPACITY = 64;
+
+	/** Application logger. */
+	private final Logger logger;
+	/** Device the samples are written to. */
+	private AudioOutput output;
+	/** Samples of each sound, by sound number. */
+	private final short[][] bank;
+	/** Background music added to every block, may be null. */
+	private final MusicPlayer music;
+
+	/** Queued sound numbers plus one, zero where the slot is free. */
+	private final AtomicIntegerArray requests;
+	/** Mask to map sequence numbers to queue slots. */
+	private final int requestMask;
+	/** Sequence of the next request to be claimed by a producer. */
+	private final AtomicLong requestTail;
+	/** Sequence of the next request to be played, mixer owned. */
+	private volatile long requestHead;
+	/** Requests dropped because the queue was full. */
+	private final AtomicLong requestsDropped;
+
+	/** Samples of each playing voice. */
+	private final short[][] voiceSamples;
+	/** Next sample of each playing voice. */
+	private final int[] voicePositions;
+	/** Number of playing voices. */
+	private int voiceCount;
+	/** Voices replaced before finishing. */
+	private volatile long voicesStolen;
+	/** Blocks written to the device. */
+	private volatile long blocksMixed;
+
+	/** Mixed samples of the current block. */
+	private final int[] mix;
+	/** Current block, in the output format. */
+	private final byte[] block;
+	/** If the mixer keeps running. */
+	private volatile boolean running;
+
+	/**
+	 * Constructor, the thread is not started.
+	 * 
+	 * @param output
+	 *            Device the samples are written to.
+	 * @param bank
+	 *            Samples of each sound, in the mixer format.
+	 * @param maxVoices
+	 *            Maximum sounds playing at once.
+	 * @param music
+	 *            Background music to add, null for none.
+	 */
+	public AudioMixer(final AudioOutput output, final short[][] bank,
+			final int maxVoices, final MusicPlayer music) {
+		super("Audio mixer");
+		setDaemon(true);
+		setPriority(MAX_PRIORITY);
+		this.logger = Core.getLogger();
+		this.output = output;
+		this.bank = bank;
+		this.music = music;
+		this.requests = new AtomicIntegerArray(REQUEST_CAPACITY);
+		this.requestMask = REQUEST_CAPACITY - 1;
+		this.requestTail = new AtomicLong();
+		this.requestsDropped = new AtomicLong();
+		this.voiceSamples = new short[maxVoices][];
+		this.voicePositions = new int[maxVoices];
+		this.mix = new int[BLOCK_FRAMES];
+		this.block = new byte[BLOCK_FRAMES * FORMAT.getFrameSize()];
+		this.running = true;
+	}
+
+	/**
+	 * Queues a sound to be played. Safe to call from any thread.
+	 * 
+	 * @param sound
+	 *            Number of the sound in the bank.
+	 * @return False if the queue was full and the request was dropped.
+	 */
+	public boolean play(final int sound) {
+		long sequence;
+		do {
+			sequence = this.requestTail.get();
+			if (sequence - this.requestHead > this.requestMask) {
+				this.requestsDropped.incrementAndGet();
+				return false;
+			}
+		} while (!this.requestTail.compareAndSet(sequence, sequence + 1));
+
+		this.requests.set((int) (sequence & this.requestMask), sound + 1);
+		return true;
+	}
+
+	/**
+	 * Getter for the play requests dropped.
+	 * 
+	 * @return Requests dropped because the queue was full.
+	 */
+	public long getRequestsDropped() {
+		return this.requestsDropped.get();
+	}
+
+	/**
+	 * Getter for the voices replaced before finishing.
+	 * 
+	 * @return Voices stolen by newer sounds.
+	 */
+	public long getVoicesStolen() {
+		return this.voicesStolen;
+	}
+
+	/**
+	 * Getter for the blocks written.
+	 * 
+	 * @return Blocks mixed since the start.
+	 */
+	public long getBlocksMixed() {
+		return this.blocksMixed;
+	}
+
+	/**
+	 * Stops the mixer and waits for it to release the device.
+	 */
+	public void shutdown() {
+		this.running = false;
+		try {
+			join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		int bufferBytes = this.block.length * BUFFER_BLOCKS;
+		if (!this.output.open(FORMAT, bufferBytes)) {
+			this.logger.warning("Audio disabled, mixing to no output.");
+			this.output = new NullAudioOutput();
+			this.output.open(FORMAT, bufferBytes);
+		}
+
+		try {
+			while (this.running) {
+				startRequestedVoices();
+				mixBlock();
+				this.output.write(this.block, this.block.length);
+				this.blocksMixed++;
+			}
+		} finally {
+			this.output.close();
+		}
+	}
+
+	/**
+	 * Starts a voice for every queued request.
+	 */
+	private void startRequestedVoices() {
+		while (this.requestHead < this.requestTail.get()) {
+			int slot = (int) (this.requestHead & this.requestMask);
+			int request = this.requests.get(slot);
+			// Claimed, but not stored yet.
+			if (request == 0)
+				break;
+			this.requests.set(slot, 0);
+			this.requestHead++;
+			startVoice(this.bank[request - 1]);
+		}
+	}
+
+	/**
+	 * Starts playing samples on a free voice, or on the voice closest to its
+	 * end if none is free.
+	 * 
+	 * @param samples
+	 *            Samples to play.
+	 */
+	private void startVoice(final short[] samples) {
+		int voice = this.voiceCount;
+		if (voice == this.voiceSamples.length) {
+			int leastRemaining = Integer.MAX_VALUE;
+			for (int i = 0; i < this.voiceCount; i++) {
+				int remaining = this.voiceSamples[i].length
+						- this.voicePositions[i];
+				if (remaining < leastRemaining) {
+					leastRemaining = remaining;
+					voice = i;
+				}
+			}
+			this.voicesStolen++;
+		} else {
+			this.voiceCount++;
+		}
+		this.voiceSamples[voice] = samples;
+		this.voicePositions[voice] = 0;
+	}
+
+	/**
+	 * Adds the next block of every voice and converts the sum to the output
+	 * format. Finished voices are removed.
+	 */
+	private void mixBlock() {
+		Arrays.fill(this.mix, 0);
+
+		int i = 0;
+		while (i < this.voiceCount) {
+			short[] samples = this.voiceSamples[i];
+			int position = this.voicePositions[i];
+			int count = Math.min(BLOCK_FRAMES, samples.length - position);
+			for (int j = 0; j < count; j++)
+				this.mix[j] += samples[position + j];
+
+			if (position + count >= samples.length) {
+				// Replaced by the last voice.
+				this.voiceCount--;
+				this.voiceSamples[i] = this.voiceSamples[this.voiceCount];
+				this.voicePositions[i] = this.voicePositions[this.voiceCount];
+				this.voiceSamples[this.voiceCount] = null;
+			} else {
+				this.voicePositions[i] = position + count;
+				i++;
+			}
+		}
+		if (this.music != null)
+			this.music.mix(this.mix, BLOCK_FRAMES);
+
+		for (int j = 0; j < BLOCK_FRAMES; j++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+					this.mix[j]));
+			this.block[2 * j] = (byte) sample;
+			this.block[2 * j + 1] = (byte) (sample >> 8);
+		}
+	}
+}
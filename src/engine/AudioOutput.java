@@ -0,0 +1,39 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Device the audio mixer writes its samples to.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface AudioOutput {
+
+	/**
+	 * Prepares the device.
+	 * 
+	 * @param format
+	 *            Format of the samples written.
+	 * @param bufferBytes
+	 *            Size of the device buffer, in bytes.
+	 * @return True if the device can be used.
+	 */
+	boolean open(AudioFormat format, int bufferBytes);
+
+	/**
+	 * Writes samples, blocking until the device has room for them, so the
+	 * mixer runs at the playback rate.
+	 * 
+	 * @param data
+	 *            Samples, in the opened format.
+	 * @param length
+	 *            Bytes to write.
+	 */
+	void write(byte[] data, int length);
+
+	/**
+	 * Releases the device.
+	 */
+	void close();
+}
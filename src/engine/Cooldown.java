@@ -1,7 +1,8 @@
 package engine;
 
 /**
- * Imposes a cooldown period between two actions.
+ * Imposes a cooldown period between two actions. Runs on the system clock,
+ * or on the ticks of a {@link TimingWheel} if created by one.
  * 
  * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
  * 
@@ -16,6 +17,12 @@ public class Cooldown {
 	private int duration;
 	/** Beginning time. */
 	private long time;
+	/** Wheel of the game clock, null to use the system clock. */
+	private final TimingWheel timingWheel;
+	/** Timer pending while the cooldown runs on the game clock. */
+	private final TimingWheel.Timer timer;
+	/** Random numbers of the game, null to use the shared ones. */
+	private final GameRandom random;
 
 	/**
 	 * Constructor, established the time until the action can be performed
@@ -29,6 +36,9 @@ public class Cooldown {
 		this.variance = 0;
 		this.duration = milliseconds;
 		this.time = 0;
+		this.timingWheel = null;
+		this.timer = null;
+		this.random = null;
 	}
 
 	/**
@@ -44,6 +54,33 @@ public class Cooldown {
 		this.milliseconds = milliseconds;
 		this.variance = variance;
 		this.time = 0;
+		this.timingWheel = null;
+		this.timer = null;
+		this.random = null;
+	}
+
+	/**
+	 * Constructor, established the ticks until the action can be performed
+	 * again, with a variation of +/- variance.
+	 * 
+	 * @param timingWheel
+	 *            Wheel of the game clock.
+	 * @param milliseconds
+	 *            Game time until cooldown period is finished.
+	 * @param variance
+	 *            Variance in the cooldown period.
+	 * @param random
+	 *            Random numbers of the game, for the variance.
+	 */
+	protected Cooldown(final TimingWheel timingWheel, final int milliseconds,
+			final int variance, final GameRandom random) {
+		this.milliseconds = milliseconds;
+		this.variance = variance;
+		this.duration = milliseconds;
+		this.time = 0;
+		this.timingWheel = timingWheel;
+		this.timer = timingWheel.newTimer(null);
+		this.random = random;
 	}
 
 	/**
@@ -52,12 +89,30 @@ public class Cooldown {
 	 * @return Cooldown state.
 	 */
 	public final boolean checkFinished() {
+		if (this.timer != null)
+			return !this.timer.isPending();
 		if ((this.time == 0)
 				|| this.time + this.duration < System.currentTimeMillis())
 			return true;
 		return false;
 	}
 
+	/**
+	 * Calculates the time left until the cooldown is finished.
+	 * 
+	 * @return Milliseconds until {@link #checkFinished()} returns true, zero
+	 *         if it already does.
+	 */
+	public final long getRemainingTime() {
+		if (this.timer != null)
+			return this.timingWheel.toMilliseconds(this.timer
+					.getRemainingTicks());
+		if (this.time == 0)
+			return 0;
+		return Math.max(0, this.time + this.duration
+				- System.currentTimeMillis() + 1);
+	}
+
 	/**
 	 * Restarts the cooldown.
 	 */
@@ -65,7 +120,49 @@ public class Cooldown {
 		this.time = System.currentTimeMillis();
 		if (this.variance != 0)
 			this.duration = (this.milliseconds - this.variance)
-					+ (int) (Math.random()
+					+ (int) (nextRandom()
 							* (this.milliseconds + this.variance));
+		if (this.timer != null)
+			this.timer.schedule(this.timingWheel.toTicks(this.duration));
+	}
+
+	/**
+	 * Calculates the ticks left until a cooldown on the game clock is
+	 * finished, to save it.
+	 * 
+	 * @return Ticks until {@link #checkFinished()} returns true, zero if it
+	 *         already does.
+	 */
+	public final long getRemainingTicks() {
+		if (this.timer == null)
+			throw new IllegalStateException("Cooldown on the system clock");
+		return this.timer.getRemainingTicks();
+	}
+
+	/**
+	 * Restarts a cooldown on the game clock with the ticks it had left when
+	 * saved.
+	 * 
+	 * @param ticks
+	 *            Ticks left, zero for a finished cooldown.
+	 */
+	public final void resume(final long ticks) {
+		if (this.timer == null)
+			throw new IllegalStateException("Cooldown on the system clock");
+		if (ticks > 0)
+			this.timer.schedule((int) ticks);
+		else
+			this.timer.cancel();
+	}
+
+	/**
+	 * Returns a random fraction, from the game if it has its own numbers.
+	 * 
+	 * @return Random value between 0 and 1.
+	 */
+	private double nextRandom() {
+		if (this.random != null)
+			return this.random.nextDouble();
+		return Math.random();
 	}
 }
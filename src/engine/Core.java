@@ -1,13 +1,17 @@
 package engine;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import screen.GameScreen;
 import screen.HighScoreScreen;
 import screen.ScoreScreen;
@@ -23,50 +27,51 @@ import screen.TitleScreen;
 public final class Core {
 
 	/** Width of current screen. */
-	private static final int WIDTH = 448;
+	static final int WIDTH = 448;
 	/** Height of current screen. */
-	private static final int HEIGHT = 520;
+	static final int HEIGHT = 520;
 	/** Max fps of current screen. */
-	private static final int FPS = 60;
+	static final int FPS = 60;
+	/** System property selecting the rendering backend. */
+	private static final String RENDERER_PROPERTY = "invaders.renderer";
+	/** System property with the application logging level. */
+	private static final String LOG_LEVEL_PROPERTY = "invaders.logLevel";
+	/** Log file name pattern, %g is the rotation number. */
+	private static final String LOG_PATTERN = "log.%g";
+	/** Maximum size of each log file, in bytes. */
+	private static final int LOG_LIMIT = 1024 * 1024;
+	/** Number of log files kept by rotation. */
+	private static final int LOG_COUNT = 5;
+	/** Records buffered before logging starts dropping them. */
+	private static final int LOG_BUFFER_SIZE = 4096;
+	/** System property moving drawing to its own thread. */
+	private static final String RENDER_THREAD_PROPERTY =
+			"invaders.renderThread";
+	/** System property continuing the last saved game on start. */
+	private static final String RESUME_PROPERTY = "invaders.resume";
+	/** System property racing the ghost of the best game. */
+	private static final String GHOST_PROPERTY = "invaders.ghost";
+	/** Management name of the engine metrics. */
+	private static final String METRICS_NAME = "invaders:type=EngineMetrics";
+	/** Management name of the engine settings. */
+	private static final String CONTROL_NAME = "invaders:type=EngineControl";
 
 	/** Max lives. */
-	private static final int MAX_LIVES = 3;
+	static final int MAX_LIVES = 3;
 	/** Levels between extra life. */
-	private static final int EXTRA_LIFE_FRECUENCY = 3;
-	/** Total number of levels. */
-	private static final int NUM_LEVELS = 7;
-	
-	/** Difficulty settings for level 1. */
-	private static final GameSettings SETTINGS_LEVEL_1 =
-			new GameSettings(5, 4, 60, 2000);
-	/** Difficulty settings for level 2. */
-	private static final GameSettings SETTINGS_LEVEL_2 =
-			new GameSettings(5, 5, 50, 2500);
-	/** Difficulty settings for level 3. */
-	private static final GameSettings SETTINGS_LEVEL_3 =
-			new GameSettings(6, 5, 40, 1500);
-	/** Difficulty settings for level 4. */
-	private static final GameSettings SETTINGS_LEVEL_4 =
-			new GameSettings(6, 6, 30, 1500);
-	/** Difficulty settings for level 5. */
-	private static final GameSettings SETTINGS_LEVEL_5 =
-			new GameSettings(7, 6, 20, 1000);
-	/** Difficulty settings for level 6. */
-	private static final GameSettings SETTINGS_LEVEL_6 =
-			new GameSettings(7, 7, 10, 1000);
-	/** Difficulty settings for level 7. */
-	private static final GameSettings SETTINGS_LEVEL_7 =
-			new GameSettings(8, 7, 2, 500);
-	
+	static final int EXTRA_LIFE_FRECUENCY = 3;
+
 	/** Frame to draw the screen on. */
 	private static Frame frame;
 	/** Screen currently shown. */
 	private static Screen currentScreen;
-	/** Difficulty settings list. */
-	private static List<GameSettings> gameSettings;
+	/** Renderer used by the screens, the frame's draw manager by default. */
+	private static Renderer renderer;
 	/** Application logger. */
 	private static final Logger LOGGER = Logger.getLogger(Core.class
 			.getSimpleName());
+	/** Logger handler writing the other handlers in the background. */
+	private static AsyncHandler asyncHandler;
 	/** Logger handler for printing to disk. */
 	private static Handler fileHandler;
 	/** Logger handler for printing to console. */
@@ -83,38 +88,73 @@ public final class Core {
 		try {
 			LOGGER.setUseParentHandlers(false);
 
-			fileHandler = new FileHandler("log");
+			fileHandler = new FileHandler(LOG_PATTERN, LOG_LIMIT, LOG_COUNT);
 			fileHandler.setFormatter(new MinimalFormatter());
 
 			consoleHandler = new ConsoleHandler();
 			consoleHandler.setFormatter(new MinimalFormatter());
 
-			LOGGER.addHandler(fileHandler);
-			LOGGER.addHandler(consoleHandler);
-			LOGGER.setLevel(Level.ALL);
+			// Game threads only enqueue records, disk and console are
+			// written from the handler's own thread.
+			asyncHandler = new AsyncHandler(LOG_BUFFER_SIZE);
+			asyncHandler.addHandler(fileHandler);
+			asyncHandler.addHandler(consoleHandler);
+
+			LOGGER.addHandler(asyncHandler);
+			LOGGER.setLevel(Level.parse(System.getProperty(
+					LOG_LEVEL_PROPERTY, Level.INFO.getName())));
 
 		} catch (Exception e) {
 			// TODO handle exception
 			e.printStackTrace();
 		}
 
+		// Keeps the last seconds of play when the game crashes.
+		Thread.setDefaultUncaughtExceptionHandler(
+				new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(final Thread thread,
+					final Throwable throwable) {
+				LOGGER.severe("Uncaught " + throwable + " on "
+						+ thread.getName() + ", dumping flight record.");
+				getFlightRecorder().dump("crash");
+				throwable.printStackTrace();
+				if (asyncHandler != null)
+					asyncHandler.flush();
+			}
+		});
+
+		getEngineMetrics().setLogHandler(asyncHandler);
+		registerManagementBeans();
+
 		frame = new Frame(WIDTH, HEIGHT);
 		DrawManager.getInstance().setFrame(frame);
+		if ("raster".equalsIgnoreCase(System.getProperty(RENDERER_PROPERTY)))
+			DrawManager.getInstance().setBackend(
+					DrawManager.Backend.RASTER);
+		if (Boolean.getBoolean(RENDER_THREAD_PROPERTY)) {
+			setRenderer(new RecordingRenderer(DrawManager.getInstance()));
+			LOGGER.info("Drawing on a separate render thread.");
+		}
 		int width = frame.getWidth();
 		int height = frame.getHeight();
+		getHighScoreRepository().load();
+		getEngineMetrics().setMusicPlayer(
+				getSoundManager().getMusicPlayer());
+
+		LevelManager levelManager = getLevelManager();
 
-		gameSettings = new ArrayList<GameSettings>();
-		gameSettings.add(SETTINGS_LEVEL_1);
-		gameSettings.add(SETTINGS_LEVEL_2);
-		gameSettings.add(SETTINGS_LEVEL_3);
-		gameSettings.add(SETTINGS_LEVEL_4);
-		gameSettings.add(SETTINGS_LEVEL_5);
-		gameSettings.add(SETTINGS_LEVEL_6);
-		gameSettings.add(SETTINGS_LEVEL_7);
-		
 		GameState gameState;
 
 		int returnCode = 1;
+		ByteBuffer savedGame = null;
+		if (Boolean.getBoolean(RESUME_PROPERTY)) {
+			savedGame = getSaveStateManager().loadLatest();
+			if (savedGame != null)
+				returnCode = 2;
+			else
+				LOGGER.info("No saved game to resume.");
+		}
 		do {
 			gameState = new GameState(1, 0, MAX_LIVES, 0, 0);
 
@@ -129,20 +169,60 @@ public final class Core {
 				break;
 			case 2:
 				// Game & score.
+				if (savedGame != null) {
+					gameState = GameState.restore(savedGame);
+					LOGGER.info("Resuming saved game at level "
+							+ gameState.getLevel() + ".");
+				} else {
+					getSaveStateManager().clear();
+				}
+				// Every game is recorded, in case it becomes the best one.
+				ReplayRecorder replayRecorder = new ReplayRecorder(width,
+						height, FPS);
+				ReplayStream bestReplay = null;
+				if (Boolean.getBoolean(GHOST_PROPERTY)) {
+					bestReplay = ReplayStream.openBest();
+					if (bestReplay == null)
+						LOGGER.info("No best game to race yet.");
+				}
+				long levelEnd = 0;
 				do {
-					// One extra live every few levels.
-					boolean bonusLife = gameState.getLevel()
-							% EXTRA_LIFE_FRECUENCY == 0
+					// One extra live every few levels, already counted in
+					// a saved game.
+					boolean bonusLife = savedGame == null
+							&& gameState.getLevel()
+									% EXTRA_LIFE_FRECUENCY == 0
 							&& gameState.getLivesRemaining() < MAX_LIVES;
 					
-					currentScreen = new GameScreen(gameState,
-							gameSettings.get(gameState.getLevel() - 1),
+					GameSettings levelSettings = levelManager
+							.getLevel(gameState.getLevel());
+					getEngineMetrics().setGameSettings(levelSettings);
+					currentScreen = new GameScreen(gameState, levelSettings,
 							bonusLife, width, height, FPS);
+					if (savedGame != null) {
+						((GameScreen) currentScreen).resume(savedGame);
+						savedGame = null;
+					}
+					((GameScreen) currentScreen).record(replayRecorder);
+					if (bestReplay != null)
+						((GameScreen) currentScreen).race(bestReplay);
+					// Ready before the countdown of this level ends.
+					levelManager.prefetch(gameState.getLevel() + 1);
 					LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
 							+ " game screen at " + FPS + " fps.");
 					frame.setScreen(currentScreen);
 					LOGGER.info("Closing game screen.");
 
+					if (levelEnd != 0) {
+						long transition = currentScreen.getStartTime()
+								- levelEnd;
+						getEngineMetrics().recordLevelTransition(transition);
+						LOGGER.info("Level " + gameState.getLevel()
+								+ " started " + transition / 1000 + " us after"
+								+ " the previous one ended.");
+					}
+					levelEnd = System.nanoTime();
+
 					gameState = ((GameScreen) currentScreen).getGameState();
 
 					gameState = new GameState(gameState.getLevel() + 1,
@@ -152,7 +232,18 @@ public final class Core {
 							gameState.getShipsDestroyed());
 
 				} while (gameState.getLivesRemaining() > 0
-						&& gameState.getLevel() <= NUM_LEVELS);
+						&& gameState.getLevel() <= levelManager
+								.getLevelCount());
+				// Nothing left to resume.
+				getSaveStateManager().clear();
+				if (bestReplay != null) {
+					bestReplay.shutdown();
+					LOGGER.info("Raced the best game with "
+							+ bestReplay.getUnderruns() + " replay underruns.");
+				}
+				if (replayRecorder.isComplete()
+						&& isBestScore(gameState.getScore()))
+					replayRecorder.saveAsBest();
 
 				LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
 						+ " score screen at " + FPS + " fps, with a score of "
@@ -161,6 +252,8 @@ public final class Core {
 						+ gameState.getBulletsShot() + " bullets shot and "
 						+ gameState.getShipsDestroyed() + " ships destroyed.");
 				currentScreen = new ScoreScreen(width, height, FPS, gameState);
+				if (replayRecorder.isComplete())
+					((ScoreScreen) currentScreen).attachReplay(replayRecorder);
 				returnCode = frame.setScreen(currentScreen);
 				LOGGER.info("Closing score screen.");
 				break;
@@ -178,11 +271,25 @@ public final class Core {
 
 		} while (returnCode != 0);
 
-		fileHandler.flush();
-		fileHandler.close();
+		if (asyncHandler != null)
+			asyncHandler.close();
 		System.exit(0);
 	}
 
+	/**
+	 * Checks if a score beats every high score, before it is added.
+	 * 
+	 * @param score
+	 *            Score points.
+	 * @return True if no high score is as high.
+	 */
+	private static boolean isBestScore(final int score) {
+		for (Score highScore : getHighScoreRepository().getHighScores())
+			if (highScore.getScore() >= score)
+				return false;
+		return score > 0;
+	}
+
 	/**
 	 * Constructor, not called.
 	 */
@@ -190,6 +297,22 @@ public final class Core {
 
 	}
 
+	/**
+	 * Publishes the engine metrics and settings on the platform MBean server,
+	 * where JConsole or VisualVM can read and change them.
+	 */
+	private static void registerManagementBeans() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(getEngineMetrics(), new ObjectName(
+					METRICS_NAME));
+			server.registerMBean(getEngineControl(), new ObjectName(
+					CONTROL_NAME));
+		} catch (JMException e) {
+			LOGGER.warning("Couldn't register management beans: " + e);
+		}
+	}
+
 	/**
 	 * Controls access to the logger.
 	 * 
@@ -202,10 +325,24 @@ public final class Core {
 	/**
 	 * Controls access to the drawing manager.
 	 * 
-	 * @return Application draw manager.
+	 * @return Application renderer, the frame's draw manager unless another
+	 *         one was set.
+	 */
+	public static Renderer getDrawManager() {
+		if (renderer == null)
+			return DrawManager.getInstance();
+		return renderer;
+	}
+
+	/**
+	 * Replaces the renderer used by screens created from now on, for example
+	 * with an {@link OffscreenRenderer} on a headless JVM.
+	 * 
+	 * @param newRenderer
+	 *            Renderer to use, null restores the frame's draw manager.
 	 */
-	public static DrawManager getDrawManager() {
-		return DrawManager.getInstance();
+	public static void setRenderer(final Renderer newRenderer) {
+		renderer = newRenderer;
 	}
 
 	/**
@@ -226,6 +363,78 @@ public final class Core {
 		return FileManager.getInstance();
 	}
 
+	/**
+	 * Controls access to the level settings.
+	 * 
+	 * @return Application level manager.
+	 */
+	public static LevelManager getLevelManager() {
+		return LevelManager.getInstance();
+	}
+
+	/**
+	 * Controls access to the high scores.
+	 * 
+	 * @return Application high score repository.
+	 */
+	public static HighScoreRepository getHighScoreRepository() {
+		return HighScoreRepository.getInstance();
+	}
+
+	/**
+	 * Controls access to the sound effects.
+	 * 
+	 * @return Application sound manager.
+	 */
+	public static SoundManager getSoundManager() {
+		return SoundManager.getInstance();
+	}
+
+	/**
+	 * Controls access to the flight recorder.
+	 * 
+	 * @return Application flight recorder.
+	 */
+	public static FlightRecorder getFlightRecorder() {
+		return FlightRecorder.getInstance();
+	}
+
+	/**
+	 * Controls access to the saved games.
+	 * 
+	 * @return Application save state manager.
+	 */
+	public static SaveStateManager getSaveStateManager() {
+		return SaveStateManager.getInstance();
+	}
+
+	/**
+	 * Controls access to the frame watchdog.
+	 * 
+	 * @return Application frame watchdog, already watching.
+	 */
+	public static FrameWatchdog getFrameWatchdog() {
+		return FrameWatchdog.getInstance();
+	}
+
+	/**
+	 * Controls access to the engine metrics.
+	 * 
+	 * @return Application engine metrics.
+	 */
+	public static EngineMetrics getEngineMetrics() {
+		return EngineMetrics.getInstance();
+	}
+
+	/**
+	 * Controls access to the engine settings changed at runtime.
+	 * 
+	 * @return Application engine control.
+	 */
+	public static EngineControl getEngineControl() {
+		return EngineControl.getInstance();
+	}
+
 	/**
 	 * Controls creation of new cooldowns.
 	 * 
@@ -0,0 +1,81 @@
+package engine;
+
+import java.util.logging.Level;
+
+/**
+ * Engine settings that can be changed at runtime through JMX.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class EngineControl implements EngineControlMBean {
+
+	/** Lowest frame rate allowed. */
+	private static final int MIN_FPS = 10;
+	/** Highest frame rate allowed. */
+	private static final int MAX_FPS = 240;
+
+	/** Singleton instance of the class. */
+	private static EngineControl instance;
+
+	/** Frame rate override, zero if unset. */
+	private volatile int targetFps;
+
+	/**
+	 * Private constructor.
+	 */
+	private EngineControl() {
+		this.targetFps = 0;
+	}
+
+	/**
+	 * Returns shared instance of EngineControl.
+	 * 
+	 * @return Shared instance of EngineControl.
+	 */
+	protected static synchronized EngineControl getInstance() {
+		if (instance == null)
+			instance = new EngineControl();
+		return instance;
+	}
+
+	@Override
+	public int getTargetFps() {
+		return this.targetFps;
+	}
+
+	@Override
+	public void setTargetFps(final int fps) {
+		if (fps != 0 && (fps < MIN_FPS || fps > MAX_FPS))
+			throw new IllegalArgumentException("Frame rate must be between "
+					+ MIN_FPS + " and " + MAX_FPS + ", or zero.");
+		this.targetFps = fps;
+		Core.getLogger().info("Target frame rate set to "
+				+ (fps == 0 ? "screen default" : fps + " fps") + ".");
+	}
+
+	/**
+	 * Returns the frame rate a screen should run at.
+	 * 
+	 * @param screenFps
+	 *            Frame rate the screen was created with.
+	 * @return Override if one is set, the screen's frame rate otherwise.
+	 */
+	public int getTargetFps(final int screenFps) {
+		int fps = this.targetFps;
+		return fps == 0 ? screenFps : fps;
+	}
+
+	@Override
+	public String getLogLevel() {
+		Level level = Core.getLogger().getLevel();
+		return level == null ? "" : level.getName();
+	}
+
+	@Override
+	public void setLogLevel(final String level) {
+		Level newLevel = Level.parse(level.trim().toUpperCase());
+		Core.getLogger().setLevel(newLevel);
+		Core.getLogger().info("Logging level set to " + newLevel + ".");
+	}
+}
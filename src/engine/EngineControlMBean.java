@@ -0,0 +1,36 @@
+package engine;
+
+/**
+ * Management interface exposing engine settings that are safe to change
+ * while the game runs.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface EngineControlMBean {
+
+	/**
+	 * @return Frames per second the screens aim for, zero if each screen uses
+	 *         its own rate.
+	 */
+	int getTargetFps();
+
+	/**
+	 * @param fps
+	 *            Frames per second the screens aim for, between 10 and 240,
+	 *            or zero to let each screen use its own rate.
+	 */
+	void setTargetFps(int fps);
+
+	/**
+	 * @return Application logging level.
+	 */
+	String getLogLevel();
+
+	/**
+	 * @param level
+	 *            Application logging level, as understood by
+	 *            java.util.logging.Level.
+	 */
+	void setLogLevel(String level);
+}
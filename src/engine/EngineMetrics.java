@@ -0,0 +1,356 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import entity.BulletPool;
+
+/**
+ * Live engine metrics, readable through JMX. Every value is written with
+ * lock-free counters or volatile fields, so reading them never pauses the
+ * game thread.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+
+	/** Width of each frame time bucket, in microseconds. */
+	private static final int BUCKET_MICROS = 250;
+	/** Number of frame time buckets, the last one holds longer frames. */
+	private static final int BUCKETS = 401;
+	/** Weight of the newest frame on the average frame time. */
+	private static final double AVERAGE_WEIGHT = 0.05;
+
+	/** Singleton instance of the class. */
+	private static EngineMetrics instance;
+
+	/** Frame time histogram. */
+	private final AtomicLongArray frameTimes;
+	/** Longest frame time since the last reset, in microseconds. */
+	private final AtomicLong maxFrameTime;
+	/** Recent average frame time, in microseconds. */
+	private volatile double averageFrameTime;
+	/** Ticks run. */
+	private final AtomicLong ticks;
+	/** Enemy ships alive on the last tick. */
+	private volatile int liveEnemies;
+	/** Bullets on screen on the last tick. */
+	private volatile int liveBullets;
+	/** Level on the last tick. */
+	private volatile int level;
+	/** Settings of the current level. */
+	private volatile GameSettings gameSettings;
+	/** Last high score load time, in nanoseconds. */
+	private volatile long highScoreLoadTime;
+	/** Last high score save time, in nanoseconds. */
+	private volatile long highScoreSaveTime;
+	/** Longest high score operation, in nanoseconds. */
+	private final AtomicLong highScoreMaxTime;
+	/** Last level transition time, in nanoseconds. */
+	private volatile long levelTransitionTime;
+	/** Longest level transition time, in nanoseconds. */
+	private final AtomicLong levelTransitionMaxTime;
+	/** Logging handler whose dropped records are reported. */
+	private volatile AsyncHandler logHandler;
+	/** Player whose underruns are reported. */
+	private volatile MusicPlayer musicPlayer;
+	/** History of the current game, whose memory is reported. */
+	private volatile RewindBuffer rewindBuffer;
+
+	/**
+	 * Private constructor.
+	 */
+	private EngineMetrics() {
+		this.frameTimes = new AtomicLongArray(BUCKETS);
+		this.maxFrameTime = new AtomicLong();
+		this.ticks = new AtomicLong();
+		this.highScoreMaxTime = new AtomicLong();
+		this.levelTransitionMaxTime = new AtomicLong();
+	}
+
+	/**
+	 * Returns shared instance of EngineMetrics.
+	 * 
+	 * @return Shared instance of EngineMetrics.
+	 */
+	protected static synchronized EngineMetrics getInstance() {
+		if (instance == null)
+			instance = new EngineMetrics();
+		return instance;
+	}
+
+	/**
+	 * Records the values measured on a tick.
+	 * 
+	 * @param sample
+	 *            Values of the tick.
+	 */
+	public void recordTick(final TickSample sample) {
+		int frameMicros = sample.getFrameMicros();
+		this.frameTimes.incrementAndGet(Math.min(frameMicros
+				/ BUCKET_MICROS, BUCKETS - 1));
+		long max = this.maxFrameTime.get();
+		while (frameMicros > max
+				&& !this.maxFrameTime.compareAndSet(max, frameMicros))
+			max = this.maxFrameTime.get();
+		this.averageFrameTime = this.averageFrameTime == 0 ? frameMicros
+				: this.averageFrameTime * (1 - AVERAGE_WEIGHT) + frameMicros
+						* AVERAGE_WEIGHT;
+		this.ticks.incrementAndGet();
+
+		this.liveEnemies = sample.getEnemies();
+		this.liveBullets = sample.getBullets();
+		this.level = sample.getLevel();
+	}
+
+	/**
+	 * Sets the settings of the level being played.
+	 * 
+	 * @param settings
+	 *            Current level settings.
+	 */
+	public void setGameSettings(final GameSettings settings) {
+		this.gameSettings = settings;
+	}
+
+	/**
+	 * Records the time spent loading the high scores.
+	 * 
+	 * @param nanoseconds
+	 *            Load time.
+	 */
+	public void recordHighScoreLoad(final long nanoseconds) {
+		this.highScoreLoadTime = nanoseconds;
+		updateHighScoreMax(nanoseconds);
+	}
+
+	/**
+	 * Records the time spent saving the high scores.
+	 * 
+	 * @param nanoseconds
+	 *            Save time.
+	 */
+	public void recordHighScoreSave(final long nanoseconds) {
+		this.highScoreSaveTime = nanoseconds;
+		updateHighScoreMax(nanoseconds);
+	}
+
+	/**
+	 * Records the time between the end of a level and the first frame of the
+	 * next one.
+	 * 
+	 * @param nanoseconds
+	 *            Transition time.
+	 */
+	public void recordLevelTransition(final long nanoseconds) {
+		this.levelTransitionTime = nanoseconds;
+		long max = this.levelTransitionMaxTime.get();
+		while (nanoseconds > max && !this.levelTransitionMaxTime
+				.compareAndSet(max, nanoseconds))
+			max = this.levelTransitionMaxTime.get();
+	}
+
+	/**
+	 * Sets the logging handler whose dropped records are reported.
+	 * 
+	 * @param handler
+	 *            Application asynchronous handler.
+	 */
+	public void setLogHandler(final AsyncHandler handler) {
+		this.logHandler = handler;
+	}
+
+	/**
+	 * Sets the music player whose underruns are reported.
+	 * 
+	 * @param player
+	 *            Application music player.
+	 */
+	public void setMusicPlayer(final MusicPlayer player) {
+		this.musicPlayer = player;
+	}
+
+	/**
+	 * Sets the rewind history whose memory is reported.
+	 * 
+	 * @param buffer
+	 *            History of the current game.
+	 */
+	public void setRewindBuffer(final RewindBuffer buffer) {
+		this.rewindBuffer = buffer;
+	}
+
+	@Override
+	public double getFps() {
+		double average = this.averageFrameTime;
+		return average == 0 ? 0 : 1000000 / average;
+	}
+
+	@Override
+	public double getFrameTimeP50() {
+		return frameTimePercentile(0.50);
+	}
+
+	@Override
+	public double getFrameTimeP95() {
+		return frameTimePercentile(0.95);
+	}
+
+	@Override
+	public double getFrameTimeP99() {
+		return frameTimePercentile(0.99);
+	}
+
+	@Override
+	public double getFrameTimeMax() {
+		return this.maxFrameTime.get() / 1000.0;
+	}
+
+	@Override
+	public long getTickCount() {
+		return this.ticks.get();
+	}
+
+	@Override
+	public int getBulletPoolSize() {
+		return BulletPool.getSize();
+	}
+
+	@Override
+	public double getBulletPoolHitRate() {
+		long hits = BulletPool.getHits();
+		long requests = hits + BulletPool.getMisses();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public int getLiveEnemies() {
+		return this.liveEnemies;
+	}
+
+	@Override
+	public int getLiveBullets() {
+		return this.liveBullets;
+	}
+
+	@Override
+	public int getLevel() {
+		return this.level;
+	}
+
+	@Override
+	public int getFormationWidth() {
+		GameSettings settings = this.gameSettings;
+		return settings == null ? 0 : settings.getFormationWidth();
+	}
+
+	@Override
+	public int getFormationHeight() {
+		GameSettings settings = this.gameSettings;
+		return settings == null ? 0 : settings.getFormationHeight();
+	}
+
+	@Override
+	public int getBaseSpeed() {
+		GameSettings settings = this.gameSettings;
+		return settings == null ? 0 : settings.getBaseSpeed();
+	}
+
+	@Override
+	public int getShootingFrecuency() {
+		GameSettings settings = this.gameSettings;
+		return settings == null ? 0 : settings.getShootingFrecuency();
+	}
+
+	@Override
+	public double getHighScoreLoadTime() {
+		return this.highScoreLoadTime / 1000000.0;
+	}
+
+	@Override
+	public double getHighScoreSaveTime() {
+		return this.highScoreSaveTime / 1000000.0;
+	}
+
+	@Override
+	public double getHighScoreMaxTime() {
+		return this.highScoreMaxTime.get() / 1000000.0;
+	}
+
+	@Override
+	public double getLevelTransitionTime() {
+		return this.levelTransitionTime / 1000000.0;
+	}
+
+	@Override
+	public double getLevelTransitionMaxTime() {
+		return this.levelTransitionMaxTime.get() / 1000000.0;
+	}
+
+	@Override
+	public long getDroppedLogRecords() {
+		AsyncHandler handler = this.logHandler;
+		return handler == null ? 0 : handler.getDroppedRecords();
+	}
+
+	@Override
+	public long getMusicUnderruns() {
+		MusicPlayer player = this.musicPlayer;
+		return player == null ? 0 : player.getUnderruns();
+	}
+
+	@Override
+	public long getRewindBytes() {
+		RewindBuffer buffer = this.rewindBuffer;
+		return buffer == null ? 0 : buffer.getMemoryUsed();
+	}
+
+	@Override
+	public void resetFrameTimes() {
+		for (int i = 0; i < BUCKETS; i++)
+			this.frameTimes.set(i, 0);
+		this.maxFrameTime.set(0);
+	}
+
+	/**
+	 * Calculates a frame time percentile from the histogram.
+	 * 
+	 * @param percentile
+	 *            Percentile, between 0 and 1.
+	 * @return Upper bound of the bucket holding the percentile, in
+	 *         milliseconds.
+	 */
+	private double frameTimePercentile(final double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.frameTimes.get(i);
+			total += counts[i];
+		}
+		if (total == 0)
+			return 0;
+
+		long target = (long) Math.ceil(percentile * total);
+		long accumulated = 0;
+		for (int i = 0; i < BUCKETS - 1; i++) {
+			accumulated += counts[i];
+			if (accumulated >= target)
+				return (i + 1) * BUCKET_MICROS / 1000.0;
+		}
+		return getFrameTimeMax();
+	}
+
+	/**
+	 * Keeps the longest high score operation time.
+	 * 
+	 * @param nanoseconds
+	 *            Operation time.
+	 */
+	private void updateHighScoreMax(final long nanoseconds) {
+		long max = this.highScoreMaxTime.get();
+		while (nanoseconds > max
+				&& !this.highScoreMaxTime.compareAndSet(max, nanoseconds))
+			max = this.highScoreMaxTime.get();
+	}
+}
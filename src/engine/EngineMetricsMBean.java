@@ -0,0 +1,134 @@
+package engine;
+
+/**
+ * Management interface exposing live engine metrics.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface EngineMetricsMBean {
+
+	/**
+	 * @return Frames per second, from the recent average frame time.
+	 */
+	double getFps();
+
+	/**
+	 * @return Median frame time since the last reset, in milliseconds.
+	 */
+	double getFrameTimeP50();
+
+	/**
+	 * @return 95th percentile frame time since the last reset, in
+	 *         milliseconds.
+	 */
+	double getFrameTimeP95();
+
+	/**
+	 * @return 99th percentile frame time since the last reset, in
+	 *         milliseconds.
+	 */
+	double getFrameTimeP99();
+
+	/**
+	 * @return Longest frame time since the last reset, in milliseconds.
+	 */
+	double getFrameTimeMax();
+
+	/**
+	 * @return Ticks run since the start.
+	 */
+	long getTickCount();
+
+	/**
+	 * @return Bullets waiting in the pool.
+	 */
+	int getBulletPoolSize();
+
+	/**
+	 * @return Proportion of bullet requests served from the pool.
+	 */
+	double getBulletPoolHitRate();
+
+	/**
+	 * @return Enemy ships alive on the current screen.
+	 */
+	int getLiveEnemies();
+
+	/**
+	 * @return Bullets on the current screen.
+	 */
+	int getLiveBullets();
+
+	/**
+	 * @return Current level, zero outside the game.
+	 */
+	int getLevel();
+
+	/**
+	 * @return Formation width of the current level settings.
+	 */
+	int getFormationWidth();
+
+	/**
+	 * @return Formation height of the current level settings.
+	 */
+	int getFormationHeight();
+
+	/**
+	 * @return Base speed of the current level settings.
+	 */
+	int getBaseSpeed();
+
+	/**
+	 * @return Shooting frequency of the current level settings.
+	 */
+	int getShootingFrecuency();
+
+	/**
+	 * @return Last high score load time, in milliseconds.
+	 */
+	double getHighScoreLoadTime();
+
+	/**
+	 * @return Last high score save time, in milliseconds.
+	 */
+	double getHighScoreSaveTime();
+
+	/**
+	 * @return Longest high score load or save time, in milliseconds.
+	 */
+	double getHighScoreMaxTime();
+
+	/**
+	 * @return Time from the end of the last level to the first frame of the
+	 *         next one, in milliseconds.
+	 */
+	double getLevelTransitionTime();
+
+	/**
+	 * @return Longest level transition, in milliseconds.
+	 */
+	double getLevelTransitionMaxTime();
+
+	/**
+	 * @return Log records dropped because the buffer was full.
+	 */
+	long getDroppedLogRecords();
+
+	/**
+	 * @return Mixer blocks left partly silent because the background music
+	 *         wasn't decoded in time.
+	 */
+	long getMusicUnderruns();
+
+	/**
+	 * @return Memory held by the rewind history of the game, in bytes.
+	 */
+	long getRewindBytes();
+
+	/**
+	 * Clears the frame time percentiles.
+	 */
+	void resetFrameTimes();
+}
@@ -2,8 +2,12 @@ package engine;
 
 import java.awt.Font;
 import java.awt.FontFormatException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -20,6 +24,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
 
 import engine.DrawManager.SpriteType;
 
@@ -37,6 +46,14 @@ public final class FileManager {
 	private static Logger logger;
 	/** Max number of high scores. */
 	private static final int MAX_SCORES = 7;
+	/** Resource with the level definitions. */
+	private static final String LEVELS_RESOURCE = "levels";
+	/** File the compiled levels are cached on. */
+	private static final String LEVEL_CACHE = "levels.cache";
+	/** File of the user high scores. */
+	private static final String SCORES_FILE = "scores";
+	/** File of the scores verified by playing their replays back. */
+	private static final String VERIFIED_SCORES_FILE = "verifiedScores";
 
 	/**
 	 * private constructor.
@@ -174,20 +191,13 @@ public final class FileManager {
 	 */
 	public List<Score> loadHighScores() throws IOException {
 
+		long start = System.nanoTime();
 		List<Score> highScores = new ArrayList<Score>();
 		InputStream inputStream = null;
 		BufferedReader bufferedReader = null;
 
 		try {
-			String jarPath = FileManager.class.getProtectionDomain()
-					.getCodeSource().getLocation().getPath();
-			jarPath = URLDecoder.decode(jarPath, "UTF-8");
-
-			String scoresPath = new File(jarPath).getParent();
-			scoresPath += File.separator;
-			scoresPath += "scores";
-
-			File scoresFile = new File(scoresPath);
+			File scoresFile = getDataFile(SCORES_FILE);
 			inputStream = new FileInputStream(scoresFile);
 			bufferedReader = new BufferedReader(new InputStreamReader(
 					inputStream, Charset.forName("UTF-8")));
@@ -215,6 +225,7 @@ public final class FileManager {
 		}
 
 		Collections.sort(highScores);
+		Core.getEngineMetrics().recordHighScoreLoad(System.nanoTime() - start);
 		return highScores;
 	}
 
@@ -228,19 +239,12 @@ public final class FileManager {
 	 */
 	public void saveHighScores(final List<Score> highScores) 
 			throws IOException {
+		long start = System.nanoTime();
 		OutputStream outputStream = null;
 		BufferedWriter bufferedWriter = null;
 
 		try {
-			String jarPath = FileManager.class.getProtectionDomain()
-					.getCodeSource().getLocation().getPath();
-			jarPath = URLDecoder.decode(jarPath, "UTF-8");
-
-			String scoresPath = new File(jarPath).getParent();
-			scoresPath += File.separator;
-			scoresPath += "scores";
-
-			File scoresFile = new File(scoresPath);
+			File scoresFile = getDataFile(SCORES_FILE);
 
 			if (!scoresFile.exists())
 				scoresFile.createNewFile();
@@ -266,6 +270,230 @@ public final class FileManager {
 		} finally {
 			if (bufferedWriter != null)
 				bufferedWriter.close();
+			Core.getEngineMetrics().recordHighScoreSave(
+					System.nanoTime() - start);
 		}
 	}
+
+	/**
+	 * Loads the scores verified by playing their replays back.
+	 * 
+	 * @return Verified scores, best first, empty if none was verified.
+	 * @throws IOException
+	 *             In case of loading problems.
+	 */
+	public List<Score> loadVerifiedScores() throws IOException {
+		List<Score> verified = new ArrayList<Score>();
+		BufferedReader bufferedReader = null;
+		try {
+			bufferedReader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(getDataFile(VERIFIED_SCORES_FILE)),
+					Charset.forName("UTF-8")));
+			String name = bufferedReader.readLine();
+			String score = bufferedReader.readLine();
+			while ((name != null) && (score != null)) {
+				verified.add(new Score(name, Integer.parseInt(score), true));
+				name = bufferedReader.readLine();
+				score = bufferedReader.readLine();
+			}
+		} catch (FileNotFoundException e) {
+			logger.info("No verified scores yet.");
+		} finally {
+			if (bufferedReader != null)
+				bufferedReader.close();
+		}
+		Collections.sort(verified);
+		return verified;
+	}
+
+	/**
+	 * Saves every verified score, replacing the ones saved before.
+	 * 
+	 * @param verified
+	 *            Verified scores.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	public void saveVerifiedScores(final List<Score> verified)
+			throws IOException {
+		BufferedWriter bufferedWriter = null;
+		try {
+			bufferedWriter = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(getDataFile(VERIFIED_SCORES_FILE)),
+					Charset.forName("UTF-8")));
+			for (Score score : verified) {
+				bufferedWriter.write(score.getName());
+				bufferedWriter.newLine();
+				bufferedWriter.write(Integer.toString(score.getScore()));
+				bufferedWriter.newLine();
+			}
+		} finally {
+			if (bufferedWriter != null)
+				bufferedWriter.close();
+		}
+	}
+
+	/**
+	 * Loads the level definitions. They are read from the compiled cache
+	 * while it matches the definitions, and compiled and cached otherwise.
+	 * 
+	 * @return Levels, in order.
+	 * @throws IOException
+	 *             In case of loading problems or invalid definitions.
+	 */
+	public List<GameSettings> loadLevels() throws IOException {
+		InputStream inputStream = null;
+		byte[] source;
+
+		try {
+			inputStream = FileManager.class.getClassLoader()
+					.getResourceAsStream(LEVELS_RESOURCE);
+			if (inputStream == null)
+				throw new FileNotFoundException(LEVELS_RESOURCE);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4096];
+			int read;
+			while ((read = inputStream.read(chunk)) != -1)
+				bytes.write(chunk, 0, read);
+			source = bytes.toByteArray();
+		} finally {
+			if (inputStream != null)
+				inputStream.close();
+		}
+
+		CRC32 checksum = new CRC32();
+		checksum.update(source);
+		File cacheFile = getDataFile(LEVEL_CACHE);
+
+		if (cacheFile.exists()) {
+			InputStream cacheStream = null;
+			try {
+				cacheStream = new BufferedInputStream(new FileInputStream(
+						cacheFile));
+				List<GameSettings> levels = LevelCompiler.readCache(
+						cacheStream, checksum.getValue());
+				if (levels != null) {
+					logger.info("Loaded " + levels.size()
+							+ " levels from cache.");
+					return levels;
+				}
+			} catch (IOException e) {
+				logger.warning("Ignoring level cache: " + e.getMessage());
+			} finally {
+				if (cacheStream != null)
+					cacheStream.close();
+			}
+		}
+
+		List<GameSettings> levels = LevelCompiler.parse(
+				new ByteArrayInputStream(source));
+		logger.info("Compiled " + levels.size() + " levels.");
+
+		OutputStream cacheStream = null;
+		try {
+			cacheStream = new BufferedOutputStream(new FileOutputStream(
+					cacheFile));
+			LevelCompiler.writeCache(cacheStream, levels,
+					checksum.getValue());
+		} catch (IOException e) {
+			logger.warning("Couldn't write level cache: " + e.getMessage());
+		} finally {
+			if (cacheStream != null)
+				cacheStream.close();
+		}
+		return levels;
+	}
+
+	/**
+	 * Loads a sound effect and decodes it to samples.
+	 * 
+	 * @param name
+	 *            Name of the effect, without extension.
+	 * @return Samples in the mixer format, or null if there is no such
+	 *         effect.
+	 * @throws IOException
+	 *             In case of loading problems or an unsupported format.
+	 */
+	public short[] loadSound(final String name) throws IOException {
+		InputStream inputStream = FileManager.class.getClassLoader()
+				.getResourceAsStream("sounds/" + name + ".wav");
+		if (inputStream == null)
+			return null;
+
+		AudioInputStream audioStream = null;
+		try {
+			audioStream = AudioSystem.getAudioInputStream(AudioMixer.FORMAT,
+					AudioSystem.getAudioInputStream(new BufferedInputStream(
+							inputStream)));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4096];
+			int read;
+			while ((read = audioStream.read(chunk)) != -1)
+				bytes.write(chunk, 0, read);
+
+			byte[] data = bytes.toByteArray();
+			short[] samples = new short[data.length / 2];
+			for (int i = 0; i < samples.length; i++)
+				samples[i] = (short) ((data[2 * i] & 0xFF)
+						| (data[2 * i + 1] << 8));
+			logger.fine("Sound " + name + " loaded.");
+			return samples;
+		} catch (UnsupportedAudioFileException e) {
+			throw new IOException("Unsupported audio file: " + name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Can't convert " + name + ": "
+					+ e.getMessage());
+		} finally {
+			if (audioStream != null)
+				audioStream.close();
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Opens a music track to be decoded as it is read.
+	 * 
+	 * @param name
+	 *            Name of the track, without extension.
+	 * @return Stream of samples in the mixer format, or null if there is no
+	 *         such track.
+	 * @throws IOException
+	 *             In case of loading problems or an unsupported format.
+	 */
+	public AudioInputStream openMusic(final String name) throws IOException {
+		InputStream inputStream = FileManager.class.getClassLoader()
+				.getResourceAsStream("music/" + name + ".wav");
+		if (inputStream == null)
+			return null;
+
+		try {
+			return AudioSystem.getAudioInputStream(AudioMixer.FORMAT,
+					AudioSystem.getAudioInputStream(new BufferedInputStream(
+							inputStream)));
+		} catch (UnsupportedAudioFileException e) {
+			inputStream.close();
+			throw new IOException("Unsupported audio file: " + name);
+		} catch (IllegalArgumentException e) {
+			inputStream.close();
+			throw new IOException("Can't convert " + name + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a file next to the application, where user data is kept.
+	 * 
+	 * @param name
+	 *            Name of the file.
+	 * @return File in the application directory.
+	 * @throws IOException
+	 *             In case the application path can't be decoded.
+	 */
+	private File getDataFile(final String name) throws IOException {
+		String jarPath = FileManager.class.getProtectionDomain()
+				.getCodeSource().getLocation().getPath();
+		jarPath = URLDecoder.decode(jarPath, "UTF-8");
+
+		return new File(new File(jarPath).getParent(), name);
+	}
 }
@@ -0,0 +1,128 @@
+package engine;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Prints the timeline stored on flight record dumps.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class FlightRecordDecoder {
+
+	/** Frames over this time are marked on the timeline, in microseconds. */
+	private static final int SLOW_FRAME = 50000;
+	/** Names of the key mask bits, from the lowest bit. */
+	private static final String KEYS = "LRUDSE";
+
+	/**
+	 * Constructor, not called.
+	 */
+	private FlightRecordDecoder() {
+
+	}
+
+	/**
+	 * Prints the timeline of each dump given.
+	 *
+	 * @param args
+	 *            Dump files to decode.
+	 */
+	public static void main(final String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: FlightRecordDecoder <dump>...");
+			System.exit(1);
+		}
+		for (String path : args) {
+			try {
+				decode(new File(path), System.out);
+			} catch (IOException e) {
+				System.err.println(path + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Prints the timeline of a dump.
+	 *
+	 * @param file
+	 *            Dump file.
+	 * @param out
+	 *            Stream to print on.
+	 * @throws IOException
+	 *             In case of reading problems or an invalid dump.
+	 */
+	public static void decode(final File file, final PrintStream out)
+			throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+
+		try {
+			if (input.readInt() != FlightRecorder.MAGIC)
+				throw new IOException("Not a flight record.");
+			short version = input.readShort();
+			if (version != FlightRecorder.VERSION)
+				throw new IOException("Unsupported version " + version);
+			short recordSize = input.readShort();
+			int count = input.readInt();
+			long time = input.readLong();
+			String reason = input.readUTF();
+			byte[] records = new byte[count * recordSize];
+			input.readFully(records);
+
+			out.println(file.getName() + ": " + count + " ticks, dumped at "
+					+ new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
+							.format(new Date(time)) + " (" + reason + ")");
+			out.println(String.format("%6s %9s %8s %8s %-6s %4s %4s %6s %2s"
+					+ " %3s %s", "tick", "t(ms)", "frame", "update", "keys",
+					"enem", "bull", "score", "lv", "lvl", "gc"));
+
+			ByteBuffer buffer = ByteBuffer.wrap(records);
+			long start = count > 0 ? buffer.getLong(FlightRecorder.TIME) : 0;
+			for (int i = 0; i < count; i++) {
+				int offset = i * recordSize;
+				int frame = buffer.getInt(offset + FlightRecorder.FRAME);
+				short gcCount = buffer.getShort(offset
+						+ FlightRecorder.GC_COUNT);
+				out.println(String.format("%6d %9d %8.2f %8.2f %-6s %4d %4d"
+						+ " %6d %2d %3d %s%s", i, buffer.getLong(offset
+						+ FlightRecorder.TIME) - start, frame / 1000f,
+						buffer.getInt(offset + FlightRecorder.UPDATE) / 1000f,
+						keys(buffer.getShort(offset + FlightRecorder.INPUT)),
+						buffer.getShort(offset + FlightRecorder.ENEMIES),
+						buffer.getShort(offset + FlightRecorder.BULLETS),
+						buffer.getInt(offset + FlightRecorder.SCORE),
+						buffer.get(offset + FlightRecorder.LIVES),
+						buffer.get(offset + FlightRecorder.LEVEL),
+						gcCount == 0 ? "" : gcCount + "x/"
+								+ buffer.getShort(offset
+										+ FlightRecorder.GC_PAUSE) + "ms",
+						frame > SLOW_FRAME ? " <- slow" : ""));
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Formats a key mask as letters.
+	 *
+	 * @param mask
+	 *            Input manager key mask.
+	 * @return One letter per key pressed, dots for the rest.
+	 */
+	private static String keys(final int mask) {
+		StringBuilder keys = new StringBuilder();
+		for (int i = 0; i < KEYS.length(); i++)
+			keys.append((mask & (1 << i)) != 0 ? KEYS.charAt(i) : '.');
+		return keys.toString();
+	}
+}
@@ -0,0 +1,307 @@
+package engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Keeps the last seconds of ticks on a fixed-size, off-heap ring buffer, so
+ * they can be dumped to disk after a crash, on demand, or when a frame takes
+ * too long. Dumps are read with {@link FlightRecordDecoder}.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class FlightRecorder {
+
+	/** First bytes of every dump. */
+	static final int MAGIC = 0x494E5646;
+	/** Version of the dump layout. */
+	static final short VERSION = 1;
+	/** Bytes per tick record. */
+	static final short RECORD_SIZE = 32;
+
+	/** Offset of the tick time, long milliseconds. */
+	static final int TIME = 0;
+	/** Offset of the frame time, int microseconds. */
+	static final int FRAME = 8;
+	/** Offset of the update time, int microseconds. */
+	static final int UPDATE = 12;
+	/** Offset of the input key mask, short. */
+	static final int INPUT = 16;
+	/** Offset of the enemies alive, short. */
+	static final int ENEMIES = 18;
+	/** Offset of the bullets on screen, short. */
+	static final int BULLETS = 20;
+	/** Offset of the lives remaining, byte. */
+	static final int LIVES = 22;
+	/** Offset of the level, byte. */
+	static final int LEVEL = 23;
+	/** Offset of the score, int. */
+	static final int SCORE = 24;
+	/** Offset of the collections since the previous tick, short. */
+	static final int GC_COUNT = 28;
+	/** Offset of the collection time since the previous tick, short ms. */
+	static final int GC_PAUSE = 30;
+
+	/** Seconds of ticks kept. */
+	private static final int RECORDED_SECONDS = 30;
+	/** Ticks per second expected. */
+	private static final int EXPECTED_FPS = 60;
+	/** Minimum time between two dumps caused by slow frames. */
+	private static final long SLOW_FRAME_DUMP_INTERVAL = 10000;
+	/** Directory the dumps are written to. */
+	private static final String DUMP_DIRECTORY = "flightrecords";
+	/** Notification type of finished collections. */
+	private static final String GC_NOTIFICATION =
+			"com.sun.management.gc.notification";
+
+	/** Singleton instance of the class. */
+	private static FlightRecorder instance;
+
+	/** Application logger. */
+	private Logger logger;
+	/** Ring buffer of tick records. */
+	private final ByteBuffer buffer;
+	/** Number of records the buffer holds. */
+	private final int capacity;
+	/** Records written since the start. */
+	private long recorded;
+	/** Collections finished since the last record. */
+	private final AtomicInteger pendingGcCount;
+	/** Collection time since the last record, in milliseconds. */
+	private final AtomicInteger pendingGcMillis;
+	/** Moment of the last dump caused by a slow frame. */
+	private long lastSlowFrameDump;
+	/** Thread writing dumps to disk. */
+	private ExecutorService dumpWriter;
+
+	/**
+	 * Private constructor.
+	 */
+	private FlightRecorder() {
+		this.logger = Core.getLogger();
+		this.capacity = RECORDED_SECONDS * EXPECTED_FPS;
+		this.buffer = ByteBuffer.allocateDirect(this.capacity * RECORD_SIZE);
+		this.pendingGcCount = new AtomicInteger();
+		this.pendingGcMillis = new AtomicInteger();
+		listenToCollections();
+	}
+
+	/**
+	 * Returns shared instance of FlightRecorder.
+	 *
+	 * @return Shared instance of FlightRecorder.
+	 */
+	protected static synchronized FlightRecorder getInstance() {
+		if (instance == null)
+			instance = new FlightRecorder();
+		return instance;
+	}
+
+	/**
+	 * Subscribes to the end of every garbage collection.
+	 */
+	private void listenToCollections() {
+		NotificationListener listener = new NotificationListener() {
+			@Override
+			public void handleNotification(final Notification notification,
+					final Object handback) {
+				if (!GC_NOTIFICATION.equals(notification.getType()))
+					return;
+				CompositeData info = (CompositeData) notification
+						.getUserData();
+				// Concurrent cycles do not pause the game.
+				if (String.valueOf(info.get("gcName")).contains("Concurrent"))
+					return;
+				CompositeData gcInfo = (CompositeData) info.get("gcInfo");
+				pendingGcCount.incrementAndGet();
+				pendingGcMillis.addAndGet((int) ((Long) gcInfo
+						.get("duration")).longValue());
+			}
+		};
+
+		for (GarbageCollectorMXBean collector : ManagementFactory
+				.getGarbageCollectorMXBeans())
+			if (collector instanceof NotificationEmitter)
+				((NotificationEmitter) collector).addNotificationListener(
+						listener, null, null);
+	}
+
+	/**
+	 * Records a tick, overwriting the oldest one if the buffer is full. If the
+	 * frame went over budget, the buffer is dumped, at most once every few
+	 * seconds.
+	 *
+	 * @param sample
+	 *            Values measured on the tick.
+	 * @param budgetMicros
+	 *            Longest acceptable frame time, in microseconds.
+	 */
+	public void record(final TickSample sample, final int budgetMicros) {
+		int offset = (int) (this.recorded % this.capacity) * RECORD_SIZE;
+
+		this.buffer.putLong(offset + TIME, sample.getTime());
+		this.buffer.putInt(offset + FRAME, sample.getFrameMicros());
+		this.buffer.putInt(offset + UPDATE, sample.getUpdateMicros());
+		this.buffer.putShort(offset + INPUT, (short) sample.getInputMask());
+		this.buffer.putShort(offset + ENEMIES, clampShort(sample
+				.getEnemies()));
+		this.buffer.putShort(offset + BULLETS, clampShort(sample
+				.getBullets()));
+		this.buffer.put(offset + LIVES, (byte) sample.getLives());
+		this.buffer.put(offset + LEVEL, (byte) sample.getLevel());
+		this.buffer.putInt(offset + SCORE, sample.getScore());
+		this.buffer.putShort(offset + GC_COUNT, clampShort(
+				this.pendingGcCount.getAndSet(0)));
+		this.buffer.putShort(offset + GC_PAUSE, clampShort(
+				this.pendingGcMillis.getAndSet(0)));
+		this.recorded++;
+
+		if (sample.getFrameMicros() > budgetMicros
+				&& sample.getTime() - this.lastSlowFrameDump
+						> SLOW_FRAME_DUMP_INTERVAL) {
+			this.lastSlowFrameDump = sample.getTime();
+			this.logger.warning("Frame took " + sample.getFrameMicros()
+					/ 1000 + " ms, dumping flight record.");
+			dumpAsync("slowframe");
+		}
+	}
+
+	/**
+	 * Copies the buffer and writes it to disk on a background thread.
+	 *
+	 * @param reason
+	 *            Why the dump was requested, part of the file name.
+	 */
+	public void dumpAsync(final String reason) {
+		final byte[] records = copyRecords();
+		final long time = System.currentTimeMillis();
+		synchronized (this) {
+			if (this.dumpWriter == null)
+				this.dumpWriter = Executors.newSingleThreadExecutor(
+						new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"Flight record writer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+		this.dumpWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				write(records, reason, time);
+			}
+		});
+	}
+
+	/**
+	 * Writes the buffer to disk on the calling thread.
+	 *
+	 * @param reason
+	 *            Why the dump was requested, part of the file name.
+	 * @return File written, null if it could not be written.
+	 */
+	public File dump(final String reason) {
+		return write(copyRecords(), reason, System.currentTimeMillis());
+	}
+
+	/**
+	 * Copies the records, from oldest to newest.
+	 *
+	 * @return Records in the buffer.
+	 */
+	private byte[] copyRecords() {
+		long total = this.recorded;
+		int count = (int) Math.min(total, this.capacity);
+		int first = (int) ((total - count) % this.capacity);
+		byte[] records = new byte[count * RECORD_SIZE];
+
+		ByteBuffer view = this.buffer.duplicate();
+		int firstPart = Math.min(count, this.capacity - first);
+		view.position(first * RECORD_SIZE);
+		view.get(records, 0, firstPart * RECORD_SIZE);
+		view.position(0);
+		view.get(records, firstPart * RECORD_SIZE, (count - firstPart)
+				* RECORD_SIZE);
+		return records;
+	}
+
+	/**
+	 * Writes records to a new dump file.
+	 *
+	 * @param records
+	 *            Records, from oldest to newest.
+	 * @param reason
+	 *            Why the dump was requested.
+	 * @param time
+	 *            Moment the dump was requested.
+	 * @return File written, null if it could not be written.
+	 */
+	private File write(final byte[] records, final String reason,
+			final long time) {
+		File directory = new File(DUMP_DIRECTORY);
+		File file = new File(directory, "flight-"
+				+ new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(
+						time)) + "-" + reason + ".bin");
+		DataOutputStream output = null;
+
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Cannot create " + directory);
+			output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			output.writeInt(MAGIC);
+			output.writeShort(VERSION);
+			output.writeShort(RECORD_SIZE);
+			output.writeInt(records.length / RECORD_SIZE);
+			output.writeLong(time);
+			output.writeUTF(reason);
+			output.write(records);
+			this.logger.info("Flight record written to " + file);
+			return file;
+		} catch (IOException e) {
+			this.logger.warning("Couldn't write flight record: " + e);
+			return null;
+		} finally {
+			if (output != null)
+				try {
+					output.close();
+				} catch (IOException e) {
+					this.logger.warning("Couldn't close flight record.");
+				}
+		}
+	}
+
+	/**
+	 * Limits a value to the range of a short.
+	 *
+	 * @param value
+	 *            Value to limit.
+	 * @return Limited value.
+	 */
+	private static short clampShort(final int value) {
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+				value));
+	}
+}
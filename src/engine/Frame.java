@@ -55,6 +55,7 @@ public class Frame extends JFrame {
 	 */
 	public final int setScreen(final Screen screen) {
 		currentScreen = screen;
+		Core.getSoundManager().playMusic(currentScreen.getMusic());
 		currentScreen.initialize();
 		return currentScreen.run();
 	}
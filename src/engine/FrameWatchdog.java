@@ -0,0 +1,357 @@
+package engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Watches the heartbeat of the screen loop from its own thread. When a frame
+ * goes over budget, it captures the game thread stack, the phase timings and
+ * the garbage collection activity, and writes them to the diagnostics
+ * directory in the background.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class FrameWatchdog extends Thread {
+
+	/** Parts of a frame, timed separately. */
+	public static enum Phase {
+		/** Input, movement and game rules. */
+		UPDATE,
+		/** Collision checks. */
+		COLLISIONS,
+		/** Playing the ghost of the best game. */
+		GHOST,
+		/** Drawing the screen. */
+		DRAW,
+		/** Recording diagnostics. */
+		RECORD,
+		/** Waiting for the next frame. */
+		SLEEP
+	};
+
+	/** Directory the reports are written to. */
+	private static final String REPORT_DIRECTORY = "diagnostics";
+	/** Number of reports kept, older ones are deleted. */
+	private static final int MAX_REPORTS = 20;
+	/** Minimum time between two reports. */
+	private static final long REPORT_INTERVAL = 5000;
+	/** Default frame budget until a screen sets one. */
+	private static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS
+			.toNanos(50);
+	/** Phases of a frame. */
+	private static final Phase[] PHASES = Phase.values();
+
+	/** Singleton instance of the class. */
+	private static FrameWatchdog instance;
+
+	/** Application logger. */
+	private final Logger logger;
+	/** Thread being watched. */
+	private volatile Thread gameThread;
+	/** Longest acceptable frame time, in nanoseconds. */
+	private volatile long budget;
+	/** Start of the current frame, zero while idle. */
+	private volatile long frameStart;
+	/** Number of the current frame. */
+	private volatile long frameNumber;
+	/** Phase the current frame is in. */
+	private volatile int currentPhase;
+	/** Start of the current phase. */
+	private long phaseStart;
+	/** Phase durations of the current frame. */
+	private final long[] phaseTimes;
+	/** Phase durations of the last completed frame. */
+	private final AtomicLongArray lastPhaseTimes;
+	/** Last frame reported, to report each stall only once. */
+	private long reportedFrame;
+	/** Moment of the last report. */
+	private long lastReport;
+	/** Collection counts at the last report, one per collector. */
+	private long[] gcCounts;
+	/** Collection times at the last report, one per collector. */
+	private long[] gcTimes;
+	/** Thread writing the reports. */
+	private final ExecutorService reportWriter;
+
+	/**
+	 * Private constructor.
+	 */
+	private FrameWatchdog() {
+		super("Frame watchdog");
+		setDaemon(true);
+		this.logger = Core.getLogger();
+		this.budget = DEFAULT_BUDGET;
+		this.phaseTimes = new long[PHASES.length];
+		this.lastPhaseTimes = new AtomicLongArray(PHASES.length);
+		this.reportedFrame = -1;
+		List<GarbageCollectorMXBean> collectors = ManagementFactory
+				.getGarbageCollectorMXBeans();
+		this.gcCounts = new long[collectors.size()];
+		this.gcTimes = new long[collectors.size()];
+		readCollectors(this.gcCounts, this.gcTimes);
+		this.reportWriter = Executors.newSingleThreadExecutor(
+				new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				Thread thread = new Thread(runnable, "Diagnostics writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns shared instance of FrameWatchdog, started.
+	 *
+	 * @return Shared instance of FrameWatchdog.
+	 */
+	protected static synchronized FrameWatchdog getInstance() {
+		if (instance == null) {
+			instance = new FrameWatchdog();
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Sets the longest acceptable frame time.
+	 *
+	 * @param nanoseconds
+	 *            Frame budget, in nanoseconds.
+	 */
+	public void setBudget(final long nanoseconds) {
+		this.budget = nanoseconds;
+	}
+
+	/**
+	 * Marks the start of a frame on the calling thread, which becomes the
+	 * watched thread.
+	 */
+	public void beginFrame() {
+		this.gameThread = Thread.currentThread();
+		long now = System.nanoTime();
+		Arrays.fill(this.phaseTimes, 0);
+		this.phaseStart = now;
+		this.currentPhase = Phase.UPDATE.ordinal();
+		this.frameNumber++;
+		this.frameStart = now;
+	}
+
+	/**
+	 * Marks the start of a new phase of the current frame.
+	 *
+	 * @param phase
+	 *            Phase starting.
+	 */
+	public void beginPhase(final Phase phase) {
+		long now = System.nanoTime();
+		this.phaseTimes[this.currentPhase] += now - this.phaseStart;
+		this.phaseStart = now;
+		this.currentPhase = phase.ordinal();
+	}
+
+	/**
+	 * Marks the end of the current frame. Until the next one starts, the loop
+	 * is considered idle and is not watched.
+	 */
+	public void endFrame() {
+		long now = System.nanoTime();
+		this.phaseTimes[this.currentPhase] += now - this.phaseStart;
+		for (int i = 0; i < this.phaseTimes.length; i++)
+			this.lastPhaseTimes.set(i, this.phaseTimes[i]);
+		this.frameStart = 0;
+	}
+
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(Math.max(this.budget / 2,
+						TimeUnit.MILLISECONDS.toNanos(1)));
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			long start = this.frameStart;
+			long frame = this.frameNumber;
+			if (start == 0 || frame == this.reportedFrame)
+				continue;
+			long elapsed = System.nanoTime() - start;
+			if (elapsed <= this.budget)
+				continue;
+
+			this.reportedFrame = frame;
+			long now = System.currentTimeMillis();
+			if (now - this.lastReport < REPORT_INTERVAL)
+				continue;
+			this.lastReport = now;
+			capture(frame, elapsed, now);
+		}
+	}
+
+	/**
+	 * Captures the state of the stalled frame and hands it to the writer.
+	 *
+	 * @param frame
+	 *            Number of the stalled frame.
+	 * @param elapsed
+	 *            Time spent on the frame so far, in nanoseconds.
+	 * @param time
+	 *            Moment of the capture.
+	 */
+	private void capture(final long frame, final long elapsed,
+			final long time) {
+		Thread thread = this.gameThread;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		ThreadInfo[] infos = threads.getThreadInfo(new long[] { thread
+				.getId() }, threads.isObjectMonitorUsageSupported(),
+				threads.isSynchronizerUsageSupported());
+		final ThreadInfo info = infos.length > 0 ? infos[0] : null;
+		final StackTraceElement[] stack = thread.getStackTrace();
+		final Phase phase = PHASES[this.currentPhase];
+
+		final long[] lastPhases = new long[PHASES.length];
+		for (int i = 0; i < lastPhases.length; i++)
+			lastPhases[i] = this.lastPhaseTimes.get(i);
+
+		long[] counts = new long[this.gcCounts.length];
+		long[] times = new long[this.gcTimes.length];
+		readCollectors(counts, times);
+		final StringBuilder collections = new StringBuilder();
+		List<GarbageCollectorMXBean> collectors = ManagementFactory
+				.getGarbageCollectorMXBeans();
+		for (int i = 0; i < counts.length && i < collectors.size(); i++)
+			collections.append("  ").append(collectors.get(i).getName())
+					.append(": ").append(counts[i] - this.gcCounts[i])
+					.append(" collections, ").append(times[i]
+							- this.gcTimes[i]).append(" ms since last report"
+							+ ", ").append(counts[i]).append(" total\n");
+		this.gcCounts = counts;
+		this.gcTimes = times;
+
+		this.logger.warning("Frame " + frame + " stalled for "
+				+ TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms in "
+				+ phase + ", writing diagnostics.");
+		this.reportWriter.execute(new Runnable() {
+			@Override
+			public void run() {
+				write(frame, elapsed, time, phase, lastPhases, info, stack,
+						collections.toString());
+			}
+		});
+	}
+
+	/**
+	 * Writes a stall report and deletes the oldest ones.
+	 *
+	 * @param frame
+	 *            Number of the stalled frame.
+	 * @param elapsed
+	 *            Time spent on the frame, in nanoseconds.
+	 * @param time
+	 *            Moment of the capture.
+	 * @param phase
+	 *            Phase the frame was stuck on.
+	 * @param lastPhases
+	 *            Phase durations of the previous frame.
+	 * @param info
+	 *            Game thread information, may be null.
+	 * @param stack
+	 *            Game thread stack.
+	 * @param collections
+	 *            Garbage collection activity.
+	 */
+	private void write(final long frame, final long elapsed, final long time,
+			final Phase phase, final long[] lastPhases, final ThreadInfo info,
+			final StackTraceElement[] stack, final String collections) {
+		File directory = new File(REPORT_DIRECTORY);
+		File file = new File(directory, "stall-"
+				+ new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(
+						time)) + ".txt");
+		PrintWriter writer = null;
+
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Cannot create " + directory);
+			writer = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(file), Charset.forName("UTF-8")));
+
+			writer.println("Frame " + frame + " over budget: "
+					+ TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms (budget "
+					+ TimeUnit.NANOSECONDS.toMillis(this.budget) + " ms)");
+			writer.println("Stuck in phase: " + phase);
+			writer.println();
+			writer.println("Previous frame phases:");
+			for (int i = 0; i < PHASES.length; i++)
+				writer.println(String.format("  %-10s %8.3f ms", PHASES[i],
+						lastPhases[i] / 1000000.0));
+			writer.println();
+			writer.println("Garbage collection:");
+			writer.print(collections);
+			writer.println();
+			writer.println("Game thread:");
+			if (info != null) {
+				writer.println("  state " + info.getThreadState()
+						+ (info.getLockName() != null ? " on "
+								+ info.getLockName() : "")
+						+ (info.getLockOwnerName() != null ? " owned by "
+								+ info.getLockOwnerName() : ""));
+				writer.println("  blocked " + info.getBlockedCount()
+						+ " times, waited " + info.getWaitedCount()
+						+ " times");
+			}
+			for (StackTraceElement element : stack)
+				writer.println("    at " + element);
+		} catch (IOException e) {
+			this.logger.warning("Couldn't write diagnostics: " + e);
+		} finally {
+			if (writer != null)
+				writer.close();
+		}
+
+		File[] reports = directory.listFiles();
+		if (reports != null && reports.length > MAX_REPORTS) {
+			Arrays.sort(reports);
+			for (int i = 0; i < reports.length - MAX_REPORTS; i++)
+				if (!reports[i].delete())
+					this.logger.warning("Couldn't delete " + reports[i]);
+		}
+	}
+
+	/**
+	 * Reads the collection counts and times of every collector.
+	 *
+	 * @param counts
+	 *            Array to store the counts on.
+	 * @param times
+	 *            Array to store the times on, in milliseconds.
+	 */
+	private static void readCollectors(final long[] counts,
+			final long[] times) {
+		List<GarbageCollectorMXBean> collectors = ManagementFactory
+				.getGarbageCollectorMXBeans();
+		for (int i = 0; i < counts.length && i < collectors.size(); i++) {
+			counts[i] = collectors.get(i).getCollectionCount();
+			times[i] = collectors.get(i).getCollectionTime();
+		}
+	}
+}
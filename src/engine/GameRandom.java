@@ -0,0 +1,78 @@
+package engine;
+
+/**
+ * Generates the random numbers of a game. Its whole state is a single
+ * value, so a saved game draws the same numbers once restored.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class GameRandom {
+
+	/** Increment of the state on each number, odd. */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Current state, any value is valid. */
+	private long state;
+
+	/**
+	 * Constructor, establishes the starting state.
+	 * 
+	 * @param seed
+	 *            Starting state.
+	 */
+	public GameRandom(final long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Returns the next 64 random bits, with the SplitMix64 mix.
+	 * 
+	 * @return Random value.
+	 */
+	public long nextLong() {
+		long z = this.state += GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns a random integer up to a bound.
+	 * 
+	 * @param bound
+	 *            Upper bound, exclusive, positive.
+	 * @return Random value between 0 and bound - 1.
+	 */
+	public int nextInt(final int bound) {
+		return (int) (((nextLong() >>> 33) * bound) >>> 31);
+	}
+
+	/**
+	 * Returns a random fraction.
+	 * 
+	 * @return Random value between 0, inclusive, and 1, exclusive.
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Getter for the state, to save it.
+	 * 
+	 * @return Current state.
+	 */
+	public long getState() {
+		return this.state;
+	}
+
+	/**
+	 * Setter for the state, to restore a saved one.
+	 * 
+	 * @param state
+	 *            State to continue from.
+	 */
+	public void setState(final long state) {
+		this.state = state;
+	}
+}
@@ -1,5 +1,7 @@
 package engine;
 
+import engine.DrawManager.SpriteType;
+
 /**
  * Implements an object that stores a single game's difficulty settings.
  * 
@@ -8,14 +10,37 @@ package engine;
  */
 public class GameSettings {
 
+	/** Proportion of C-type ships on the default formation. */
+	private static final double PROPORTION_C = 0.2;
+	/** Proportion of B-type ships on the default formation. */
+	private static final double PROPORTION_B = 0.4;
+	/** Default difference between shooting times, in percent. */
+	private static final int SHOOTING_VARIANCE = 20;
+	/** Default speed of the bullets shot by the enemies. */
+	private static final int BULLET_SPEED = 4;
+	/** Default minimum time between bonus ship's appearances. */
+	private static final int BONUS_SHIP_INTERVAL = 20000;
+	/** Default maximum variance between bonus ship appearances. */
+	private static final int BONUS_SHIP_VARIANCE = 10000;
+
+	/** Enemy type of each cell, by column and row, null where empty. */
+	private SpriteType[][] formation;
 	/** Width of the level's enemy formation. */
 	private int formationWidth;
 	/** Height of the level's enemy formation. */
 	private int formationHeight;
 	/** Speed of the enemies, function of the remaining number. */
 	private int baseSpeed;
-	/** Frequency of enemy shootings, +/- 30%. */
+	/** Frequency of enemy shootings, +/- shootingVariance. */
 	private int shootingFrecuency;
+	/** Difference between shooting times, in percent. */
+	private int shootingVariance;
+	/** Speed of the bullets shot by the enemies. */
+	private int bulletSpeed;
+	/** Minimum time between bonus ship's appearances. */
+	private int bonusShipInterval;
+	/** Maximum variance in the time between bonus ship's appearances. */
+	private int bonusShipVariance;
 
 	/**
 	 * Constructor.
@@ -27,14 +52,74 @@ public class GameSettings {
 	 * @param baseSpeed
 	 *            Speed of the enemies.
 	 * @param shootingFrecuency
-	 *            Frecuency of enemy shootings, +/- 30%.
+	 *            Frecuency of enemy shootings, +/- 20%.
 	 */
 	public GameSettings(final int formationWidth, final int formationHeight,
 			final int baseSpeed, final int shootingFrecuency) {
-		this.formationWidth = formationWidth;
-		this.formationHeight = formationHeight;
+		this(defaultFormation(formationWidth, formationHeight), baseSpeed,
+				shootingFrecuency, SHOOTING_VARIANCE, BULLET_SPEED,
+				BONUS_SHIP_INTERVAL, BONUS_SHIP_VARIANCE);
+	}
+
+	/**
+	 * Constructor, with every setting of a level.
+	 * 
+	 * @param formation
+	 *            Enemy type of each cell, by column and row, null where
+	 *            empty. Not copied.
+	 * @param baseSpeed
+	 *            Speed of the enemies.
+	 * @param shootingFrecuency
+	 *            Frecuency of enemy shootings.
+	 * @param shootingVariance
+	 *            Difference between shooting times, in percent.
+	 * @param bulletSpeed
+	 *            Speed of the bullets shot by the enemies.
+	 * @param bonusShipInterval
+	 *            Minimum time between bonus ship's appearances.
+	 * @param bonusShipVariance
+	 *            Maximum variance in the time between bonus ship's
+	 *            appearances.
+	 */
+	public GameSettings(final SpriteType[][] formation, final int baseSpeed,
+			final int shootingFrecuency, final int shootingVariance,
+			final int bulletSpeed, final int bonusShipInterval,
+			final int bonusShipVariance) {
+		this.formation = formation;
+		this.formationWidth = formation.length;
+		this.formationHeight = formation.length == 0 ? 0
+				: formation[0].length;
 		this.baseSpeed = baseSpeed;
 		this.shootingFrecuency = shootingFrecuency;
+		this.shootingVariance = shootingVariance;
+		this.bulletSpeed = bulletSpeed;
+		this.bonusShipInterval = bonusShipInterval;
+		this.bonusShipVariance = bonusShipVariance;
+	}
+
+	/**
+	 * Builds a full formation, with C-type ships on top, B-type ships in the
+	 * middle and A-type ships at the bottom.
+	 * 
+	 * @param width
+	 *            Ships per row.
+	 * @param height
+	 *            Ships per column.
+	 * @return Enemy type of each cell, by column and row.
+	 */
+	public static SpriteType[][] defaultFormation(final int width,
+			final int height) {
+		SpriteType[][] formation = new SpriteType[width][height];
+		for (int i = 0; i < width; i++)
+			for (int j = 0; j < height; j++) {
+				if (j / (float) height < PROPORTION_C)
+					formation[i][j] = SpriteType.EnemyShipC1;
+				else if (j / (float) height < PROPORTION_B + PROPORTION_C)
+					formation[i][j] = SpriteType.EnemyShipB1;
+				else
+					formation[i][j] = SpriteType.EnemyShipA1;
+			}
+		return formation;
 	}
 
 	/**
@@ -51,6 +136,19 @@ public class GameSettings {
 		return formationHeight;
 	}
 
+	/**
+	 * Returns the enemy placed on a cell of the formation.
+	 * 
+	 * @param column
+	 *            Column of the cell, from the left.
+	 * @param row
+	 *            Row of the cell, from the top.
+	 * @return Sprite of the enemy, null if the cell is empty.
+	 */
+	public final SpriteType getEnemyType(final int column, final int row) {
+		return formation[column][row];
+	}
+
 	/**
 	 * @return the baseSpeed
 	 */
@@ -65,4 +163,32 @@ public class GameSettings {
 		return shootingFrecuency;
 	}
 
+	/**
+	 * @return the shootingVariance, in percent
+	 */
+	public final int getShootingVariance() {
+		return shootingVariance;
+	}
+
+	/**
+	 * @return the bulletSpeed
+	 */
+	public final int getBulletSpeed() {
+		return bulletSpeed;
+	}
+
+	/**
+	 * @return the bonusShipInterval
+	 */
+	public final int getBonusShipInterval() {
+		return bonusShipInterval;
+	}
+
+	/**
+	 * @return the bonusShipVariance
+	 */
+	public final int getBonusShipVariance() {
+		return bonusShipVariance;
+	}
+
 }
@@ -1,5 +1,7 @@
 package engine;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implements an object that stores the state of the game between levels.
  * 
@@ -78,4 +80,30 @@ public class GameState {
 		return shipsDestroyed;
 	}
 
+	/**
+	 * Writes the state to a save.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	public final void save(final ByteBuffer buffer) {
+		buffer.putInt(this.level);
+		buffer.putInt(this.score);
+		buffer.putInt(this.livesRemaining);
+		buffer.putInt(this.bulletsShot);
+		buffer.putInt(this.shipsDestroyed);
+	}
+
+	/**
+	 * Reads a state written by {@link #save(ByteBuffer)}.
+	 * 
+	 * @param buffer
+	 *            Buffer to read from.
+	 * @return Saved state.
+	 */
+	public static GameState restore(final ByteBuffer buffer) {
+		return new GameState(buffer.getInt(), buffer.getInt(),
+				buffer.getInt(), buffer.getInt(), buffer.getInt());
+	}
+
 }
@@ -0,0 +1,20 @@
+package engine;
+
+import java.util.List;
+
+/**
+ * Receives changes on the high score list.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface HighScoreListener {
+
+	/**
+	 * Called after a score enters the high score list.
+	 * 
+	 * @param highScores
+	 *            New high scores, sorted and unmodifiable.
+	 */
+	void highScoresChanged(List<Score> highScores);
+}
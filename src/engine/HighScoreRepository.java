@@ -0,0 +1,215 @@
+package engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the high scores in memory, sorted, so screens do not read them from
+ * disk every time they are shown. Changes are saved through the file manager
+ * and announced to the registered listeners. Scores matching one verified by
+ * playing its replay back are marked as verified; the rest, including the
+ * ones set this session, are not until the verifier accepts them.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class HighScoreRepository {
+
+	/** Max number of high scores. */
+	private static final int MAX_SCORES = 7;
+
+	/** Singleton instance of the class. */
+	private static HighScoreRepository instance;
+
+	/** Application logger. */
+	private Logger logger;
+	/** High scores, best first. */
+	private List<Score> highScores;
+	/** Unmodifiable copy handed to readers, null after a change. */
+	private List<Score> view;
+	/** If the scores were read from disk. */
+	private boolean loaded;
+	/** Objects notified of changes. */
+	private List<HighScoreListener> listeners;
+
+	/**
+	 * Private constructor.
+	 */
+	private HighScoreRepository() {
+		this.logger = Core.getLogger();
+		this.highScores = new ArrayList<Score>(MAX_SCORES + 1);
+		this.listeners = new CopyOnWriteArrayList<HighScoreListener>();
+	}
+
+	/**
+	 * Returns shared instance of HighScoreRepository.
+	 * 
+	 * @return Shared instance of HighScoreRepository.
+	 */
+	protected static synchronized HighScoreRepository getInstance() {
+		if (instance == null)
+			instance = new HighScoreRepository();
+		return instance;
+	}
+
+	/**
+	 * Reads the high scores from disk, if they were not read yet.
+	 * 
+	 * @return True if the scores are available.
+	 */
+	public synchronized boolean load() {
+		if (this.loaded)
+			return true;
+
+		try {
+			List<Score> scores = Core.getFileManager().loadHighScores();
+			List<Score> verified = new ArrayList<Score>();
+			try {
+				verified.addAll(Core.getFileManager().loadVerifiedScores());
+			} catch (NumberFormatException | IOException e) {
+				this.logger.warning("Couldn't load verified scores, none is"
+						+ " shown as verified.");
+			}
+			this.highScores.clear();
+			for (Score score : scores)
+				insert(new Score(score.getName(), score.getScore(),
+						takeMatch(verified, score)));
+			this.view = null;
+			this.loaded = true;
+		} catch (NumberFormatException | IOException e) {
+			this.logger.warning("Couldn't load high scores!");
+		}
+		return this.loaded;
+	}
+
+	/**
+	 * Returns the high scores, best first. The list does not change when new
+	 * scores are added, so it can be drawn from another thread.
+	 * 
+	 * @return Unmodifiable list of high scores, empty if they couldn't be
+	 *         loaded.
+	 */
+	public synchronized List<Score> getHighScores() {
+		load();
+		if (this.view == null)
+			this.view = Collections.unmodifiableList(new ArrayList<Score>(
+					this.highScores));
+		return this.view;
+	}
+
+	/**
+	 * Checks if a score would enter the high score list.
+	 * 
+	 * @param score
+	 *            Score points.
+	 * @return True if it is a new high score.
+	 */
+	public synchronized boolean isHighScore(final int score) {
+		load();
+		return this.highScores.size() < MAX_SCORES
+				|| this.highScores.get(this.highScores.size() - 1)
+						.getScore() < score;
+	}
+
+	/**
+	 * Adds a score to the list if it is good enough, saves the list and
+	 * notifies the listeners.
+	 * 
+	 * @param score
+	 *            New score.
+	 * @return True if the score entered the list.
+	 */
+	public boolean add(final Score score) {
+		List<Score> changed;
+		synchronized (this) {
+			if (!load()) {
+				this.logger.warning("Not saving the score, high scores "
+						+ "weren't loaded.");
+				return false;
+			}
+			if (!isHighScore(score.getScore()))
+				return false;
+
+			insert(score);
+			if (this.highScores.size() > MAX_SCORES)
+				this.highScores.remove(this.highScores.size() - 1);
+			this.view = null;
+
+			try {
+				Core.getFileManager().saveHighScores(this.highScores);
+			} catch (IOException e) {
+				this.logger.warning("Couldn't save high scores!");
+			}
+			changed = getHighScores();
+		}
+
+		for (HighScoreListener listener : this.listeners)
+			listener.highScoresChanged(changed);
+		return true;
+	}
+
+	/**
+	 * Registers an object to be notified of changes.
+	 * 
+	 * @param listener
+	 *            Listener to add.
+	 */
+	public void addListener(final HighScoreListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Stops notifying an object of changes.
+	 * 
+	 * @param listener
+	 *            Listener to remove.
+	 */
+	public void removeListener(final HighScoreListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Takes a score with the same name and value out of a list, so each
+	 * verified score marks one high score only.
+	 * 
+	 * @param scores
+	 *            Scores to look in.
+	 * @param score
+	 *            Score to find.
+	 * @return True if the score was found.
+	 */
+	private static boolean takeMatch(final List<Score> scores,
+			final Score score) {
+		for (int i = 0; i < scores.size(); i++)
+			if (scores.get(i).getScore() == score.getScore()
+					&& scores.get(i).getName().equals(score.getName())) {
+				scores.remove(i);
+				return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Inserts a score in order, after the scores equal to it, with a binary
+	 * search.
+	 * 
+	 * @param score
+	 *            Score to insert.
+	 */
+	private void insert(final Score score) {
+		int low = 0;
+		int high = this.highScores.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.highScores.get(middle).compareTo(score) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		this.highScores.add(low, score);
+	}
+}
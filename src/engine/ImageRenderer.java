@@ -0,0 +1,785 @@
+package engine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import screen.Screen;
+import engine.DrawManager.SpriteType;
+import entity.Entity;
+import entity.Ship;
+
+/**
+ * Draws screens on an in-memory image. Does not need a display, subclasses
+ * decide where the finished image is shown.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public class ImageRenderer implements Renderer {
+
+	/** Size in pixels of each sprite point. */
+	private static final int SPRITE_SCALE = 2;
+	/** Size in pixels of each particle. */
+	private static final int PARTICLE_SIZE = 2;
+
+	/** Sprite types mapped to their images, shared by all renderers. */
+	private static Map<SpriteType, boolean[][]> spriteMap;
+	/** Normal sized font. */
+	private static Font fontRegular;
+	/** Big sized font. */
+	private static Font fontBig;
+
+	/** Application logger. */
+	protected Logger logger;
+	/** Buffer Graphics. */
+	private Graphics backBufferGraphics;
+	/** Buffer image. */
+	private BufferedImage backBuffer;
+	/** Normal sized font properties. */
+	private FontMetrics fontRegularMetrics;
+	/** Big sized font properties. */
+	private FontMetrics fontBigMetrics;
+	/** Backend used to draw on the back buffer. */
+	private Backend backend = Backend.JAVA2D;
+	/** Direct access to the back buffer pixels, for the raster backend. */
+	private RasterCanvas rasterCanvas;
+	/** Direct access to the back buffer pixels, made with the buffer. */
+	private RasterCanvas bufferCanvas;
+	/** Images of the bitmaps drawn, by slot. */
+	private CachedBitmap[] bitmaps = new CachedBitmap[0];
+	/** Sprite types mapped to their expanded images, one per color used. */
+	private Map<SpriteType, RasterSprite[]> rasterSpriteMap;
+
+	/** Backends available to draw on the back buffer. */
+	public static enum Backend {
+		/** Every primitive goes through Java2D. */
+		JAVA2D,
+		/**
+		 * Sprites and solid shapes are copied into the buffer pixels, text
+		 * still goes through Java2D.
+		 */
+		RASTER
+	};
+
+	/**
+	 * Constructor, loads the shared resources if they were not loaded yet.
+	 */
+	public ImageRenderer() {
+		this.logger = Core.getLogger();
+		loadResources(this.logger);
+
+		this.rasterSpriteMap = new EnumMap<SpriteType, RasterSprite[]>(
+				SpriteType.class);
+		for (SpriteType spriteType : SpriteType.values())
+			this.rasterSpriteMap.put(spriteType, new RasterSprite[0]);
+	}
+
+	/**
+	 * Loads sprites and fonts, once for every renderer.
+	 * 
+	 * @param logger
+	 *            Logger to report the loading on.
+	 */
+	private static synchronized void loadResources(final Logger logger) {
+		if (spriteMap != null)
+			return;
+
+		FileManager fileManager = Core.getFileManager();
+		logger.info("Started loading resources.");
+
+		try {
+			Map<SpriteType, boolean[][]> sprites =
+					new LinkedHashMap<SpriteType, boolean[][]>();
+
+			sprites.put(SpriteType.Ship, new boolean[13][8]);
+			sprites.put(SpriteType.ShipDestroyed, new boolean[13][8]);
+			sprites.put(SpriteType.Bullet, new boolean[3][5]);
+			sprites.put(SpriteType.EnemyBullet, new boolean[3][5]);
+			sprites.put(SpriteType.EnemyShipA1, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipA2, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipB1, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipB2, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipC1, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipC2, new boolean[12][8]);
+			sprites.put(SpriteType.EnemyShipSpecial, new boolean[16][7]);
+			sprites.put(SpriteType.Explosion, new boolean[13][7]);
+
+			fileManager.loadSprite(sprites);
+			spriteMap = sprites;
+			logger.info("Finished loading the sprites.");
+
+			// Font loading.
+			fontRegular = fileManager.loadFont(14f);
+			fontBig = fileManager.loadFont(24f);
+			logger.info("Finished loading the fonts.");
+
+		} catch (IOException e) {
+			logger.warning("Loading failed.");
+		} catch (FontFormatException e) {
+			logger.warning("Font formating failed.");
+		}
+	}
+
+	/**
+	 * Sets the backend used to draw on the back buffer.
+	 * 
+	 * @param newBackend
+	 *            Backend to use from the next frame on.
+	 */
+	public void setBackend(final Backend newBackend) {
+		this.backend = newBackend;
+		logger.info("Using " + backend + " rendering backend.");
+	}
+
+	/**
+	 * First part of the drawing process. Initialices buffers, draws the
+	 * background and prepares the images.
+	 * 
+	 * @param screen
+	 *            Screen to draw in.
+	 */
+	@Override
+	public void initDrawing(final Screen screen) {
+		// The buffer is reused, as its pixels are fully cleared.
+		if (backBuffer == null
+				|| backBuffer.getWidth() != screen.getWidth()
+				|| backBuffer.getHeight() != screen.getHeight()) {
+			backBuffer = new BufferedImage(screen.getWidth(),
+					screen.getHeight(), BufferedImage.TYPE_INT_RGB);
+			bufferCanvas = new RasterCanvas(backBuffer);
+			if (backBufferGraphics != null)
+				backBufferGraphics.dispose();
+			backBufferGraphics = backBuffer.getGraphics();
+		}
+		if (backend == Backend.RASTER) {
+			rasterCanvas = bufferCanvas;
+			rasterCanvas.fill(Color.BLACK.getRGB());
+		} else {
+			rasterCanvas = null;
+			backBufferGraphics.setColor(Color.BLACK);
+			backBufferGraphics.fillRect(0, 0, screen.getWidth(),
+					screen.getHeight());
+		}
+
+		fontRegularMetrics = backBufferGraphics.getFontMetrics(fontRegular);
+		fontBigMetrics = backBufferGraphics.getFontMetrics(fontBig);
+
+		// drawBorders(screen);
+		// drawGrid(screen);
+	}
+
+	/**
+	 * Finishes the drawing process. The back buffer is left as is, subclasses
+	 * show it wherever they present their images.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	@Override
+	public void completeDrawing(final Screen screen) {
+	}
+
+	/**
+	 * Getter for the image being drawn on.
+	 * 
+	 * @return Back buffer, null until the first drawing starts.
+	 */
+	protected final BufferedImage getBackBuffer() {
+		return this.backBuffer;
+	}
+
+	/**
+	 * Draws an entity, using the apropiate image.
+	 * 
+	 * @param entity
+	 *            Entity to be drawn.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	@Override
+	public void drawEntity(final Entity entity, final int positionX,
+			final int positionY) {
+		drawSprite(entity.getSpriteType(), entity.getColor(), positionX,
+				positionY);
+	}
+
+	/**
+	 * Draws a sprite in a given color.
+	 * 
+	 * @param spriteType
+	 *            Sprite to draw.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	@Override
+	public void drawSprite(final SpriteType spriteType, final Color color,
+			final int positionX, final int positionY) {
+		if (rasterCanvas != null) {
+			rasterCanvas.blit(getRasterSprite(spriteType, color.getRGB()),
+					positionX, positionY);
+			return;
+		}
+
+		boolean[][] image = spriteMap.get(spriteType);
+
+		backBufferGraphics.setColor(color);
+		for (int i = 0; i < image.length; i++)
+			for (int j = 0; j < image[i].length; j++)
+				if (image[i][j])
+					backBufferGraphics.drawRect(positionX + i * 2, positionY
+							+ j * 2, 1, 1);
+	}
+
+	/**
+	 * Draws a batch of particles straight on the back buffer pixels, on
+	 * both backends.
+	 * 
+	 * @param positionsX
+	 *            Left side of each particle.
+	 * @param positionsY
+	 *            Upper side of each particle.
+	 * @param colors
+	 *            Color of each particle, as RGB.
+	 * @param count
+	 *            Number of particles, from the start of the arrays.
+	 */
+	@Override
+	public void drawParticles(final int[] positionsX,
+			final int[] positionsY, final int[] colors, final int count) {
+		bufferCanvas.fillSquares(positionsX, positionsY, colors, count,
+				PARTICLE_SIZE);
+	}
+
+	/**
+	 * Draws a bitmap of scaled points from a cached image. Only the rows that
+	 * changed since the last frame are redrawn on the image.
+	 * 
+	 * @param slot
+	 *            Number identifying the bitmap between frames.
+	 * @param rows
+	 *            Points of each row, bit i is column i from the left.
+	 * @param height
+	 *            Number of rows.
+	 * @param color
+	 *            Color of the points.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	@Override
+	public void drawBitmap(final int slot, final long[] rows,
+			final int height, final Color color, final int positionX,
+			final int positionY) {
+		if (slot >= bitmaps.length) {
+			CachedBitmap[] grown = new CachedBitmap[slot + 1];
+			System.arraycopy(bitmaps, 0, grown, 0, bitmaps.length);
+			bitmaps = grown;
+		}
+		if (bitmaps[slot] == null || bitmaps[slot].rows.length != height)
+			bitmaps[slot] = new CachedBitmap(height);
+
+		CachedBitmap bitmap = bitmaps[slot];
+		bitmap.update(rows, color.getRGB());
+		backBufferGraphics.drawImage(bitmap.image, positionX, positionY,
+				null);
+	}
+
+	/**
+	 * Returns the expanded image of a sprite in a given color, expanding it
+	 * the first time the pair is requested.
+	 * 
+	 * @param spriteType
+	 *            Sprite to expand.
+	 * @param rgb
+	 *            Color of the sprite, as ARGB.
+	 * @return Expanded sprite.
+	 */
+	private RasterSprite getRasterSprite(final SpriteType spriteType,
+			final int rgb) {
+		RasterSprite[] expanded = this.rasterSpriteMap.get(spriteType);
+		// Only a handful of colors are used per sprite.
+		for (RasterSprite sprite : expanded)
+			if (sprite.getRgb() == rgb)
+				return sprite;
+
+		RasterSprite sprite = new RasterSprite(spriteMap.get(spriteType),
+				SPRITE_SCALE, rgb);
+		RasterSprite[] grown = new RasterSprite[expanded.length + 1];
+		System.arraycopy(expanded, 0, grown, 0, expanded.length);
+		grown[expanded.length] = sprite;
+		this.rasterSpriteMap.put(spriteType, grown);
+		return sprite;
+	}
+
+	/**
+	 * For debugging purpouses, draws the canvas borders.
+	 * 
+	 * @param screen
+	 *            Screen to draw in.
+	 */
+	@SuppressWarnings("unused")
+	private void drawBorders(final Screen screen) {
+		backBufferGraphics.setColor(Color.GREEN);
+		backBufferGraphics.drawLine(0, 0, screen.getWidth() - 1, 0);
+		backBufferGraphics.drawLine(0, 0, 0, screen.getHeight() - 1);
+		backBufferGraphics.drawLine(screen.getWidth() - 1, 0,
+				screen.getWidth() - 1, screen.getHeight() - 1);
+		backBufferGraphics.drawLine(0, screen.getHeight() - 1,
+				screen.getWidth() - 1, screen.getHeight() - 1);
+	}
+
+	/**
+	 * For debugging purpouses, draws a grid over the canvas.
+	 * 
+	 * @param screen
+	 *            Screen to draw in.
+	 */
+	@SuppressWarnings("unused")
+	private void drawGrid(final Screen screen) {
+		backBufferGraphics.setColor(Color.DARK_GRAY);
+		for (int i = 0; i < screen.getHeight() - 1; i += 2)
+			backBufferGraphics.drawLine(0, i, screen.getWidth() - 1, i);
+		for (int j = 0; j < screen.getWidth() - 1; j += 2)
+			backBufferGraphics.drawLine(j, 0, j, screen.getHeight() - 1);
+	}
+
+	/**
+	 * Draws current score on screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param score
+	 *            Current score.
+	 */
+	@Override
+	public void drawScore(final Screen screen, final int score) {
+		backBufferGraphics.setFont(fontRegular);
+		backBufferGraphics.setColor(Color.WHITE);
+		String scoreString = String.format("%04d", score);
+		backBufferGraphics.drawString(scoreString, screen.getWidth() - 60, 25);
+	}
+
+	/**
+	 * Draws number of remaining lives on screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param lives
+	 *            Current lives.
+	 */
+	@Override
+	public void drawLives(final Screen screen, final int lives) {
+		backBufferGraphics.setFont(fontRegular);
+		backBufferGraphics.setColor(Color.WHITE);
+		backBufferGraphics.drawString(Integer.toString(lives), 20, 25);
+		Ship dummyShip = new Ship(0, 0);
+		for (int i = 0; i < lives; i++)
+			drawEntity(dummyShip, 40 + 35 * i, 10);
+	}
+
+	/**
+	 * Draws a thick line from side to side of the screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param positionY
+	 *            Y coordinate of the line.
+	 */
+	@Override
+	public void drawHorizontalLine(final Screen screen, final int positionY) {
+		if (rasterCanvas != null) {
+			rasterCanvas.fillRect(0, positionY, screen.getWidth() + 1, 2,
+					Color.GREEN.getRGB());
+			return;
+		}
+
+		backBufferGraphics.setColor(Color.GREEN);
+		backBufferGraphics.drawLine(0, positionY, screen.getWidth(), positionY);
+		backBufferGraphics.drawLine(0, positionY + 1, screen.getWidth(),
+				positionY + 1);
+	}
+
+	/**
+	 * Draws game title.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	@Override
+	public void drawTitle(final Screen screen) {
+		String titleString = "Invaders";
+		String instructionsString =
+				"select with w+s / arrows, confirm with space";
+
+		backBufferGraphics.setColor(Color.GRAY);
+		drawCenteredRegularString(screen, instructionsString,
+				screen.getHeight() / 2);
+
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredBigString(screen, titleString, screen.getHeight() / 3);
+	}
+
+	/**
+	 * Draws main menu.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param option
+	 *            Option selected.
+	 */
+	@Override
+	public void drawMenu(final Screen screen, final int option) {
+		String playString = "Play";
+		String highScoresString = "High scores";
+		String exitString = "exit";
+
+		if (option == 2)
+			backBufferGraphics.setColor(Color.GREEN);
+		else
+			backBufferGraphics.setColor(Color.WHITE);
+		drawCenteredRegularString(screen, playString,
+				screen.getHeight() / 3 * 2);
+		if (option == 3)
+			backBufferGraphics.setColor(Color.GREEN);
+		else
+			backBufferGraphics.setColor(Color.WHITE);
+		drawCenteredRegularString(screen, highScoresString, screen.getHeight()
+				/ 3 * 2 + fontRegularMetrics.getHeight() * 2);
+		if (option == 0)
+			backBufferGraphics.setColor(Color.GREEN);
+		else
+			backBufferGraphics.setColor(Color.WHITE);
+		drawCenteredRegularString(screen, exitString, screen.getHeight() / 3
+				* 2 + fontRegularMetrics.getHeight() * 4);
+	}
+
+	/**
+	 * Draws game results.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param score
+	 *            Score obtained.
+	 * @param livesRemaining
+	 *            Lives remaining when finished.
+	 * @param shipsDestroyed
+	 *            Total ships destroyed.
+	 * @param accuracy
+	 *            Total accuracy.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	@Override
+	public void drawResults(final Screen screen, final int score,
+			final int livesRemaining, final int shipsDestroyed,
+			final float accuracy, final boolean isNewRecord) {
+		String scoreString = String.format("score %04d", score);
+		String livesRemainingString = "lives remaining " + livesRemaining;
+		String shipsDestroyedString = "enemies destroyed " + shipsDestroyed;
+		String accuracyString = String
+				.format("accuracy %.2f%%", accuracy * 100);
+
+		int height = isNewRecord ? 4 : 2;
+
+		backBufferGraphics.setColor(Color.WHITE);
+		drawCenteredRegularString(screen, scoreString, screen.getHeight()
+				/ height);
+		drawCenteredRegularString(screen, livesRemainingString,
+				screen.getHeight() / height + fontRegularMetrics.getHeight()
+						* 2);
+		drawCenteredRegularString(screen, shipsDestroyedString,
+				screen.getHeight() / height + fontRegularMetrics.getHeight()
+						* 4);
+		drawCenteredRegularString(screen, accuracyString, screen.getHeight()
+				/ height + fontRegularMetrics.getHeight() * 6);
+	}
+
+	/**
+	 * Draws interactive characters for name input.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param name
+	 *            Current name selected.
+	 * @param nameCharSelected
+	 *            Current character selected for modification.
+	 */
+	@Override
+	public void drawNameInput(final Screen screen, final char[] name,
+			final int nameCharSelected) {
+		String newRecordString = "New Record!";
+		String introduceNameString = "Introduce name:";
+
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredRegularString(screen, newRecordString, screen.getHeight()
+				/ 4 + fontRegularMetrics.getHeight() * 10);
+		backBufferGraphics.setColor(Color.WHITE);
+		drawCenteredRegularString(screen, introduceNameString,
+				screen.getHeight() / 4 + fontRegularMetrics.getHeight() * 12);
+
+		// 3 letters name.
+		int positionX = screen.getWidth()
+				/ 2
+				- (fontRegularMetrics.getWidths()[name[0]]
+						+ fontRegularMetrics.getWidths()[name[1]]
+						+ fontRegularMetrics.getWidths()[name[2]]
+								+ fontRegularMetrics.getWidths()[' ']) / 2;
+
+		for (int i = 0; i < 3; i++) {
+			if (i == nameCharSelected)
+				backBufferGraphics.setColor(Color.GREEN);
+			else
+				backBufferGraphics.setColor(Color.WHITE);
+
+			positionX += fontRegularMetrics.getWidths()[name[i]] / 2;
+			positionX = i == 0 ? positionX
+					: positionX
+							+ (fontRegularMetrics.getWidths()[name[i - 1]]
+									+ fontRegularMetrics.getWidths()[' ']) / 2;
+
+			backBufferGraphics.drawString(Character.toString(name[i]),
+					positionX,
+					screen.getHeight() / 4 + fontRegularMetrics.getHeight()
+							* 14);
+		}
+	}
+
+	/**
+	 * Draws basic content of game over screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param acceptsInput
+	 *            If the screen accepts input.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	@Override
+	public void drawGameOver(final Screen screen, final boolean acceptsInput,
+			final boolean isNewRecord) {
+		String gameOverString = "Game Over";
+		String continueOrExitString =
+				"Press Space to play again, Escape to exit";
+
+		int height = isNewRecord ? 4 : 2;
+
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredBigString(screen, gameOverString, screen.getHeight()
+				/ height - fontBigMetrics.getHeight() * 2);
+
+		if (acceptsInput)
+			backBufferGraphics.setColor(Color.GREEN);
+		else
+			backBufferGraphics.setColor(Color.GRAY);
+		drawCenteredRegularString(screen, continueOrExitString,
+				screen.getHeight() / 2 + fontRegularMetrics.getHeight() * 10);
+	}
+
+	/**
+	 * Draws high score screen title and instructions.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	@Override
+	public void drawHighScoreMenu(final Screen screen) {
+		String highScoreString = "High Scores";
+		String instructionsString = "Press Space to return";
+		String verifiedString = "Grey scores aren't verified";
+
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredBigString(screen, highScoreString, screen.getHeight() / 8);
+
+		backBufferGraphics.setColor(Color.GRAY);
+		drawCenteredRegularString(screen, instructionsString,
+				screen.getHeight() / 5);
+		drawCenteredRegularString(screen, verifiedString,
+				screen.getHeight() * 7 / 8);
+	}
+
+	/**
+	 * Draws high scores.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param highScores
+	 *            List of high scores.
+	 */
+	@Override
+	public void drawHighScores(final Screen screen,
+			final List<Score> highScores) {
+		int i = 0;
+		String scoreString = "";
+
+		for (Score score : highScores) {
+			// Scores no replay backs up yet are dimmed.
+			backBufferGraphics.setColor(score.isVerified() ? Color.WHITE
+					: Color.GRAY);
+			scoreString = String.format("%s        %04d", score.getName(),
+					score.getScore());
+			drawCenteredRegularString(screen, scoreString, screen.getHeight()
+					/ 4 + fontRegularMetrics.getHeight() * (i + 1) * 2);
+			i++;
+		}
+	}
+
+	/**
+	 * Draws a centered string on regular font.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param string
+	 *            String to draw.
+	 * @param height
+	 *            Height of the drawing.
+	 */
+	@Override
+	public void drawCenteredRegularString(final Screen screen,
+			final String string, final int height) {
+		backBufferGraphics.setFont(fontRegular);
+		backBufferGraphics.drawString(string, screen.getWidth() / 2
+				- fontRegularMetrics.stringWidth(string) / 2, height);
+	}
+
+	/**
+	 * Draws a centered string on big font.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param string
+	 *            String to draw.
+	 * @param height
+	 *            Height of the drawing.
+	 */
+	@Override
+	public void drawCenteredBigString(final Screen screen, final String string,
+			final int height) {
+		backBufferGraphics.setFont(fontBig);
+		backBufferGraphics.drawString(string, screen.getWidth() / 2
+				- fontBigMetrics.stringWidth(string) / 2, height);
+	}
+
+	/**
+	 * Countdown to game start.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param level
+	 *            Game difficulty level.
+	 * @param number
+	 *            Countdown number.
+	 * @param bonusLife
+	 *            Checks if a bonus life is received.
+	 */
+	@Override
+	public void drawCountDown(final Screen screen, final int level,
+			final int number, final boolean bonusLife) {
+		int rectWidth = screen.getWidth();
+		int rectHeight = screen.getHeight() / 6;
+		if (rasterCanvas != null) {
+			rasterCanvas.fillRect(0, screen.getHeight() / 2 - rectHeight / 2,
+					rectWidth, rectHeight, Color.BLACK.getRGB());
+		} else {
+			backBufferGraphics.setColor(Color.BLACK);
+			backBufferGraphics.fillRect(0, screen.getHeight() / 2
+					- rectHeight / 2, rectWidth, rectHeight);
+		}
+		backBufferGraphics.setColor(Color.GREEN);
+		if (number >= 4)
+			if (!bonusLife) {
+				drawCenteredBigString(screen, "Level " + level,
+						screen.getHeight() / 2
+						+ fontBigMetrics.getHeight() / 3);
+			} else {
+				drawCenteredBigString(screen, "Level " + level
+						+ " - Bonus life!",
+						screen.getHeight() / 2
+						+ fontBigMetrics.getHeight() / 3);
+			}
+		else if (number != 0)
+			drawCenteredBigString(screen, Integer.toString(number),
+					screen.getHeight() / 2 + fontBigMetrics.getHeight() / 3);
+		else
+			drawCenteredBigString(screen, "GO!", screen.getHeight() / 2
+					+ fontBigMetrics.getHeight() / 3);
+	}
+
+	/**
+	 * Keeps the image of a bitmap and the rows it was drawn from.
+	 */
+	private static final class CachedBitmap {
+		/** Widest row, in points. */
+		private static final int COLUMNS = Long.SIZE;
+
+		/** Image of the bitmap, transparent where there are no points. */
+		private final BufferedImage image;
+		/** Pixels of the image. */
+		private final int[] pixels;
+		/** Rows the image shows. */
+		private final long[] rows;
+		/** Color the image is drawn in. */
+		private int rgb;
+
+		/**
+		 * Constructor, creates an empty image.
+		 * 
+		 * @param height
+		 *            Number of rows.
+		 */
+		private CachedBitmap(final int height) {
+			this.image = new BufferedImage(COLUMNS * SPRITE_SCALE, height
+					* SPRITE_SCALE, BufferedImage.TYPE_INT_ARGB);
+			this.pixels = ((DataBufferInt) this.image.getRaster()
+					.getDataBuffer()).getData();
+			this.rows = new long[height];
+		}
+
+		/**
+		 * Redraws the rows that changed.
+		 * 
+		 * @param newRows
+		 *            Rows to show.
+		 * @param newRgb
+		 *            Color to draw in.
+		 */
+		private void update(final long[] newRows, final int newRgb) {
+			boolean recolor = newRgb != this.rgb;
+			this.rgb = newRgb;
+			int width = COLUMNS * SPRITE_SCALE;
+			for (int row = 0; row < this.rows.length; row++) {
+				if (!recolor && newRows[row] == this.rows[row])
+					continue;
+				this.rows[row] = newRows[row];
+				int start = row * SPRITE_SCALE * width;
+				for (int column = 0; column < COLUMNS; column++) {
+					int argb = (newRows[row] >>> column & 1) != 0 ? newRgb
+							| 0xFF000000 : 0;
+					for (int x = 0; x < SPRITE_SCALE; x++)
+						this.pixels[start + column * SPRITE_SCALE + x] = argb;
+				}
+				// Repeats the first pixel row down the point.
+				for (int y = 1; y < SPRITE_SCALE; y++)
+					System.arraycopy(this.pixels, start, this.pixels, start
+							+ y * width, width);
+			}
+		}
+	}
+}
@@ -13,8 +13,25 @@ public final class InputManager implements KeyListener {
 
 	/** Number of recognised keys. */
 	private static final int NUM_KEYS = 256;
+
+	/** Key mask bit for left, A or left arrow. */
+	public static final int MASK_LEFT = 1;
+	/** Key mask bit for right, D or right arrow. */
+	public static final int MASK_RIGHT = 1 << 1;
+	/** Key mask bit for up, W or up arrow. */
+	public static final int MASK_UP = 1 << 2;
+	/** Key mask bit for down, S or down arrow. */
+	public static final int MASK_DOWN = 1 << 3;
+	/** Key mask bit for space. */
+	public static final int MASK_SPACE = 1 << 4;
+	/** Key mask bit for escape. */
+	public static final int MASK_ESCAPE = 1 << 5;
 	/** Array with the jeys marked as pressed or not. */
 	private static boolean[] keys;
+	/** Number of keys currently pressed. */
+	private static int keysDown;
+	/** Key presses and releases received so far. */
+	private volatile long eventCount;
 	/** Singleton instance of the class. */
 	private static InputManager instance;
 
@@ -47,6 +64,70 @@ public final class InputManager implements KeyListener {
 		return keys[keyCode];
 	}
 
+	/**
+	 * Returns true if any key is currently pressed.
+	 * 
+	 * @return If at least one key is down.
+	 */
+	public boolean isAnyKeyDown() {
+		return keysDown > 0;
+	}
+
+	/**
+	 * Getter for the number of key presses and releases received. Used with
+	 * {@link #awaitEvent(long, long)} to sleep until the keyboard changes.
+	 * 
+	 * @return Key events so far.
+	 */
+	public long getEventCount() {
+		return this.eventCount;
+	}
+
+	/**
+	 * Blocks until a key event arrives after the given count, or the timeout
+	 * passes.
+	 * 
+	 * @param lastEventCount
+	 *            Event count already handled by the caller.
+	 * @param milliseconds
+	 *            Maximum time to wait.
+	 * @return True if a new event arrived.
+	 * @throws InterruptedException
+	 *             If the thread is interrupted while waiting.
+	 */
+	public synchronized boolean awaitEvent(final long lastEventCount,
+			final long milliseconds) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + milliseconds;
+		long remaining = milliseconds;
+		while (this.eventCount == lastEventCount && remaining > 0) {
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return this.eventCount != lastEventCount;
+	}
+
+	/**
+	 * Returns the game keys currently pressed, as a bit mask.
+	 * 
+	 * @return Combination of the MASK_* bits.
+	 */
+	public int getKeyMask() {
+		int mask = 0;
+		if (keys[KeyEvent.VK_LEFT] || keys[KeyEvent.VK_A])
+			mask |= MASK_LEFT;
+		if (keys[KeyEvent.VK_RIGHT] || keys[KeyEvent.VK_D])
+			mask |= MASK_RIGHT;
+		if (keys[KeyEvent.VK_UP] || keys[KeyEvent.VK_W])
+			mask |= MASK_UP;
+		if (keys[KeyEvent.VK_DOWN] || keys[KeyEvent.VK_S])
+			mask |= MASK_DOWN;
+		if (keys[KeyEvent.VK_SPACE])
+			mask |= MASK_SPACE;
+		if (keys[KeyEvent.VK_ESCAPE])
+			mask |= MASK_ESCAPE;
+		return mask;
+	}
+
 	/**
 	 * Changes the state of the key to pressed.
 	 * 
@@ -55,8 +136,15 @@ public final class InputManager implements KeyListener {
 	 */
 	@Override
 	public void keyPressed(final KeyEvent key) {
-		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS)
-			keys[key.getKeyCode()] = true;
+		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS) {
+			synchronized (this) {
+				if (!keys[key.getKeyCode()])
+					keysDown++;
+				keys[key.getKeyCode()] = true;
+				this.eventCount++;
+				notifyAll();
+			}
+		}
 	}
 
 	/**
@@ -67,8 +155,15 @@ public final class InputManager implements KeyListener {
 	 */
 	@Override
 	public void keyReleased(final KeyEvent key) {
-		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS)
-			keys[key.getKeyCode()] = false;
+		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS) {
+			synchronized (this) {
+				if (keys[key.getKeyCode()])
+					keysDown--;
+				keys[key.getKeyCode()] = false;
+				this.eventCount++;
+				notifyAll();
+			}
+		}
 	}
 
 	/**
@@ -0,0 +1,339 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import engine.DrawManager.SpriteType;
+
+/**
+ * Reads level definitions from their text format, checks them, and converts
+ * them to and from a compact binary cache.
+ * 
+ * <p>
+ * The text format has one value per line. Each level starts with
+ * <code>level</code>, followed by <code>speed</code>, <code>shooting</code>
+ * (frequency and variance in percent), <code>bullet</code> (speed),
+ * <code>bonus</code> (interval and variance) and the rows of the formation,
+ * from top to bottom, with <code>A</code>, <code>B</code> and <code>C</code>
+ * for the enemy types and <code>.</code> for empty cells. Lines starting
+ * with <code>#</code> are comments.
+ * </p>
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class LevelCompiler {
+
+	/** First bytes of the binary cache. */
+	private static final int MAGIC = 0x494E564C;
+	/** Version of the cache layout. */
+	private static final short VERSION = 1;
+	/** Widest formation that fits on the screen. */
+	public static final int MAX_WIDTH = 10;
+	/** Tallest formation that leaves room for the player. */
+	public static final int MAX_HEIGHT = 8;
+	/** Fastest bullet allowed. */
+	private static final int MAX_BULLET_SPEED = 20;
+	/** Enemy types by cache code, code zero is an empty cell. */
+	private static final SpriteType[] TYPES = { null, SpriteType.EnemyShipA1,
+			SpriteType.EnemyShipB1, SpriteType.EnemyShipC1 };
+	/** Formation characters by cache code. */
+	private static final String CELLS = ".ABC";
+
+	/**
+	 * Constructor, not called.
+	 */
+	private LevelCompiler() {
+
+	}
+
+	/**
+	 * Parses and checks level definitions in text format.
+	 * 
+	 * @param inputStream
+	 *            Definitions, in UTF-8.
+	 * @return Levels, in order.
+	 * @throws IOException
+	 *             In case of reading problems or invalid definitions.
+	 */
+	public static List<GameSettings> parse(final InputStream inputStream)
+			throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				inputStream, Charset.forName("UTF-8")));
+		List<GameSettings> levels = new ArrayList<GameSettings>();
+		LevelBuilder builder = null;
+		int lineNumber = 0;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			String[] words = line.split("\\s+");
+			try {
+				if (words[0].equals("level")) {
+					if (builder != null)
+						levels.add(builder.build());
+					builder = new LevelBuilder();
+				} else if (builder == null) {
+					throw new IllegalArgumentException(
+							"expected \"level\" first");
+				} else if (words[0].equals("speed")) {
+					builder.baseSpeed = number(words, 1);
+				} else if (words[0].equals("shooting")) {
+					builder.shootingFrecuency = number(words, 1);
+					builder.shootingVariance = number(words, 2);
+				} else if (words[0].equals("bullet")) {
+					builder.bulletSpeed = number(words, 1);
+				} else if (words[0].equals("bonus")) {
+					builder.bonusShipInterval = number(words, 1);
+					builder.bonusShipVariance = number(words, 2);
+				} else if (words.length == 1 && line.matches("[ABC.]+")) {
+					builder.rows.add(line);
+				} else {
+					throw new IllegalArgumentException("unknown line \""
+							+ line + "\"");
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Level definitions, line " + lineNumber
+						+ ": " + e.getMessage());
+			}
+		}
+
+		try {
+			if (builder != null)
+				levels.add(builder.build());
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Level definitions, last level: "
+					+ e.getMessage());
+		}
+		if (levels.isEmpty())
+			throw new IOException("Level definitions are empty.");
+		return levels;
+	}
+
+	/**
+	 * Checks that a level can be played.
+	 * 
+	 * @param settings
+	 *            Level to check.
+	 * @throws IllegalArgumentException
+	 *             If a value is out of range.
+	 */
+	public static void validate(final GameSettings settings) {
+		int width = settings.getFormationWidth();
+		int height = settings.getFormationHeight();
+		if (width < 1 || width > MAX_WIDTH || height < 1
+				|| height > MAX_HEIGHT)
+			throw new IllegalArgumentException("formation must be between 1x1"
+					+ " and " + MAX_WIDTH + "x" + MAX_HEIGHT + ", not " + width
+					+ "x" + height);
+		boolean empty = true;
+		for (int i = 0; i < width; i++)
+			for (int j = 0; j < height; j++)
+				if (settings.getEnemyType(i, j) != null)
+					empty = false;
+		if (empty)
+			throw new IllegalArgumentException("formation has no enemies");
+		if (settings.getBaseSpeed() < 0)
+			throw new IllegalArgumentException("speed can't be negative");
+		if (settings.getShootingFrecuency() < 1
+				|| settings.getShootingVariance() < 0
+				|| settings.getShootingVariance() > 100)
+			throw new IllegalArgumentException("shooting needs a positive "
+					+ "frequency and a variance between 0 and 100");
+		if (settings.getBulletSpeed() < 1
+				|| settings.getBulletSpeed() > MAX_BULLET_SPEED)
+			throw new IllegalArgumentException("bullet speed must be between"
+					+ " 1 and " + MAX_BULLET_SPEED);
+		if (settings.getBonusShipVariance() < 0
+				|| settings.getBonusShipInterval()
+						<= settings.getBonusShipVariance())
+			throw new IllegalArgumentException("bonus interval must be "
+					+ "longer than its variance");
+	}
+
+	/**
+	 * Writes levels to the binary cache.
+	 * 
+	 * @param outputStream
+	 *            Stream to write on, not closed.
+	 * @param levels
+	 *            Levels to store.
+	 * @param sourceChecksum
+	 *            Checksum of the text the levels were parsed from.
+	 * @throws IOException
+	 *             In case of writing problems.
+	 */
+	public static void writeCache(final OutputStream outputStream,
+			final List<GameSettings> levels, final long sourceChecksum)
+			throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream(outputStream,
+				new CRC32());
+		DataOutputStream output = new DataOutputStream(checked);
+
+		output.writeInt(MAGIC);
+		output.writeShort(VERSION);
+		output.writeLong(sourceChecksum);
+		output.writeShort(levels.size());
+		for (GameSettings settings : levels) {
+			output.writeByte(settings.getFormationWidth());
+			output.writeByte(settings.getFormationHeight());
+			for (int i = 0; i < settings.getFormationWidth(); i++)
+				for (int j = 0; j < settings.getFormationHeight(); j++)
+					output.writeByte(code(settings.getEnemyType(i, j)));
+			output.writeInt(settings.getBaseSpeed());
+			output.writeInt(settings.getShootingFrecuency());
+			output.writeInt(settings.getShootingVariance());
+			output.writeInt(settings.getBulletSpeed());
+			output.writeInt(settings.getBonusShipInterval());
+			output.writeInt(settings.getBonusShipVariance());
+		}
+		output.flush();
+		output.writeLong(checked.getChecksum().getValue());
+		output.flush();
+	}
+
+	/**
+	 * Reads levels from the binary cache.
+	 * 
+	 * @param inputStream
+	 *            Stream to read from, not closed.
+	 * @param sourceChecksum
+	 *            Checksum of the current text definitions.
+	 * @return Levels, or null if the cache was built from other definitions.
+	 * @throws IOException
+	 *             In case of reading problems or a corrupted cache.
+	 */
+	public static List<GameSettings> readCache(final InputStream inputStream,
+			final long sourceChecksum) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(inputStream,
+				new CRC32());
+		DataInputStream input = new DataInputStream(checked);
+
+		if (input.readInt() != MAGIC || input.readShort() != VERSION)
+			return null;
+		if (input.readLong() != sourceChecksum)
+			return null;
+
+		int count = input.readUnsignedShort();
+		List<GameSettings> levels = new ArrayList<GameSettings>(count);
+		for (int level = 0; level < count; level++) {
+			int width = input.readUnsignedByte();
+			int height = input.readUnsignedByte();
+			SpriteType[][] formation = new SpriteType[width][height];
+			for (int i = 0; i < width; i++)
+				for (int j = 0; j < height; j++) {
+					int code = input.readUnsignedByte();
+					if (code >= TYPES.length)
+						throw new IOException("Corrupted level cache.");
+					formation[i][j] = TYPES[code];
+				}
+			levels.add(new GameSettings(formation, input.readInt(), input
+					.readInt(), input.readInt(), input.readInt(), input
+					.readInt(), input.readInt()));
+		}
+
+		long checksum = checked.getChecksum().getValue();
+		if (input.readLong() != checksum)
+			throw new IOException("Corrupted level cache.");
+		try {
+			for (GameSettings settings : levels)
+				validate(settings);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupted level cache: " + e.getMessage());
+		}
+		return levels;
+	}
+
+	/**
+	 * Reads a numeric argument.
+	 * 
+	 * @param words
+	 *            Words of the line.
+	 * @param index
+	 *            Position of the argument.
+	 * @return Value of the argument.
+	 */
+	private static int number(final String[] words, final int index) {
+		if (index >= words.length)
+			throw new IllegalArgumentException("\"" + words[0]
+					+ "\" is missing a value");
+		return Integer.parseInt(words[index]);
+	}
+
+	/**
+	 * Returns the cache code of an enemy type.
+	 * 
+	 * @param type
+	 *            Enemy type, null for an empty cell.
+	 * @return Position of the type on the type table.
+	 */
+	private static int code(final SpriteType type) {
+		for (int i = 1; i < TYPES.length; i++)
+			if (TYPES[i] == type)
+				return i;
+		return 0;
+	}
+
+	/**
+	 * Collects the values of a level while it is parsed.
+	 */
+	private static final class LevelBuilder {
+		/** Formation rows, from top to bottom. */
+		private List<String> rows = new ArrayList<String>();
+		/** Speed of the enemies. */
+		private int baseSpeed = -1;
+		/** Frequency of enemy shootings. */
+		private int shootingFrecuency;
+		/** Difference between shooting times, in percent. */
+		private int shootingVariance;
+		/** Speed of the bullets. */
+		private int bulletSpeed;
+		/** Minimum time between bonus ship's appearances. */
+		private int bonusShipInterval;
+		/** Maximum variance in the time between bonus ship's appearances. */
+		private int bonusShipVariance;
+
+		/**
+		 * Creates and checks the level.
+		 * 
+		 * @return Settings of the level.
+		 */
+		private GameSettings build() {
+			if (this.rows.isEmpty())
+				throw new IllegalArgumentException("level has no formation");
+			int width = this.rows.get(0).length();
+			SpriteType[][] formation = new SpriteType[width][this.rows
+					.size()];
+			for (int j = 0; j < this.rows.size(); j++) {
+				String row = this.rows.get(j);
+				if (row.length() != width)
+					throw new IllegalArgumentException("formation rows must "
+							+ "have the same width");
+				for (int i = 0; i < width; i++)
+					formation[i][j] = TYPES[CELLS.indexOf(row.charAt(i))];
+			}
+
+			GameSettings settings = new GameSettings(formation,
+					this.baseSpeed, this.shootingFrecuency,
+					this.shootingVariance, this.bulletSpeed,
+					this.bonusShipInterval, this.bonusShipVariance);
+			validate(settings);
+			return settings;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import engine.DrawManager.SpriteType;
+import entity.EnemyShipFormation;
+
+/**
+ * Provides the settings of each level. Levels come from the level
+ * definitions; in endless mode, levels past the last one are generated. The
+ * next level can be prepared in the background while the current one is
+ * played.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class LevelManager {
+
+	/** System property enabling endless mode. */
+	private static final String ENDLESS_PROPERTY = "invaders.endless";
+	/** System property disabling the preparation of formations. */
+	private static final String PREFETCH_PROPERTY = "invaders.prefetch";
+	/** Seed of the generated levels, mixed with the level number. */
+	private static final long GENERATOR_SEED = 0x5DEECE66DL;
+	/** Chance of leaving a cell above the bottom row empty, per level. */
+	private static final double HOLE_CHANCE_PER_LEVEL = 0.02;
+	/** Maximum chance of leaving a cell empty. */
+	private static final double MAX_HOLE_CHANCE = 0.3;
+
+	/** Singleton instance of the class. */
+	private static LevelManager instance;
+
+	/** Application logger. */
+	private Logger logger;
+	/** Levels read from the definitions. */
+	private List<GameSettings> levels;
+	/** If levels continue after the definitions run out. */
+	private boolean endless;
+	/** If formations are built ahead of their level. */
+	private boolean prepareFormations;
+	/** Levels being prepared, by number. */
+	private Map<Integer, Future<GameSettings>> prefetched;
+	/** Formations being built, by level number. */
+	private Map<Integer, Future<EnemyShipFormation>> formations;
+	/** Thread preparing levels. */
+	private ExecutorService generator;
+
+	/**
+	 * Private constructor, loads the level definitions.
+	 */
+	private LevelManager() {
+		this.logger = Core.getLogger();
+		this.endless = Boolean.getBoolean(ENDLESS_PROPERTY);
+		this.prepareFormations = !"false".equalsIgnoreCase(System
+				.getProperty(PREFETCH_PROPERTY));
+		this.prefetched =
+				new ConcurrentHashMap<Integer, Future<GameSettings>>();
+		this.formations =
+				new ConcurrentHashMap<Integer, Future<EnemyShipFormation>>();
+		this.generator = Executors.newSingleThreadExecutor(
+				new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				Thread thread = new Thread(runnable, "Level generator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try {
+			this.levels = Core.getFileManager().loadLevels();
+		} catch (IOException e) {
+			this.logger.severe("Couldn't load levels, generating them: "
+					+ e.getMessage());
+			this.levels = new ArrayList<GameSettings>();
+			this.endless = true;
+		}
+		if (this.endless)
+			this.logger.info("Endless mode, levels after "
+					+ this.levels.size() + " are generated.");
+	}
+
+	/**
+	 * Returns shared instance of LevelManager.
+	 * 
+	 * @return Shared instance of LevelManager.
+	 */
+	protected static synchronized LevelManager getInstance() {
+		if (instance == null)
+			instance = new LevelManager();
+		return instance;
+	}
+
+	/**
+	 * Getter for the number of levels.
+	 * 
+	 * @return Number of levels, Integer.MAX_VALUE in endless mode.
+	 */
+	public int getLevelCount() {
+		return this.endless ? Integer.MAX_VALUE : this.levels.size();
+	}
+
+	/**
+	 * Starts preparing a level in the background, if it exists and is not
+	 * being prepared already.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 */
+	public void prefetch(final int level) {
+		if (level < 1 || level > getLevelCount()
+				|| this.prefetched.containsKey(level))
+			return;
+		this.prefetched.put(level, this.generator.submit(
+				new Callable<GameSettings>() {
+			@Override
+			public GameSettings call() {
+				return createLevel(level);
+			}
+		}));
+	}
+
+	/**
+	 * Returns the settings of a level, waiting for it if it is being
+	 * prepared in the background.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 * @return Settings of the level.
+	 */
+	public GameSettings getLevel(final int level) {
+		// Earlier levels won't be asked for again.
+		this.prefetched.keySet().removeIf(number -> number < level);
+		Future<GameSettings> future = this.prefetched.get(level);
+		if (future != null) {
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				this.logger.warning("Couldn't prepare level " + level + ": "
+						+ e.getCause());
+			}
+		}
+		return createLevel(level);
+	}
+
+	/**
+	 * Starts building the enemy formation of a level in the background, so
+	 * the level starts without that cost. Does nothing if disabled with
+	 * -Dinvaders.prefetch=false.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 */
+	public void prepareFormation(final int level) {
+		if (!this.prepareFormations || level < 1 || level > getLevelCount()
+				|| this.formations.containsKey(level))
+			return;
+		prefetch(level);
+		this.formations.put(level, this.generator.submit(
+				new Callable<EnemyShipFormation>() {
+			@Override
+			public EnemyShipFormation call() {
+				return new EnemyShipFormation(getLevel(level));
+			}
+		}));
+	}
+
+	/**
+	 * Returns the formation built in the background for a level, waiting for
+	 * it if it is not finished.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 * @param settings
+	 *            Settings the level is played with.
+	 * @return Formation ready to be attached, or null if none was prepared
+	 *         for those settings.
+	 */
+	public EnemyShipFormation takeFormation(final int level,
+			final GameSettings settings) {
+		this.formations.keySet().removeIf(number -> number < level);
+		Future<EnemyShipFormation> future = this.formations.remove(level);
+		if (future == null || getLevel(level) != settings)
+			return null;
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			this.logger.warning("Couldn't prepare formation of level "
+					+ level + ": " + e.getCause());
+		}
+		return null;
+	}
+
+	/**
+	 * Reads or generates the settings of a level.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 * @return Settings of the level.
+	 */
+	private GameSettings createLevel(final int level) {
+		if (level <= this.levels.size())
+			return this.levels.get(level - 1);
+		return generateLevel(level);
+	}
+
+	/**
+	 * Generates a level, harder as the level number grows. The same number
+	 * always generates the same level.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 * @return Settings of the level.
+	 */
+	private static GameSettings generateLevel(final int level) {
+		Random random = new Random(GENERATOR_SEED + level);
+		int depth = level - 1;
+		int width = Math.min(LevelCompiler.MAX_WIDTH, 5 + depth / 3);
+		int height = Math.min(LevelCompiler.MAX_HEIGHT, 4 + depth / 4);
+		double holeChance = Math.min(MAX_HOLE_CHANCE, depth
+				* HOLE_CHANCE_PER_LEVEL);
+
+		SpriteType[][] formation = GameSettings.defaultFormation(width,
+				height);
+		// The bottom row stays full, so every column can shoot.
+		for (int i = 0; i < width; i++)
+			for (int j = 0; j < height - 1; j++)
+				if (random.nextDouble() < holeChance)
+					formation[i][j] = null;
+
+		int shootingFrecuency = Math.max(300, 2000 - depth * 150
+				+ random.nextInt(200));
+		int bonusShipInterval = Math.max(8000, 20000 - depth * 1000);
+		return new GameSettings(formation, Math.max(2, 60 - depth * 8),
+				shootingFrecuency, 20 + random.nextInt(15), Math.min(8,
+						4 + depth / 5), bonusShipInterval,
+				bonusShipInterval / 2);
+	}
+}
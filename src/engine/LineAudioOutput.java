@@ -0,0 +1,46 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the mixed samples on the default sound card line.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class LineAudioOutput implements AudioOutput {
+
+	/** Line the samples are played on. */
+	private SourceDataLine line;
+
+	@Override
+	public boolean open(final AudioFormat format, final int bufferBytes) {
+		try {
+			this.line = AudioSystem.getSourceDataLine(format);
+			this.line.open(format, bufferBytes);
+			this.line.start();
+			return true;
+		} catch (LineUnavailableException | IllegalArgumentException
+				| SecurityException e) {
+			Core.getLogger().warning("No audio line available: " + e);
+			this.line = null;
+			return false;
+		}
+	}
+
+	@Override
+	public void write(final byte[] data, final int length) {
+		this.line.write(data, 0, length);
+	}
+
+	@Override
+	public void close() {
+		if (this.line != null) {
+			this.line.stop();
+			this.line.close();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import engine.SoundManager.Music;
+
+/**
+ * Plays background music. The player thread decodes the requested tracks
+ * into their streams, and the audio mixer adds them to its blocks,
+ * crossfading when the track changes.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class MusicPlayer extends Thread {
+
+	/** Samples a crossfade lasts, one second. */
+	private static final int FADE_FRAMES = AudioMixer.SAMPLE_RATE;
+	/** Time the decoder waits when every stream is full. */
+	private static final long FILL_INTERVAL = TimeUnit.MILLISECONDS
+			.toNanos(2);
+
+	/** Stream of the last requested track, null for silence. */
+	private volatile MusicStream requested;
+	/** Streams being decoded, decoder owned. */
+	private final List<MusicStream> streams;
+
+	/** Stream fading in, or playing, mixer owned. */
+	private MusicStream current;
+	/** Stream fading out, mixer owned. */
+	private MusicStream fading;
+	/** Samples since the last change of track, up to the fade length. */
+	private int fadePosition;
+	/** Samples taken from a stream. */
+	private final short[] samples;
+	/** Blocks that couldn't be filled because the decoder fell behind. */
+	private volatile long underruns;
+	/** If the decoder keeps running. */
+	private volatile boolean running;
+
+	/**
+	 * Constructor, the thread is not started.
+	 * 
+	 * @param blockFrames
+	 *            Samples the mixer takes at once.
+	 */
+	public MusicPlayer(final int blockFrames) {
+		super("Music decoder");
+		setDaemon(true);
+		this.streams = new ArrayList<MusicStream>();
+		this.samples = new short[blockFrames];
+		this.fadePosition = FADE_FRAMES;
+		this.running = true;
+	}
+
+	/**
+	 * Changes the background music. The new track fades in once its first
+	 * samples are decoded.
+	 * 
+	 * @param track
+	 *            Track to play, null for silence.
+	 */
+	public synchronized void play(final Music track) {
+		MusicStream previous = this.requested;
+		if (previous == null ? track == null : previous.getTrack() == track)
+			return;
+		this.requested = track == null ? null : new MusicStream(track);
+		// Released here unless the mixer already plays it.
+		if (previous != null)
+			previous.cancel();
+	}
+
+	/**
+	 * Getter for the underruns.
+	 * 
+	 * @return Mixer blocks left partly silent because the music wasn't
+	 *         decoded in time.
+	 */
+	public long getUnderruns() {
+		return this.underruns;
+	}
+
+	/**
+	 * Stops decoding.
+	 */
+	public void shutdown() {
+		this.running = false;
+		LockSupport.unpark(this);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (this.running) {
+				MusicStream stream = this.requested;
+				if (stream != null && !this.streams.contains(stream))
+					this.streams.add(stream);
+
+				boolean decoded = false;
+				Iterator<MusicStream> iterator = this.streams.iterator();
+				while (iterator.hasNext()) {
+					stream = iterator.next();
+					if (stream.isReleased()) {
+						stream.close();
+						iterator.remove();
+					} else if (stream.fill()) {
+						decoded = true;
+					}
+				}
+				if (!decoded)
+					LockSupport.parkNanos(this, FILL_INTERVAL);
+			}
+		} finally {
+			for (MusicStream stream : this.streams)
+				stream.close();
+		}
+	}
+
+	/**
+	 * Adds the next samples of the music to a block. Called by the mixer
+	 * thread only.
+	 * 
+	 * @param mix
+	 *            Block being mixed.
+	 * @param frames
+	 *            Samples in the block.
+	 */
+	public void mix(final int[] mix, final int frames) {
+		MusicStream next = this.requested;
+		if (next != this.current
+				&& (next == null || next.isPrimed() && next.take())) {
+			if (this.fading != null)
+				this.fading.release();
+			this.fading = this.current;
+			this.current = next;
+			this.fadePosition = 0;
+		}
+
+		mixStream(this.current, mix, frames, this.fadePosition, 1);
+		mixStream(this.fading, mix, frames, FADE_FRAMES - this.fadePosition,
+				-1);
+		this.fadePosition = Math.min(FADE_FRAMES, this.fadePosition + frames);
+		if (this.fadePosition == FADE_FRAMES && this.fading != null) {
+			this.fading.release();
+			this.fading = null;
+		}
+	}
+
+	/**
+	 * Adds the next samples of a stream to a block.
+	 * 
+	 * @param stream
+	 *            Stream to add, may be null.
+	 * @param mix
+	 *            Block being mixed.
+	 * @param frames
+	 *            Samples in the block.
+	 * @param gain
+	 *            Gain of the first sample, out of the fade length.
+	 * @param step
+	 *            Change of gain on each sample.
+	 */
+	private void mixStream(final MusicStream stream, final int[] mix,
+			final int frames, final int gain, final int step) {
+		if (stream == null || stream.isSilent())
+			return;
+		int count = stream.read(this.samples, frames);
+		if (count < frames)
+			this.underruns++;
+		for (int i = 0; i < count; i++) {
+			int sampleGain = Math.max(0, Math.min(FADE_FRAMES, gain + step
+					* i));
+			mix[i] += this.samples[i] * sampleGain / FADE_FRAMES;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import engine.SoundManager.Music;
+
+/**
+ * Plays one music track through a fixed ring of samples. The decoder thread
+ * reads the track a chunk at a time into the ring and the mixer thread takes
+ * the samples out, so memory use doesn't depend on the track length. Tracks
+ * loop until released.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class MusicStream {
+
+	/** Samples the ring holds, about 190 milliseconds. */
+	private static final int CAPACITY = 8192;
+	/** Most bytes decoded at once. */
+	private static final int CHUNK_BYTES = 4096;
+	/** If tracks without a music file are generated rather than silent. */
+	private static final boolean GENERATED_MUSIC = Boolean
+			.getBoolean("invaders.generatedMusic");
+
+	/** Requested, not played yet. */
+	private static final int WAITING = 0;
+	/** Played by the mixer. */
+	private static final int PLAYING = 1;
+	/** No longer needed, to be closed by the decoder. */
+	private static final int RELEASED = 2;
+
+	/** Application logger. */
+	private final Logger logger;
+	/** Track played. */
+	private final Music track;
+	/** Decoded samples. */
+	private final short[] ring;
+	/** Mask to map sample counts to ring positions. */
+	private final int mask;
+	/** Samples decoded since the start, decoder owned. */
+	private volatile long written;
+	/** Samples played since the start, mixer owned. */
+	private volatile long read;
+	/** Bytes being decoded. */
+	private final byte[] chunk;
+	/** Source of the track, decoder owned. */
+	private InputStream source;
+	/** If the ring was filled enough to start playing. */
+	private volatile boolean primed;
+	/** If the track has nothing to play. */
+	private volatile boolean silent;
+	/** Whether the stream is waiting, playing or released. */
+	private final AtomicInteger state;
+
+	/**
+	 * Constructor, the track is opened by the decoder.
+	 * 
+	 * @param track
+	 *            Track to play.
+	 */
+	public MusicStream(final Music track) {
+		this.logger = Core.getLogger();
+		this.track = track;
+		this.ring = new short[CAPACITY];
+		this.mask = CAPACITY - 1;
+		this.chunk = new byte[CHUNK_BYTES];
+		this.state = new AtomicInteger(WAITING);
+	}
+
+	/**
+	 * Getter for the track played.
+	 * 
+	 * @return Track of the stream.
+	 */
+	public Music getTrack() {
+		return this.track;
+	}
+
+	/**
+	 * Checks if the ring holds enough samples to start playing.
+	 * 
+	 * @return True once half of the ring was decoded.
+	 */
+	public boolean isPrimed() {
+		return this.primed;
+	}
+
+	/**
+	 * Checks if the track has nothing to play, having no music file.
+	 * 
+	 * @return True if no sample will be decoded.
+	 */
+	public boolean isSilent() {
+		return this.silent;
+	}
+
+	/**
+	 * Marks the stream as played by the mixer, unless it was released.
+	 * 
+	 * @return True if the stream can be played.
+	 */
+	public boolean take() {
+		return this.state.compareAndSet(WAITING, PLAYING);
+	}
+
+	/**
+	 * Releases the stream if it isn't played yet.
+	 * 
+	 * @return True if it was released, false if the mixer already took it.
+	 */
+	public boolean cancel() {
+		return this.state.compareAndSet(WAITING, RELEASED);
+	}
+
+	/**
+	 * Marks the stream as no longer needed.
+	 */
+	public void release() {
+		this.state.set(RELEASED);
+	}
+
+	/**
+	 * Checks if the stream is no longer needed.
+	 * 
+	 * @return True if the stream was released.
+	 */
+	public boolean isReleased() {
+		return this.state.get() == RELEASED;
+	}
+
+	/**
+	 * Decodes the next chunk of the track into the free part of the ring.
+	 * Called by the decoder thread only.
+	 * 
+	 * @return True if any sample was decoded.
+	 */
+	public boolean fill() {
+		int free = CAPACITY - (int) (this.written - this.read);
+		int bytes = Math.min(free * 2, CHUNK_BYTES);
+		if (bytes == 0 || this.silent) {
+			this.primed = true;
+			return false;
+		}
+
+		int count = 0;
+		try {
+			if (this.source == null)
+				this.source = open();
+			if (this.source == null) {
+				this.silent = true;
+				this.primed = true;
+				return false;
+			}
+			// Until the chunk is full or the track ends.
+			int read = 0;
+			while (count < bytes && read >= 0) {
+				read = this.source.read(this.chunk, count, bytes - count);
+				if (read > 0)
+					count += read;
+			}
+		} catch (IOException e) {
+			this.logger.warning("Couldn't decode music " + this.track + ": "
+					+ e.getMessage());
+			close();
+			if (GENERATED_MUSIC)
+				this.source = new SynthesizedMusic(this.track);
+			else
+				this.silent = true;
+			return false;
+		}
+		// Loops at the end of the track.
+		if (count < bytes)
+			close();
+
+		long position = this.written;
+		int samples = count / 2;
+		for (int i = 0; i < samples; i++)
+			this.ring[(int) (position + i) & this.mask] = (short) (
+					(this.chunk[2 * i] & 0xFF) | (this.chunk[2 * i + 1] << 8));
+		this.written = position + samples;
+
+		if (this.written - this.read >= CAPACITY / 2)
+			this.primed = true;
+		return samples > 0;
+	}
+
+	/**
+	 * Takes the next samples out of the ring. Called by the mixer thread
+	 * only.
+	 * 
+	 * @param target
+	 *            Array to copy the samples to.
+	 * @param frames
+	 *            Samples wanted.
+	 * @return Samples copied, fewer than wanted if the decoder fell behind.
+	 */
+	public int read(final short[] target, final int frames) {
+		long position = this.read;
+		int count = (int) Math.min(frames, this.written - position);
+		for (int i = 0; i < count; i++)
+			target[i] = this.ring[(int) (position + i) & this.mask];
+		this.read = position + count;
+		return count;
+	}
+
+	/**
+	 * Closes the source of the track. Called by the decoder thread only.
+	 */
+	public void close() {
+		if (this.source == null)
+			return;
+		try {
+			this.source.close();
+		} catch (IOException e) {
+			this.logger.fine("Couldn't close music " + this.track + ": "
+					+ e.getMessage());
+		}
+		this.source = null;
+	}
+
+	/**
+	 * Opens the track file, or a generated track if there is none and
+	 * -Dinvaders.generatedMusic=true is set.
+	 * 
+	 * @return Source of samples in the mixer format, null for silence.
+	 */
+	private InputStream open() {
+		try {
+			InputStream file = Core.getFileManager().openMusic(
+					this.track.name().toLowerCase());
+			if (file != null)
+				return file;
+		} catch (IOException e) {
+			this.logger.warning("Couldn't open music " + this.track + ": "
+					+ e.getMessage());
+		}
+		return GENERATED_MUSIC ? new SynthesizedMusic(this.track) : null;
+	}
+}
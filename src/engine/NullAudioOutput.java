@@ -0,0 +1,58 @@
+package engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Discards the mixed samples at the playback rate, for machines without a
+ * sound card and headless runs.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class NullAudioOutput implements AudioOutput {
+
+	/** Bytes played per second. */
+	private long bytesPerSecond;
+	/** Moment the next write is due. */
+	private long nextWrite;
+	/** Bytes discarded so far. */
+	private volatile long bytesWritten;
+
+	@Override
+	public boolean open(final AudioFormat format, final int bufferBytes) {
+		this.bytesPerSecond = (long) (format.getFrameRate()
+				* format.getFrameSize());
+		this.nextWrite = System.nanoTime();
+		return true;
+	}
+
+	@Override
+	public void write(final byte[] data, final int length) {
+		long wait = this.nextWrite - System.nanoTime();
+		if (wait > 0)
+			LockSupport.parkNanos(this, wait);
+		this.nextWrite += TimeUnit.SECONDS.toNanos(length)
+				/ this.bytesPerSecond;
+		// Starts over instead of catching up after a long pause.
+		this.nextWrite = Math.max(this.nextWrite, System.nanoTime()
+				- TimeUnit.MILLISECONDS.toNanos(100));
+		this.bytesWritten += length;
+	}
+
+	/**
+	 * Getter for the bytes discarded.
+	 * 
+	 * @return Bytes written so far.
+	 */
+	public long getBytesWritten() {
+		return this.bytesWritten;
+	}
+
+	@Override
+	public void close() {
+
+	}
+}
@@ -0,0 +1,94 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import screen.Screen;
+
+/**
+ * Draws screens on an in-memory image only, without a frame. Works on a
+ * headless JVM, for benchmarks, image comparisons and thumbnails of game
+ * states.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public class OffscreenRenderer extends ImageRenderer {
+
+	/** Last completed image. */
+	private BufferedImage image;
+	/** Number of drawings completed. */
+	private long framesCompleted;
+
+	/**
+	 * Constructor.
+	 */
+	public OffscreenRenderer() {
+		super();
+		this.framesCompleted = 0;
+	}
+
+	/**
+	 * Keeps the completed drawing as the current image.
+	 * 
+	 * @param screen
+	 *            Screen drawn.
+	 */
+	@Override
+	public void completeDrawing(final Screen screen) {
+		this.image = getBackBuffer();
+		this.framesCompleted++;
+	}
+
+	/**
+	 * Getter for the last completed image. The same image is reused, so it
+	 * is only valid until the next drawing starts.
+	 * 
+	 * @return Last completed image, null if nothing was drawn yet.
+	 */
+	public final BufferedImage getImage() {
+		return this.image;
+	}
+
+	/**
+	 * Returns a copy of the last completed image, unaffected by later
+	 * drawings.
+	 * 
+	 * @return Copy of the last completed image, null if nothing was drawn
+	 *         yet.
+	 */
+	public final BufferedImage copyImage() {
+		if (this.image == null)
+			return null;
+		BufferedImage copy = new BufferedImage(this.image.getWidth(),
+				this.image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		copy.setData(this.image.getRaster());
+		return copy;
+	}
+
+	/**
+	 * Getter for the number of drawings completed.
+	 * 
+	 * @return Completed drawings.
+	 */
+	public final long getFramesCompleted() {
+		return this.framesCompleted;
+	}
+
+	/**
+	 * Saves the last completed image to disk as a PNG file.
+	 * 
+	 * @param file
+	 *            Destination file.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	public final void saveImage(final File file) throws IOException {
+		if (this.image == null)
+			throw new IOException("Nothing was drawn yet.");
+		ImageIO.write(this.image, "png", file);
+	}
+}
@@ -0,0 +1,151 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Draws directly on the integer pixel array of a TYPE_INT_RGB image, avoiding
+ * the Java2D pipeline for sprites and solid shapes.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class RasterCanvas {
+
+	/** Image being drawn on. */
+	private final BufferedImage image;
+	/** Pixels of the image, row by row. */
+	private final int[] pixels;
+	/** Width of the image. */
+	private final int width;
+	/** Height of the image. */
+	private final int height;
+
+	/**
+	 * Constructor, wraps the pixels of an image.
+	 *
+	 * @param image
+	 *            Image to draw on, must be of type TYPE_INT_RGB.
+	 */
+	public RasterCanvas(final BufferedImage image) {
+		if (image.getType() != BufferedImage.TYPE_INT_RGB)
+			throw new IllegalArgumentException(
+					"Raster canvas requires a TYPE_INT_RGB image.");
+		this.image = image;
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+				.getData();
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+	}
+
+	/**
+	 * Getter for the wrapped image.
+	 *
+	 * @return Image being drawn on.
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+
+	/**
+	 * Fills the whole canvas with a color.
+	 *
+	 * @param rgb
+	 *            ARGB color.
+	 */
+	public void fill(final int rgb) {
+		Arrays.fill(this.pixels, rgb);
+	}
+
+	/**
+	 * Fills a rectangle, clipped to the canvas.
+	 *
+	 * @param positionX
+	 *            Left side of the rectangle.
+	 * @param positionY
+	 *            Upper side of the rectangle.
+	 * @param rectWidth
+	 *            Width of the rectangle.
+	 * @param rectHeight
+	 *            Height of the rectangle.
+	 * @param rgb
+	 *            ARGB color.
+	 */
+	public void fillRect(final int positionX, final int positionY,
+			final int rectWidth, final int rectHeight, final int rgb) {
+		int x0 = Math.max(positionX, 0);
+		int x1 = Math.min(positionX + rectWidth, this.width);
+		int y0 = Math.max(positionY, 0);
+		int y1 = Math.min(positionY + rectHeight, this.height);
+		if (x0 >= x1 || y0 >= y1)
+			return;
+
+		for (int y = y0; y < y1; y++)
+			Arrays.fill(this.pixels, y * this.width + x0, y * this.width + x1,
+					rgb);
+	}
+
+	/**
+	 * Fills a batch of squares of the same size, clipped to the canvas.
+	 *
+	 * @param positionsX
+	 *            Left side of each square.
+	 * @param positionsY
+	 *            Upper side of each square.
+	 * @param colors
+	 *            Color of each square, as RGB.
+	 * @param count
+	 *            Number of squares, from the start of the arrays.
+	 * @param size
+	 *            Side of the squares.
+	 */
+	public void fillSquares(final int[] positionsX, final int[] positionsY,
+			final int[] colors, final int count, final int size) {
+		for (int i = 0; i < count; i++) {
+			int x0 = Math.max(positionsX[i], 0);
+			int x1 = Math.min(positionsX[i] + size, this.width);
+			int y0 = Math.max(positionsY[i], 0);
+			int y1 = Math.min(positionsY[i] + size, this.height);
+			int rgb = colors[i];
+			for (int y = y0; y < y1; y++)
+				for (int x = y * this.width + x0; x < y * this.width + x1; x++)
+					this.pixels[x] = rgb;
+		}
+	}
+
+	/**
+	 * Copies the opaque pixels of a sprite, clipped to the canvas.
+	 *
+	 * @param sprite
+	 *            Sprite to copy.
+	 * @param positionX
+	 *            Left side of the sprite.
+	 * @param positionY
+	 *            Upper side of the sprite.
+	 */
+	public void blit(final RasterSprite sprite, final int positionX,
+			final int positionY) {
+		int x0 = Math.max(positionX, 0);
+		int x1 = Math.min(positionX + sprite.getWidth(), this.width);
+		int y0 = Math.max(positionY, 0);
+		int y1 = Math.min(positionY + sprite.getHeight(), this.height);
+		if (x0 >= x1 || y0 >= y1)
+			return;
+
+		int[] source = sprite.getPixels();
+		int spriteWidth = sprite.getWidth();
+		for (int y = y0; y < y1; y++) {
+			int row = y - positionY;
+			int[] spans = sprite.getSpans(row);
+			for (int s = 0; s < spans.length; s += 2) {
+				int start = Math.max(positionX + spans[s], x0);
+				int end = Math.min(positionX + spans[s] + spans[s + 1], x1);
+				if (start < end)
+					System.arraycopy(source, row * spriteWidth + start
+							- positionX, this.pixels, y * this.width + start,
+							end - start);
+			}
+		}
+	}
+}
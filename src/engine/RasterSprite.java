@@ -0,0 +1,114 @@
+package engine;
+
+/**
+ * Implements a sprite pre-expanded into rows of ARGB pixels, ready to be
+ * copied straight into an integer raster.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class RasterSprite {
+
+	/** Width of the expanded sprite, in pixels. */
+	private final int width;
+	/** Height of the expanded sprite, in pixels. */
+	private final int height;
+	/** Color the sprite was expanded with. */
+	private final int rgb;
+	/** Expanded pixels, row by row. Transparent pixels are zero. */
+	private final int[] pixels;
+	/** Opaque spans of each row, as consecutive start - length pairs. */
+	private final int[][] spans;
+
+	/**
+	 * Constructor, expands a boolean sprite into opaque pixel rows.
+	 *
+	 * @param image
+	 *            Sprite image, indexed by column and then row.
+	 * @param scale
+	 *            Size in pixels of each sprite point.
+	 * @param rgb
+	 *            Color of the opaque points, as ARGB.
+	 */
+	public RasterSprite(final boolean[][] image, final int scale,
+			final int rgb) {
+		this.width = image.length * scale;
+		this.height = image.length == 0 ? 0 : image[0].length * scale;
+		this.rgb = rgb;
+		this.pixels = new int[this.width * this.height];
+		this.spans = new int[this.height][];
+
+		for (int i = 0; i < image.length; i++)
+			for (int j = 0; j < image[i].length; j++)
+				if (image[i][j])
+					for (int y = j * scale; y < (j + 1) * scale; y++)
+						for (int x = i * scale; x < (i + 1) * scale; x++)
+							this.pixels[y * this.width + x] = rgb;
+
+		int[] rowSpans = new int[this.width + 1];
+		for (int y = 0; y < this.height; y++) {
+			int count = 0;
+			int x = 0;
+			while (x < this.width) {
+				if (this.pixels[y * this.width + x] == 0) {
+					x++;
+					continue;
+				}
+				int start = x;
+				while (x < this.width && this.pixels[y * this.width + x] != 0)
+					x++;
+				rowSpans[count++] = start;
+				rowSpans[count++] = x - start;
+			}
+			this.spans[y] = new int[count];
+			System.arraycopy(rowSpans, 0, this.spans[y], 0, count);
+		}
+	}
+
+	/**
+	 * Getter for the expanded width.
+	 *
+	 * @return Width in pixels.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Getter for the expanded height.
+	 *
+	 * @return Height in pixels.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Getter for the color the sprite was expanded with.
+	 *
+	 * @return ARGB color.
+	 */
+	public int getRgb() {
+		return this.rgb;
+	}
+
+	/**
+	 * Getter for the expanded pixels.
+	 *
+	 * @return Pixel rows, transparent pixels are zero.
+	 */
+	int[] getPixels() {
+		return this.pixels;
+	}
+
+	/**
+	 * Getter for the opaque spans of a row.
+	 *
+	 * @param row
+	 *            Row of the sprite.
+	 * @return Start - length pairs of the opaque pixels in the row.
+	 */
+	int[] getSpans(final int row) {
+		return this.spans[row];
+	}
+}
@@ -0,0 +1,165 @@
+package engine;
+
+import java.awt.Color;
+import java.util.List;
+
+import screen.Screen;
+import engine.DrawManager.SpriteType;
+import entity.Entity;
+
+/**
+ * Records every drawing on a world snapshot instead of drawing it, and
+ * publishes the snapshot for the render thread when the drawing completes.
+ * Used from the update thread only.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class RecordingRenderer implements Renderer {
+
+	/** Snapshots shared with the render thread. */
+	private final TripleBuffer<WorldSnapshot> snapshots;
+	/** Thread replaying the published snapshots. */
+	private final RenderThread renderThread;
+	/** Snapshot currently being recorded. */
+	private WorldSnapshot snapshot;
+	/** Number of snapshots recorded. */
+	private long sequence;
+
+	/**
+	 * Constructor, starts a render thread drawing on the given renderer.
+	 * 
+	 * @param target
+	 *            Renderer that actually draws the snapshots.
+	 */
+	public RecordingRenderer(final Renderer target) {
+		this.snapshots = new TripleBuffer<WorldSnapshot>(new WorldSnapshot(),
+				new WorldSnapshot(), new WorldSnapshot());
+		this.renderThread = new RenderThread(this.snapshots, target);
+		this.renderThread.start();
+		this.sequence = 0;
+	}
+
+	/**
+	 * Getter for the render thread.
+	 * 
+	 * @return Thread replaying the snapshots.
+	 */
+	public RenderThread getRenderThread() {
+		return this.renderThread;
+	}
+
+	@Override
+	public void initDrawing(final Screen screen) {
+		this.snapshot = this.snapshots.getBack();
+		this.snapshot.clear(screen, this.sequence++);
+	}
+
+	@Override
+	public void completeDrawing(final Screen screen) {
+		this.snapshots.publish();
+		this.snapshot = null;
+		this.renderThread.signal();
+	}
+
+	@Override
+	public void drawEntity(final Entity entity, final int positionX,
+			final int positionY) {
+		this.snapshot.addSprite(entity.getSpriteType(), entity.getColor(),
+				positionX, positionY);
+	}
+
+	@Override
+	public void drawSprite(final SpriteType spriteType, final Color color,
+			final int positionX, final int positionY) {
+		this.snapshot.addSprite(spriteType, color, positionX, positionY);
+	}
+
+	@Override
+	public void drawParticles(final int[] positionsX,
+			final int[] positionsY, final int[] colors, final int count) {
+		this.snapshot.addParticles(positionsX, positionsY, colors, count);
+	}
+
+	@Override
+	public void drawBitmap(final int slot, final long[] rows,
+			final int height, final Color color, final int positionX,
+			final int positionY) {
+		this.snapshot.addBitmap(slot, rows, height, color, positionX,
+				positionY);
+	}
+
+	@Override
+	public void drawScore(final Screen screen, final int score) {
+		this.snapshot.addScore(score);
+	}
+
+	@Override
+	public void drawLives(final Screen screen, final int lives) {
+		this.snapshot.addLives(lives);
+	}
+
+	@Override
+	public void drawHorizontalLine(final Screen screen, final int positionY) {
+		this.snapshot.addHorizontalLine(positionY);
+	}
+
+	@Override
+	public void drawTitle(final Screen screen) {
+		this.snapshot.addTitle();
+	}
+
+	@Override
+	public void drawMenu(final Screen screen, final int option) {
+		this.snapshot.addMenu(option);
+	}
+
+	@Override
+	public void drawResults(final Screen screen, final int score,
+			final int livesRemaining, final int shipsDestroyed,
+			final float accuracy, final boolean isNewRecord) {
+		this.snapshot.addResults(score, livesRemaining, shipsDestroyed,
+				accuracy, isNewRecord);
+	}
+
+	@Override
+	public void drawNameInput(final Screen screen, final char[] name,
+			final int nameCharSelected) {
+		this.snapshot.addNameInput(name, nameCharSelected);
+	}
+
+	@Override
+	public void drawGameOver(final Screen screen, final boolean acceptsInput,
+			final boolean isNewRecord) {
+		this.snapshot.addGameOver(acceptsInput, isNewRecord);
+	}
+
+	@Override
+	public void drawHighScoreMenu(final Screen screen) {
+		this.snapshot.addHighScoreMenu();
+	}
+
+	@Override
+	public void drawHighScores(final Screen screen,
+			final List<Score> highScores) {
+		this.snapshot.addHighScores(highScores);
+	}
+
+	@Override
+	public void drawCenteredRegularString(final Screen screen,
+			final String string, final int height) {
+		this.snapshot.addCenteredString(string, height, false);
+	}
+
+	@Override
+	public void drawCenteredBigString(final Screen screen, final String string,
+			final int height) {
+		this.snapshot.addCenteredString(string, height, true);
+	}
+
+	@Override
+	public void drawCountDown(final Screen screen, final int level,
+			final int number, final boolean bonusLife) {
+		this.snapshot.addCountDown(level, number, bonusLife);
+	}
+}
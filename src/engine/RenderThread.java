@@ -0,0 +1,98 @@
+package engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Draws the latest published world snapshot on its own thread, so a slow
+ * presentation never delays input handling or collisions.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class RenderThread extends Thread {
+
+	/** Maximum time waiting for a snapshot before checking again. */
+	private static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/** Snapshots published by the update thread. */
+	private final TripleBuffer<WorldSnapshot> snapshots;
+	/** Renderer the snapshots are drawn on. */
+	private final Renderer target;
+	/** Application logger. */
+	private final Logger logger;
+	/** Number of snapshots drawn. */
+	private volatile long framesRendered;
+	/** Number of snapshots replaced before being drawn. */
+	private volatile long framesSkipped;
+	/** Sequence of the last snapshot drawn. */
+	private long lastSequence;
+
+	/**
+	 * Constructor, the thread is not started.
+	 * 
+	 * @param snapshots
+	 *            Snapshots published by the update thread.
+	 * @param target
+	 *            Renderer the snapshots are drawn on.
+	 */
+	public RenderThread(final TripleBuffer<WorldSnapshot> snapshots,
+			final Renderer target) {
+		super("Render");
+		setDaemon(true);
+		this.snapshots = snapshots;
+		this.target = target;
+		this.logger = Core.getLogger();
+		this.lastSequence = -1;
+	}
+
+	/**
+	 * Wakes up the thread after a snapshot is published.
+	 */
+	public void signal() {
+		LockSupport.unpark(this);
+	}
+
+	/**
+	 * Getter for the snapshots drawn.
+	 * 
+	 * @return Number of snapshots drawn.
+	 */
+	public long getFramesRendered() {
+		return this.framesRendered;
+	}
+
+	/**
+	 * Getter for the snapshots never drawn because a newer one arrived.
+	 * 
+	 * @return Number of snapshots skipped.
+	 */
+	public long getFramesSkipped() {
+		return this.framesSkipped;
+	}
+
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			WorldSnapshot snapshot = this.snapshots.acquire();
+			if (snapshot == null) {
+				LockSupport.parkNanos(this, MAX_WAIT);
+				continue;
+			}
+
+			if (this.lastSequence >= 0)
+				this.framesSkipped += snapshot.getSequence()
+						- this.lastSequence - 1;
+			this.lastSequence = snapshot.getSequence();
+
+			try {
+				snapshot.replay(this.target);
+				this.framesRendered++;
+			} catch (RuntimeException e) {
+				this.logger.warning("Frame " + snapshot.getSequence()
+						+ " could not be drawn: " + e);
+			}
+		}
+	}
+}
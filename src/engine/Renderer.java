@@ -0,0 +1,246 @@
+package engine;
+
+import java.awt.Color;
+import java.util.List;
+
+import screen.Screen;
+import engine.DrawManager.SpriteType;
+import entity.Entity;
+
+/**
+ * Draws the contents of the screens. Every drawing starts with
+ * {@link #initDrawing(Screen)} and ends with {@link #completeDrawing(Screen)}.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface Renderer {
+
+	/**
+	 * First part of the drawing process. Initialices buffers, draws the
+	 * background and prepares the images.
+	 * 
+	 * @param screen
+	 *            Screen to draw in.
+	 */
+	void initDrawing(Screen screen);
+
+	/**
+	 * Shows the completed drawing.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	void completeDrawing(Screen screen);
+
+	/**
+	 * Draws an entity, using the apropiate image.
+	 * 
+	 * @param entity
+	 *            Entity to be drawn.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	void drawEntity(Entity entity, int positionX, int positionY);
+
+	/**
+	 * Draws a sprite in a given color.
+	 * 
+	 * @param spriteType
+	 *            Sprite to draw.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	void drawSprite(SpriteType spriteType, Color color, int positionX,
+			int positionY);
+
+	/**
+	 * Draws a batch of small square particles.
+	 * 
+	 * @param positionsX
+	 *            Left side of each particle.
+	 * @param positionsY
+	 *            Upper side of each particle.
+	 * @param colors
+	 *            Color of each particle, as RGB.
+	 * @param count
+	 *            Number of particles, from the start of the arrays.
+	 */
+	void drawParticles(int[] positionsX, int[] positionsY, int[] colors,
+			int count);
+
+	/**
+	 * Draws a bitmap of scaled points that changes little between frames,
+	 * such as a bunker.
+	 * 
+	 * @param slot
+	 *            Number identifying the bitmap between frames.
+	 * @param rows
+	 *            Points of each row, bit i is column i from the left.
+	 * @param height
+	 *            Number of rows.
+	 * @param color
+	 *            Color of the points.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	void drawBitmap(int slot, long[] rows, int height, Color color,
+			int positionX, int positionY);
+
+	/**
+	 * Draws current score on screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param score
+	 *            Current score.
+	 */
+	void drawScore(Screen screen, int score);
+
+	/**
+	 * Draws number of remaining lives on screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param lives
+	 *            Current lives.
+	 */
+	void drawLives(Screen screen, int lives);
+
+	/**
+	 * Draws a thick line from side to side of the screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param positionY
+	 *            Y coordinate of the line.
+	 */
+	void drawHorizontalLine(Screen screen, int positionY);
+
+	/**
+	 * Draws game title.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	void drawTitle(Screen screen);
+
+	/**
+	 * Draws main menu.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param option
+	 *            Option selected.
+	 */
+	void drawMenu(Screen screen, int option);
+
+	/**
+	 * Draws game results.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param score
+	 *            Score obtained.
+	 * @param livesRemaining
+	 *            Lives remaining when finished.
+	 * @param shipsDestroyed
+	 *            Total ships destroyed.
+	 * @param accuracy
+	 *            Total accuracy.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	void drawResults(Screen screen, int score, int livesRemaining,
+			int shipsDestroyed, float accuracy, boolean isNewRecord);
+
+	/**
+	 * Draws interactive characters for name input.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param name
+	 *            Current name selected.
+	 * @param nameCharSelected
+	 *            Current character selected for modification.
+	 */
+	void drawNameInput(Screen screen, char[] name, int nameCharSelected);
+
+	/**
+	 * Draws basic content of game over screen.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param acceptsInput
+	 *            If the screen accepts input.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	void drawGameOver(Screen screen, boolean acceptsInput,
+			boolean isNewRecord);
+
+	/**
+	 * Draws high score screen title and instructions.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	void drawHighScoreMenu(Screen screen);
+
+	/**
+	 * Draws high scores.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param highScores
+	 *            List of high scores.
+	 */
+	void drawHighScores(Screen screen, List<Score> highScores);
+
+	/**
+	 * Draws a centered string on regular font.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param string
+	 *            String to draw.
+	 * @param height
+	 *            Height of the drawing.
+	 */
+	void drawCenteredRegularString(Screen screen, String string, int height);
+
+	/**
+	 * Draws a centered string on big font.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param string
+	 *            String to draw.
+	 * @param height
+	 *            Height of the drawing.
+	 */
+	void drawCenteredBigString(Screen screen, String string, int height);
+
+	/**
+	 * Countdown to game start.
+	 * 
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param level
+	 *            Game difficulty level.
+	 * @param number
+	 *            Countdown number.
+	 * @param bonusLife
+	 *            Checks if a bonus life is received.
+	 */
+	void drawCountDown(Screen screen, int level, int number,
+			boolean bonusLife);
+}
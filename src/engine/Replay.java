@@ -0,0 +1,65 @@
+package engine;
+
+/**
+ * Inputs of a recorded game, read level by level. Written by
+ * {@link ReplayRecorder}.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface Replay {
+
+	/**
+	 * Moves to the start of a level, skipping the inputs before it.
+	 * 
+	 * @param level
+	 *            Level to move to.
+	 * @return True if the recorded game got to the level.
+	 */
+	boolean seekLevel(int level);
+
+	/**
+	 * Takes the keys held on the next tick of the level, along with the
+	 * checksums recorded after it.
+	 * 
+	 * @return Input manager key mask, -1 once the recorded game left the
+	 *         level.
+	 */
+	int nextInput();
+
+	/**
+	 * @return Checksums of the state after the last input taken, as written
+	 *         by {@link StateChecksum#write(java.nio.ByteBuffer)}.
+	 */
+	byte[] getChecksums();
+
+	/**
+	 * @return State the level found starts with, before any bonus life.
+	 */
+	GameState getGameState();
+
+	/**
+	 * @return If a bonus life is awarded on the level found.
+	 */
+	boolean hasBonusLife();
+
+	/**
+	 * @return Starting state of the random numbers of the level found.
+	 */
+	long getSeed();
+
+	/**
+	 * @return Width of the screen the game was played on.
+	 */
+	int getWidth();
+
+	/**
+	 * @return Height of the screen the game was played on.
+	 */
+	int getHeight();
+
+	/**
+	 * @return Frames per second the game was played at.
+	 */
+	int getFps();
+}
@@ -0,0 +1,160 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import screen.GameScreen;
+
+/**
+ * Plays a whole recorded game back without drawing, level after level the
+ * way the game plays them, checking it plays as recorded. Several can be
+ * played at once on different threads.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+final class ReplayPlayback {
+
+	/** Settings of the levels played back so far. */
+	private static final Map<Integer, GameSettings> LEVELS =
+			new HashMap<Integer, GameSettings>();
+
+	/** Replay of the game. */
+	private final Replay replay;
+	/** Ticks played back, counted even if the replay fails halfway. */
+	private long ticks;
+
+	/**
+	 * Constructor, nothing is played yet.
+	 * 
+	 * @param replay
+	 *            Replay of the game, at its start.
+	 */
+	ReplayPlayback(final Replay replay) {
+		this.replay = replay;
+	}
+
+	/**
+	 * Gets the engine ready to play back, before any thread does. Nothing
+	 * is shown, and the shared managers are created up front rather than
+	 * raced for by the threads.
+	 */
+	static void prepare() {
+		Core.getLogger().setLevel(Level.WARNING);
+		Core.setRenderer(new OffscreenRenderer());
+		createManagers();
+	}
+
+	/**
+	 * Creates the managers shared by every thread up front, rather than
+	 * raced for by the threads. Nothing else changes.
+	 */
+	static void createManagers() {
+		Core.getInputManager();
+		Core.getFrameWatchdog();
+		Core.getLevelManager();
+	}
+
+	/**
+	 * Plays the game back.
+	 * 
+	 * @return State the game ended with.
+	 * @throws IOException
+	 *             If the replay doesn't play as the game would.
+	 */
+	GameState play() throws IOException {
+		// Other screens play differently, and smaller ones more easily.
+		if (this.replay.getFps() != Core.FPS || this.replay.getWidth() <= 0
+				|| this.replay.getWidth() > Core.WIDTH
+				|| this.replay.getHeight() <= 0
+				|| this.replay.getHeight() > Core.HEIGHT)
+			throw new IOException("played on a " + this.replay.getWidth()
+					+ "x" + this.replay.getHeight() + " screen at "
+					+ this.replay.getFps() + " fps");
+
+		GameState gameState = new GameState(1, 0, Core.MAX_LIVES, 0, 0);
+		int levelCount = Core.getLevelManager().getLevelCount();
+		do {
+			int level = gameState.getLevel();
+			if (!this.replay.seekLevel(level))
+				throw new IOException("level " + level + " missing");
+			if (!sameState(this.replay.getGameState(), gameState))
+				throw new IOException("level " + level
+						+ " starts from another state");
+			boolean bonusLife = level % Core.EXTRA_LIFE_FRECUENCY == 0
+					&& gameState.getLivesRemaining() < Core.MAX_LIVES;
+			if (this.replay.hasBonusLife() != bonusLife)
+				throw new IOException("bonus life on level " + level);
+
+			GameScreen screen = GameScreen.newGhost(this.replay,
+					getLevel(level));
+			do
+				this.ticks++;
+			while (screen.playBack());
+			if (screen.getDivergence() != null)
+				throw new IOException("played differently, "
+						+ screen.getDivergence());
+			if (!screen.isClosed())
+				throw new IOException("level " + level
+						+ " left before it ended");
+			if (this.replay.nextInput() >= 0)
+				throw new IOException("level " + level
+						+ " played after it ended");
+
+			gameState = screen.getGameState();
+			gameState = new GameState(gameState.getLevel() + 1,
+					gameState.getScore(), gameState.getLivesRemaining(),
+					gameState.getBulletsShot(), gameState.getShipsDestroyed());
+		} while (gameState.getLivesRemaining() > 0
+				&& gameState.getLevel() <= levelCount);
+
+		if (this.replay.seekLevel(gameState.getLevel()))
+			throw new IOException("played past the end of the game");
+		return gameState;
+	}
+
+	/**
+	 * Getter for the ticks played.
+	 * 
+	 * @return Ticks played back so far.
+	 */
+	long getTicks() {
+		return this.ticks;
+	}
+
+	/**
+	 * Compares two game states.
+	 * 
+	 * @param a
+	 *            A game state.
+	 * @param b
+	 *            Another game state.
+	 * @return True if every value matches.
+	 */
+	static boolean sameState(final GameState a, final GameState b) {
+		ByteBuffer first = ByteBuffer.allocate(5 * 4);
+		ByteBuffer second = ByteBuffer.allocate(5 * 4);
+		a.save(first);
+		b.save(second);
+		return first.flip().equals(second.flip());
+	}
+
+	/**
+	 * Returns the settings of a level, made once for all threads.
+	 * 
+	 * @param level
+	 *            Number of the level, starting at 1.
+	 * @return Settings of the level.
+	 */
+	static synchronized GameSettings getLevel(final int level) {
+		GameSettings settings = LEVELS.get(level);
+		if (settings == null) {
+			settings = Core.getLevelManager().getLevel(level);
+			LEVELS.put(level, settings);
+		}
+		return settings;
+	}
+}
@@ -0,0 +1,128 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a replay already in memory, for replays small enough to be read
+ * whole and played back many at once.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class ReplayReader implements Replay {
+
+	/** Replay, positioned at the next byte to read. */
+	private final ByteBuffer buffer;
+	/** Width of the screen. */
+	private final int width;
+	/** Height of the screen. */
+	private final int height;
+	/** Frames per second. */
+	private final int fps;
+	/** State the last level found starts with. */
+	private GameState gameState;
+	/** If a bonus life was awarded on the last level found. */
+	private boolean bonusLife;
+	/** Seed of the random numbers of the last level found. */
+	private long seed;
+	/** Checksums recorded after the last input taken. */
+	private final byte[] checksums;
+
+	/**
+	 * Constructor, reads the replay header.
+	 * 
+	 * @param replay
+	 *            Replay, from its first byte to the limit.
+	 * @throws IOException
+	 *             If it isn't a replay of this version.
+	 */
+	public ReplayReader(final ByteBuffer replay) throws IOException {
+		this.buffer = replay;
+		this.checksums = new byte[StateChecksum.BYTES];
+		if (replay.remaining() < 4 + 2 + 3 * 2
+				|| replay.getInt() != ReplayRecorder.MAGIC)
+			throw new IOException("not a replay");
+		short version = replay.getShort();
+		if (version != ReplayRecorder.VERSION)
+			throw new IOException("version " + version + " instead of "
+					+ ReplayRecorder.VERSION);
+		this.width = replay.getShort();
+		this.height = replay.getShort();
+		this.fps = replay.getShort();
+	}
+
+	@Override
+	public boolean seekLevel(final int level) {
+		while (this.buffer.hasRemaining()) {
+			if ((this.buffer.get() & 0xFF) != ReplayRecorder.LEVEL_MARKER) {
+				skipChecksums();
+				continue;
+			}
+			if (this.buffer.remaining() < ReplayRecorder.LEVEL_HEADER_BYTES)
+				return false;
+			this.gameState = GameState.restore(this.buffer);
+			this.bonusLife = this.buffer.get() != 0;
+			this.seed = this.buffer.getLong();
+			if (this.gameState.getLevel() >= level)
+				return this.gameState.getLevel() == level;
+		}
+		return false;
+	}
+
+	@Override
+	public int nextInput() {
+		if (!this.buffer.hasRemaining())
+			return -1;
+		int next = this.buffer.get(this.buffer.position()) & 0xFF;
+		if (next == ReplayRecorder.LEVEL_MARKER
+				|| this.buffer.remaining() < 1 + StateChecksum.BYTES)
+			return -1;
+		this.buffer.get();
+		this.buffer.get(this.checksums);
+		return next;
+	}
+
+	@Override
+	public byte[] getChecksums() {
+		return this.checksums;
+	}
+
+	@Override
+	public GameState getGameState() {
+		return this.gameState;
+	}
+
+	@Override
+	public boolean hasBonusLife() {
+		return this.bonusLife;
+	}
+
+	@Override
+	public long getSeed() {
+		return this.seed;
+	}
+
+	@Override
+	public int getWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getHeight() {
+		return this.height;
+	}
+
+	@Override
+	public int getFps() {
+		return this.fps;
+	}
+
+	/**
+	 * Moves past the checksums of a tick, or to the end if they are cut.
+	 */
+	private void skipChecksums() {
+		this.buffer.position(this.buffer.position()
+				+ Math.min(StateChecksum.BYTES, this.buffer.remaining()));
+	}
+}
@@ -0,0 +1,244 @@
+package engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+/**
+ * Records the keys held on every tick of a game, so it can be raced as a
+ * ghost later. Each level starts with the state of the game and the seed of
+ * its random numbers; with those the game plays the same way again, so each
+ * tick only takes the keys and the checksums to tell if it did: six bytes,
+ * about 21 KB a minute of play. Read with {@link ReplayStream} and
+ * {@link ReplayReader}.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class ReplayRecorder {
+
+	/** First bytes of every replay. */
+	static final int MAGIC = 0x494E5652;
+	/** Version of the replay layout. */
+	static final short VERSION = 3;
+	/** Starts a level, key masks are always lower. */
+	static final int LEVEL_MARKER = 0x80;
+	/** Bytes after a level marker: game state, bonus life and seed. */
+	static final int LEVEL_HEADER_BYTES = 5 * 4 + 1 + 8;
+	/** First bytes of every score submission. */
+	static final int SUBMISSION_MAGIC = 0x494E5643;
+	/** Directory the replays are written to. */
+	static final String REPLAY_DIRECTORY = "replays";
+	/** File of the replay of the best game. */
+	static final String BEST_FILE = "best.rpl";
+	/** Directory of the scores waiting to be verified. */
+	static final String PENDING_DIRECTORY = "submissions/pending";
+
+	/** Initial room for the replay, three minutes at six bytes a tick. */
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+
+	/** Application logger. */
+	private Logger logger;
+	/** Replay recorded so far. */
+	private ByteBuffer buffer;
+	/** If the game can no longer be played back. */
+	private boolean discarded;
+
+	/**
+	 * Constructor, starts an empty replay.
+	 * 
+	 * @param width
+	 *            Width of the game screens.
+	 * @param height
+	 *            Height of the game screens.
+	 * @param fps
+	 *            Frames per second the game runs at.
+	 */
+	public ReplayRecorder(final int width, final int height, final int fps) {
+		this.logger = Core.getLogger();
+		this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+		this.buffer.putInt(MAGIC);
+		this.buffer.putShort(VERSION);
+		// The game plays differently on another screen.
+		this.buffer.putShort((short) width);
+		this.buffer.putShort((short) height);
+		this.buffer.putShort((short) fps);
+	}
+
+	/**
+	 * Starts recording a level.
+	 * 
+	 * @param gameState
+	 *            State the level starts with, before any bonus life.
+	 * @param bonusLife
+	 *            If a bonus life is awarded on the level.
+	 * @param seed
+	 *            Starting state of the random numbers of the level.
+	 */
+	public void startLevel(final GameState gameState,
+			final boolean bonusLife, final long seed) {
+		ensureRoom(1 + LEVEL_HEADER_BYTES);
+		this.buffer.put((byte) LEVEL_MARKER);
+		gameState.save(this.buffer);
+		this.buffer.put((byte) (bonusLife ? 1 : 0));
+		this.buffer.putLong(seed);
+	}
+
+	/**
+	 * Records a tick.
+	 * 
+	 * @param keyMask
+	 *            Keys held, as an input manager key mask.
+	 * @param checksum
+	 *            Checksums of the state after the tick.
+	 */
+	public void record(final int keyMask, final StateChecksum checksum) {
+		ensureRoom(1 + StateChecksum.BYTES);
+		this.buffer.put((byte) keyMask);
+		checksum.write(this.buffer);
+	}
+
+	/**
+	 * Gives up on the replay, because the game went somewhere its inputs
+	 * don't lead to, as when it was rewound or resumed.
+	 */
+	public void discard() {
+		if (!this.discarded)
+			this.logger.info("This game can't be played back as a ghost.");
+		this.discarded = true;
+	}
+
+	/**
+	 * Checks if the replay plays the whole game back.
+	 * 
+	 * @return False if it was discarded.
+	 */
+	public boolean isComplete() {
+		return !this.discarded;
+	}
+
+	/**
+	 * Writes the replay as the one of the best game, on a background thread.
+	 * The previous best replay is only replaced once the new one is written.
+	 */
+	public void saveAsBest() {
+		byte[] replay = new byte[this.buffer.position()];
+		System.arraycopy(this.buffer.array(), 0, replay, 0, replay.length);
+		writeAsync(replay, new File(REPLAY_DIRECTORY), BEST_FILE);
+	}
+
+	/**
+	 * Submits a score with the replay that proves it, to be verified by
+	 * {@link ScoreVerifier}. Written on a background thread.
+	 * 
+	 * @param name
+	 *            Name of the player.
+	 * @param score
+	 *            Score claimed.
+	 */
+	public void submit(final String name, final int score) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer submission = ByteBuffer.allocate(4 + 2 + nameBytes.length
+				+ 4 + this.buffer.position());
+		submission.putInt(SUBMISSION_MAGIC);
+		submission.putShort((short) nameBytes.length);
+		submission.put(nameBytes);
+		submission.putInt(score);
+		submission.put(this.buffer.array(), 0, this.buffer.position());
+		writeAsync(submission.array(), new File(PENDING_DIRECTORY),
+				System.currentTimeMillis() + "-" + name + ".sub");
+	}
+
+	/**
+	 * Gets the file of the replay of the best game.
+	 * 
+	 * @return Best replay file, which may not exist.
+	 */
+	static File getBestFile() {
+		return new File(REPLAY_DIRECTORY, BEST_FILE);
+	}
+
+	/**
+	 * Grows the replay if it can't take some more bytes.
+	 * 
+	 * @param bytes
+	 *            Bytes about to be recorded.
+	 */
+	private void ensureRoom(final int bytes) {
+		if (this.buffer.remaining() >= bytes)
+			return;
+		ByteBuffer grown = ByteBuffer.allocate(this.buffer.capacity() * 2);
+		this.buffer.flip();
+		grown.put(this.buffer);
+		this.buffer = grown;
+	}
+
+	/**
+	 * Writes a file on a background thread.
+	 * 
+	 * @param contents
+	 *            Bytes to write.
+	 * @param directory
+	 *            Directory of the file, created if missing.
+	 * @param name
+	 *            Name of the file.
+	 */
+	private void writeAsync(final byte[] contents, final File directory,
+			final String name) {
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write(contents, directory, name);
+			}
+		}, "Replay writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes a file to a temporary one and moves it in place, so readers
+	 * never see it half written.
+	 * 
+	 * @param contents
+	 *            Bytes to write.
+	 * @param directory
+	 *            Directory of the file, created if missing.
+	 * @param name
+	 *            Name of the file.
+	 */
+	private void write(final byte[] contents, final File directory,
+			final String name) {
+		File file = new File(directory, name);
+		File temporary = new File(directory, name + ".tmp");
+		OutputStream output = null;
+
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Cannot create " + directory);
+			output = new FileOutputStream(temporary);
+			output.write(contents);
+			output.close();
+			output = null;
+			Files.move(temporary.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			this.logger.info("Replay of " + contents.length
+					+ " bytes written to " + file);
+		} catch (IOException e) {
+			this.logger.warning("Couldn't write replay: " + e);
+		} finally {
+			if (output != null)
+				try {
+					output.close();
+				} catch (IOException e) {
+					this.logger.warning("Couldn't close replay.");
+				}
+		}
+	}
+}
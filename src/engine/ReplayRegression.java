@@ -0,0 +1,567 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Plays a corpus of recorded games back and compares them with a baseline
+ * taken on an earlier build: how each game ended, and how fast and with how
+ * much allocation it played. The checksums in the replays catch the first
+ * tick that plays differently. Replays are played many at once, and both
+ * kinds of regression are reported. Allocation is the same on every run,
+ * so it is compared game by game; speed varies from run to run, so it is
+ * only compared over the whole corpus.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class ReplayRegression {
+
+	/** System property writing the baseline from this run. */
+	private static final String UPDATE_PROPERTY = "invaders.updateBaseline";
+	/** System property with the percentage a measure may get worse by. */
+	private static final String THRESHOLD_PROPERTY =
+			"invaders.regressionThreshold";
+	/** Percentage a measure may get worse by, by default. */
+	private static final int DEFAULT_THRESHOLD = 10;
+	/** File of the baseline, in the corpus directory. */
+	private static final String BASELINE_FILE = "baseline";
+	/** Extension of replays. */
+	private static final String REPLAY_EXTENSION = ".rpl";
+	/** System property with the times each game is played. */
+	private static final String RUNS_PROPERTY = "invaders.regressionRuns";
+	/** Times each game is played, by default. */
+	private static final int DEFAULT_RUNS = 3;
+	/** Ticks played before measuring, so the code is compiled. */
+	private static final long WARMUP_TICKS = 1000000;
+
+	/** Thread CPU time and allocation, null if not measurable. */
+	private static final ThreadMXBean THREADS = getThreads();
+
+	/**
+	 * Constructor, not called.
+	 */
+	private ReplayRegression() {
+
+	}
+
+	/**
+	 * Plays the corpus back and prints the report. Exits with 1 if any game
+	 * played differently or the whole corpus got slower.
+	 * 
+	 * @param args
+	 *            Corpus directory, and the threads to play back on, one per
+	 *            processor by default.
+	 */
+	public static void main(final String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			if (args.length > 1)
+				threads = Integer.parseInt(args[1]);
+		} catch (NumberFormatException e) {
+			threads = 0;
+		}
+		if (args.length < 1 || args.length > 2 || threads < 1) {
+			System.err.println("Usage: ReplayRegression <corpus> [threads]");
+			System.exit(1);
+		}
+		File corpus = new File(args[0]);
+		File[] replays = corpus.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File file) {
+				return file.getName().endsWith(REPLAY_EXTENSION)
+						|| file.getName().endsWith(
+								ScoreVerifier.SUBMISSION_EXTENSION);
+			}
+		});
+		if (replays == null || replays.length == 0) {
+			System.err.println("No replays in " + corpus);
+			System.exit(1);
+		}
+		Arrays.sort(replays);
+		int threshold = Integer.getInteger(THRESHOLD_PROPERTY,
+				DEFAULT_THRESHOLD);
+		final int runs = Math.max(1, Integer.getInteger(RUNS_PROPERTY,
+				DEFAULT_RUNS));
+		Map<String, Measure> baseline;
+		try {
+			baseline = loadBaseline(new File(corpus, BASELINE_FILE));
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Couldn't read the baseline: " + e);
+			baseline = new TreeMap<String, Measure>();
+		}
+
+		ReplayPlayback.prepare();
+		for (long ticks = 0; ticks < WARMUP_TICKS;) {
+			Measure warmup = measure(replays[0], 1);
+			if (warmup.error != null)
+				break;
+			ticks += warmup.ticks;
+		}
+
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Measure>> futures = new ArrayList<Future<Measure>>();
+		for (final File replay : replays)
+			futures.add(executor.submit(new Callable<Measure>() {
+				@Override
+				public Measure call() {
+					return measure(replay, runs);
+				}
+			}));
+		Map<String, Measure> measures = new TreeMap<String, Measure>();
+		for (int i = 0; i < replays.length; i++)
+			try {
+				measures.put(replays[i].getName(), futures.get(i).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				measures.put(replays[i].getName(), new Measure("crashed: "
+						+ e.getCause(), 0));
+			}
+		executor.shutdown();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		boolean failed = report(measures, baseline, threshold, runs,
+				seconds, threads);
+		if (Boolean.getBoolean(UPDATE_PROPERTY)) {
+			try {
+				saveBaseline(new File(corpus, BASELINE_FILE), measures);
+			} catch (IOException e) {
+				System.err.println("Couldn't write the baseline: " + e);
+				System.exit(1);
+			}
+		} else if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Plays a replay back on the current thread a few times, measuring the
+	 * fastest run, as the others were slowed down by something else.
+	 * 
+	 * @param file
+	 *            Replay or submission file.
+	 * @param runs
+	 *            Times to play it.
+	 * @return How the game ended and what it cost.
+	 */
+	private static Measure measure(final File file, final int runs) {
+		ByteBuffer replay;
+		try {
+			replay = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			if (file.getName().endsWith(ScoreVerifier.SUBMISSION_EXTENSION))
+				replay = ScoreVerifier.readReplay(replay);
+		} catch (IOException | BufferUnderflowException e) {
+			return new Measure("unreadable: " + e, 0);
+		}
+
+		Measure fastest = null;
+		for (int run = 0; run < runs; run++) {
+			ReplayPlayback playback = null;
+			long cpuTime = getCpuTime();
+			long allocated = getAllocatedBytes();
+			try {
+				playback = new ReplayPlayback(new ReplayReader(
+						replay.duplicate()));
+				GameState gameState = playback.play();
+				cpuTime = getCpuTime() - cpuTime;
+				if (allocated >= 0)
+					allocated = getAllocatedBytes() - allocated;
+				if (fastest == null) {
+					fastest = new Measure(gameState, playback.getTicks(),
+							cpuTime, allocated);
+				} else if (!ReplayPlayback.sameState(gameState,
+						fastest.gameState)) {
+					// Something outside the replay changed the game.
+					return new Measure("ended differently on run "
+							+ (run + 1) + ", " + describe(gameState),
+							playback.getTicks());
+				} else {
+					fastest.cpuTime = Math.min(fastest.cpuTime, cpuTime);
+					fastest.allocated = Math.min(fastest.allocated,
+							allocated);
+				}
+			} catch (IOException | BufferUnderflowException e) {
+				return new Measure(e.getMessage(),
+						playback == null ? 0 : playback.getTicks());
+			}
+		}
+		return fastest;
+	}
+
+	/**
+	 * Prints the games that played differently or worse than the baseline,
+	 * and the totals.
+	 * 
+	 * @param measures
+	 *            Measures of this run, by replay name.
+	 * @param baseline
+	 *            Measures of the baseline, by replay name.
+	 * @param threshold
+	 *            Percentage a measure may get worse by.
+	 * @param runs
+	 *            Times each game was played.
+	 * @param seconds
+	 *            Time the run took.
+	 * @param threads
+	 *            Threads played back on.
+	 * @return True if a game played differently or the corpus got slower.
+	 */
+	private static boolean report(final Map<String, Measure> measures,
+			final Map<String, Measure> baseline, final int threshold,
+			final int runs, final double seconds, final int threads) {
+		int different = 0;
+		int added = 0;
+		int allocating = 0;
+		long ticks = 0;
+		Measure total = new Measure(null, 0, 0, 0);
+		Measure baselineTotal = new Measure(null, 0, 0, 0);
+
+		for (Map.Entry<String, Measure> entry : measures.entrySet()) {
+			String name = entry.getKey();
+			Measure measure = entry.getValue();
+			Measure base = baseline.get(name);
+			ticks += measure.ticks;
+			if (measure.error != null) {
+				different++;
+				System.out.println("DIFFERS  " + name + ": " + measure.error);
+			} else if (base == null) {
+				added++;
+				System.out.println("NEW      " + name + ": "
+						+ describe(measure.gameState));
+			} else if (measure.ticks != base.ticks
+					|| !ReplayPlayback.sameState(measure.gameState,
+							base.gameState)) {
+				different++;
+				System.out.println("DIFFERS  " + name + ": "
+						+ describe(measure.gameState) + " in "
+						+ measure.ticks + " ticks, baseline "
+						+ describe(base.gameState) + " in " + base.ticks);
+			} else {
+				total.add(measure);
+				baselineTotal.add(base);
+				String worse = compare(measure, base, threshold, false);
+				if (worse != null) {
+					allocating++;
+					System.out.println("ALLOCS   " + name + ": " + worse);
+				}
+			}
+		}
+		for (String name : baseline.keySet())
+			if (!measures.containsKey(name)) {
+				different++;
+				System.out.println("MISSING  " + name);
+			}
+
+		System.out.println(String.format("Played %d games %d times, %d ticks"
+				+ " in %.2f s on %d threads: %.0f ticks/s.", measures.size(),
+				runs, ticks * runs, seconds, threads, ticks * runs
+						/ seconds));
+		System.out.println(different + " played differently, " + added
+				+ " new, " + allocating + " allocating over the " + threshold
+				+ "% threshold.");
+		String worse = null;
+		if (total.ticks > 0) {
+			System.out.println(String.format("Same games: %.0f ticks per CPU"
+					+ " second (baseline %.0f), %.1f bytes per tick"
+					+ " (baseline %.1f).", total.getTicksPerSecond(),
+					baselineTotal.getTicksPerSecond(),
+					total.getBytesPerTick(), baselineTotal.getBytesPerTick()));
+			worse = compare(total, baselineTotal, threshold, true);
+			if (worse != null)
+				System.out.println("REGRESSION over the whole corpus: "
+						+ worse);
+		}
+		return different > 0 || worse != null;
+	}
+
+	/**
+	 * Compares the cost of some games with their baseline.
+	 * 
+	 * @param measure
+	 *            Measure of this run.
+	 * @param base
+	 *            Measure of the baseline.
+	 * @param threshold
+	 *            Percentage a measure may get worse by.
+	 * @param timed
+	 *            If enough was played to compare the speed too.
+	 * @return What got worse beyond the threshold, null if nothing did.
+	 */
+	private static String compare(final Measure measure, final Measure base,
+			final int threshold, final boolean timed) {
+		String worse = null;
+		double speed = change(measure.getTicksPerSecond(),
+				base.getTicksPerSecond());
+		if (timed && -speed > threshold)
+			worse = String.format("%.0f ticks/s, %.1f%% slower",
+					measure.getTicksPerSecond(), -speed);
+		if (measure.allocated >= 0 && base.allocated >= 0) {
+			double allocation = change(measure.getBytesPerTick(),
+					base.getBytesPerTick());
+			if (allocation > threshold) {
+				String more = String.format("%.1f bytes/tick, %.1f%% more",
+						measure.getBytesPerTick(), allocation);
+				worse = worse == null ? more : worse + ", " + more;
+			}
+		}
+		return worse;
+	}
+
+	/**
+	 * Calculates the change of a value, in percent.
+	 * 
+	 * @param value
+	 *            New value.
+	 * @param base
+	 *            Value it is compared with.
+	 * @return Percentage gained, zero if there is nothing to compare with.
+	 */
+	private static double change(final double value, final double base) {
+		if (base <= 0)
+			return 0;
+		return (value - base) * 100 / base;
+	}
+
+	/**
+	 * Describes how a game ended.
+	 * 
+	 * @param gameState
+	 *            State the game ended with.
+	 * @return Level, score and lives.
+	 */
+	private static String describe(final GameState gameState) {
+		return "level " + gameState.getLevel() + ", score "
+				+ gameState.getScore() + ", " + gameState.getLivesRemaining()
+				+ " lives";
+	}
+
+	/**
+	 * Reads the baseline of a corpus, one game per line.
+	 * 
+	 * @param file
+	 *            Baseline file.
+	 * @return Measures by replay name, empty if there is no baseline.
+	 * @throws IOException
+	 *             In case of reading problems.
+	 */
+	private static Map<String, Measure> loadBaseline(final File file)
+			throws IOException {
+		Map<String, Measure> baseline = new TreeMap<String, Measure>();
+		BufferedReader reader;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), StandardCharsets.UTF_8));
+		} catch (FileNotFoundException e) {
+			System.out.println("No baseline yet, every game is new.");
+			return baseline;
+		}
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split("\t");
+				GameState gameState = new GameState(
+						Integer.parseInt(values[1]),
+						Integer.parseInt(values[2]),
+						Integer.parseInt(values[3]),
+						Integer.parseInt(values[4]),
+						Integer.parseInt(values[5]));
+				baseline.put(values[0], new Measure(gameState,
+						Long.parseLong(values[6]), Long.parseLong(values[7]),
+						Long.parseLong(values[8])));
+			}
+		} finally {
+			reader.close();
+		}
+		return baseline;
+	}
+
+	/**
+	 * Writes the games that played back as the baseline of a corpus.
+	 * 
+	 * @param file
+	 *            Baseline file.
+	 * @param measures
+	 *            Measures of this run, by replay name.
+	 * @throws IOException
+	 *             In case of writing problems.
+	 */
+	private static void saveBaseline(final File file,
+			final Map<String, Measure> measures) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), StandardCharsets.UTF_8));
+		int saved = 0;
+		try {
+			for (Map.Entry<String, Measure> entry : measures.entrySet()) {
+				Measure measure = entry.getValue();
+				if (measure.error != null)
+					continue;
+				GameState gameState = measure.gameState;
+				writer.write(entry.getKey() + "\t" + gameState.getLevel()
+						+ "\t" + gameState.getScore() + "\t"
+						+ gameState.getLivesRemaining() + "\t"
+						+ gameState.getBulletsShot() + "\t"
+						+ gameState.getShipsDestroyed() + "\t"
+						+ measure.ticks + "\t" + measure.cpuTime + "\t"
+						+ measure.allocated);
+				writer.newLine();
+				saved++;
+			}
+		} finally {
+			writer.close();
+		}
+		System.out.println("Baseline of " + saved + " games written to "
+				+ file);
+	}
+
+	/**
+	 * Gets the thread management bean, if it measures CPU time and
+	 * allocation.
+	 * 
+	 * @return Thread bean, null if unsupported.
+	 */
+	private static ThreadMXBean getThreads() {
+		Object threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof ThreadMXBean))
+			return null;
+		ThreadMXBean bean = (ThreadMXBean) threads;
+		if (!bean.isCurrentThreadCpuTimeSupported()
+				|| !bean.isThreadAllocatedMemorySupported())
+			return null;
+		return bean;
+	}
+
+	/**
+	 * Gets the CPU time of the current thread, so games played at once are
+	 * measured apart.
+	 * 
+	 * @return CPU time in nanoseconds, elapsed time if unsupported.
+	 */
+	private static long getCpuTime() {
+		if (THREADS == null)
+			return System.nanoTime();
+		return THREADS.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread.
+	 * 
+	 * @return Bytes allocated so far, -1 if unsupported.
+	 */
+	private static long getAllocatedBytes() {
+		if (THREADS == null)
+			return -1;
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * How a game ended and what it cost to play back.
+	 */
+	private static final class Measure {
+		/** State the game ended with, null if it didn't play back. */
+		private final GameState gameState;
+		/** Why the game didn't play back, null if it did. */
+		private final String error;
+		/** Ticks played. */
+		private long ticks;
+		/** CPU time taken, in nanoseconds. */
+		private long cpuTime;
+		/** Bytes allocated, -1 if unknown. */
+		private long allocated;
+
+		/**
+		 * Constructor, for a game that played back.
+		 * 
+		 * @param gameState
+		 *            State the game ended with.
+		 * @param ticks
+		 *            Ticks played.
+		 * @param cpuTime
+		 *            CPU time taken, in nanoseconds.
+		 * @param allocated
+		 *            Bytes allocated, -1 if unknown.
+		 */
+		private Measure(final GameState gameState, final long ticks,
+				final long cpuTime, final long allocated) {
+			this.gameState = gameState;
+			this.error = null;
+			this.ticks = ticks;
+			this.cpuTime = cpuTime;
+			this.allocated = allocated;
+		}
+
+		/**
+		 * Constructor, for a game that didn't play back.
+		 * 
+		 * @param error
+		 *            Why it didn't.
+		 * @param ticks
+		 *            Ticks played until then.
+		 */
+		private Measure(final String error, final long ticks) {
+			this.gameState = null;
+			this.error = error;
+			this.ticks = ticks;
+			this.allocated = -1;
+		}
+
+		/**
+		 * Adds the cost of another game to this one.
+		 * 
+		 * @param measure
+		 *            Measure of the other game.
+		 */
+		private void add(final Measure measure) {
+			this.ticks += measure.ticks;
+			this.cpuTime += measure.cpuTime;
+			if (this.allocated >= 0 && measure.allocated >= 0)
+				this.allocated += measure.allocated;
+			else
+				this.allocated = -1;
+		}
+
+		/**
+		 * @return Ticks played per second of CPU time.
+		 */
+		private double getTicksPerSecond() {
+			return this.cpuTime > 0 ? this.ticks * 1e9 / this.cpuTime : 0;
+		}
+
+		/**
+		 * @return Bytes allocated per tick, -1 if unknown.
+		 */
+		private double getBytesPerTick() {
+			if (this.allocated < 0 || this.ticks == 0)
+				return -1;
+			return (double) this.allocated / this.ticks;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package engine;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Plays back the replay of the best game. The reader thread reads the file a
+ * chunk at a time into a 32 KB ring, ahead of the game thread taking the
+ * inputs out, so the replay is never loaded whole and the game doesn't wait
+ * on the disk.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class ReplayStream extends Thread implements Replay {
+
+	/** Bytes the ring holds, a minute and a half at six bytes a tick. */
+	private static final int CAPACITY = 32 * 1024;
+	/** Most bytes read at once. */
+	private static final int CHUNK_BYTES = 1024;
+	/** Time the reader waits while the ring is full. */
+	private static final long FILL_INTERVAL = TimeUnit.MILLISECONDS
+			.toNanos(20);
+	/** Time the game thread waits for the reader when the ring is empty. */
+	private static final long UNDERRUN_WAIT = TimeUnit.MICROSECONDS
+			.toNanos(100);
+
+	/** Application logger. */
+	private final Logger logger;
+	/** Replay file. */
+	private final File file;
+	/** Bytes read ahead. */
+	private final byte[] ring;
+	/** Mask to map byte counts to ring positions. */
+	private final int mask;
+	/** Bytes read from the file since the start, reader owned. */
+	private volatile long written;
+	/** Bytes taken since the start, game thread owned. */
+	private volatile long read;
+	/** If the reader got to the end of the replay. */
+	private volatile boolean ended;
+	/** If the reader keeps running. */
+	private volatile boolean running;
+	/** Times the game thread had to wait for the reader. */
+	private volatile long underruns;
+
+	/** Width of the screen, set before the first byte is read. */
+	private int width;
+	/** Height of the screen, set before the first byte is read. */
+	private int height;
+	/** Frames per second, set before the first byte is read. */
+	private int fps;
+	/** State the last level found starts with. */
+	private GameState gameState;
+	/** If a bonus life was awarded on the last level found. */
+	private boolean bonusLife;
+	/** Seed of the random numbers of the last level found. */
+	private long seed;
+	/** Checksums recorded after the last input taken. */
+	private final byte[] checksums;
+
+	/**
+	 * Constructor, the thread is not started.
+	 * 
+	 * @param file
+	 *            Replay file.
+	 */
+	private ReplayStream(final File file) {
+		super("Replay reader");
+		setDaemon(true);
+		this.logger = Core.getLogger();
+		this.file = file;
+		this.ring = new byte[CAPACITY];
+		this.mask = CAPACITY - 1;
+		this.checksums = new byte[StateChecksum.BYTES];
+		this.running = true;
+	}
+
+	/**
+	 * Starts reading the replay of the best game.
+	 * 
+	 * @return Stream of the best replay, null if there is none.
+	 */
+	public static ReplayStream openBest() {
+		File file = ReplayRecorder.getBestFile();
+		if (!file.exists())
+			return null;
+		ReplayStream stream = new ReplayStream(file);
+		stream.start();
+		return stream;
+	}
+
+	@Override
+	public boolean seekLevel(final int level) {
+		while (true) {
+			int next = peek();
+			if (next < 0)
+				return false;
+			take();
+			if (next != ReplayRecorder.LEVEL_MARKER) {
+				if (!readChecksums())
+					return false;
+				continue;
+			}
+
+			ByteBuffer header = ByteBuffer
+					.allocate(ReplayRecorder.LEVEL_HEADER_BYTES);
+			for (int i = 0; i < ReplayRecorder.LEVEL_HEADER_BYTES; i++) {
+				int value = peek();
+				if (value < 0)
+					return false;
+				take();
+				header.put((byte) value);
+			}
+			header.flip();
+			this.gameState = GameState.restore(header);
+			this.bonusLife = header.get() != 0;
+			this.seed = header.getLong();
+			if (this.gameState.getLevel() >= level)
+				return this.gameState.getLevel() == level;
+		}
+	}
+
+	@Override
+	public int nextInput() {
+		int next = peek();
+		if (next < 0 || next == ReplayRecorder.LEVEL_MARKER)
+			return -1;
+		take();
+		return readChecksums() ? next : -1;
+	}
+
+	@Override
+	public byte[] getChecksums() {
+		return this.checksums;
+	}
+
+	@Override
+	public GameState getGameState() {
+		return this.gameState;
+	}
+
+	@Override
+	public boolean hasBonusLife() {
+		return this.bonusLife;
+	}
+
+	@Override
+	public long getSeed() {
+		return this.seed;
+	}
+
+	@Override
+	public int getWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getHeight() {
+		return this.height;
+	}
+
+	@Override
+	public int getFps() {
+		return this.fps;
+	}
+
+	/**
+	 * Getter for the underruns.
+	 * 
+	 * @return Times the game waited for the replay to be read.
+	 */
+	public long getUnderruns() {
+		return this.underruns;
+	}
+
+	/**
+	 * Stops reading.
+	 */
+	public void shutdown() {
+		this.running = false;
+		LockSupport.unpark(this);
+	}
+
+	@Override
+	public void run() {
+		InputStream source = null;
+		byte[] chunk = new byte[CHUNK_BYTES];
+		try {
+			DataInputStream input = new DataInputStream(new FileInputStream(
+					this.file));
+			source = input;
+			if (input.readInt() != ReplayRecorder.MAGIC)
+				throw new IOException("not a replay");
+			short version = input.readShort();
+			if (version != ReplayRecorder.VERSION)
+				throw new IOException("version " + version + " instead of "
+						+ ReplayRecorder.VERSION);
+			this.width = input.readShort();
+			this.height = input.readShort();
+			this.fps = input.readShort();
+
+			while (this.running) {
+				int free = CAPACITY - (int) (this.written - this.read);
+				if (free < CHUNK_BYTES) {
+					LockSupport.parkNanos(this, FILL_INTERVAL);
+					continue;
+				}
+				int count = input.read(chunk);
+				if (count < 0)
+					break;
+				long position = this.written;
+				for (int i = 0; i < count; i++)
+					this.ring[(int) (position + i) & this.mask] = chunk[i];
+				this.written = position + count;
+			}
+		} catch (IOException e) {
+			this.logger.warning("Couldn't read replay " + this.file + ": "
+					+ e.getMessage());
+		} finally {
+			this.ended = true;
+			if (source != null)
+				try {
+					source.close();
+				} catch (IOException e) {
+					this.logger.fine("Couldn't close replay.");
+				}
+		}
+	}
+
+	/**
+	 * Looks at the next byte without taking it, waiting for the reader if it
+	 * fell behind.
+	 * 
+	 * @return Next byte, -1 at the end of the replay.
+	 */
+	private int peek() {
+		long position = this.read;
+		if (this.written == position) {
+			if (!this.ended) {
+				this.underruns++;
+				LockSupport.unpark(this);
+			}
+			while (this.written == position) {
+				// Bytes may arrive right before the end.
+				if (this.ended && this.written == position)
+					return -1;
+				LockSupport.parkNanos(UNDERRUN_WAIT);
+			}
+		}
+		return this.ring[(int) position & this.mask] & 0xFF;
+	}
+
+	/**
+	 * Takes the checksums of a tick.
+	 * 
+	 * @return False if the replay ends before them.
+	 */
+	private boolean readChecksums() {
+		for (int i = 0; i < this.checksums.length; i++) {
+			int value = peek();
+			if (value < 0)
+				return false;
+			take();
+			this.checksums[i] = (byte) value;
+		}
+		return true;
+	}
+
+	/**
+	 * Moves past the byte returned by {@link #peek()}.
+	 */
+	private void take() {
+		this.read++;
+		// The reader waits for room a chunk at a time.
+		if (CAPACITY - (this.written - this.read) == CHUNK_BYTES)
+			LockSupport.unpark(this);
+	}
+}
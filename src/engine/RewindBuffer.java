@@ -0,0 +1,335 @@
+package engine;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the state of the last ticks of a game, so play can be rewound. States
+ * are kept in groups starting with a keyframe; every other state is stored
+ * as its difference with the keyframe, XOR-ed and with the unchanged runs
+ * left out. Any state is then decoded from two records, and memory is
+ * bounded by the number of groups kept.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class RewindBuffer {
+
+	/** Initial room for the records of a group. */
+	private static final int INITIAL_GROUP_BYTES = 8 * 1024;
+	/** Initial room for a state, grown when it doesn't fit. */
+	private static final int INITIAL_STATE_BYTES = 4 * 1024;
+
+	/**
+	 * Keyframe and the states recorded after it.
+	 */
+	private static final class Group {
+		/** Encoded records, one after another. */
+		private byte[] data;
+		/** Start of each record in the data, and end of the last one. */
+		private final int[] offsets;
+		/** Number of records. */
+		private int count;
+
+		/**
+		 * Constructor, reserves room for a group.
+		 * 
+		 * @param records
+		 *            Most records in the group.
+		 */
+		private Group(final int records) {
+			this.data = new byte[INITIAL_GROUP_BYTES];
+			this.offsets = new int[records + 1];
+		}
+	}
+
+	/** Ticks between keyframes. */
+	private final int keyframeInterval;
+	/** Groups, used as a ring. */
+	private final Group[] groups;
+	/** Index of the oldest group. */
+	private int first;
+	/** Number of groups holding records. */
+	private int groupCount;
+	/** Keyframe of the newest group, decoded. */
+	private byte[] keyframe;
+	/** Length of the keyframe. */
+	private int keyframeLength;
+	/** Decoded state handed out by the last rewind. */
+	private byte[] decoded;
+	/** Position of the next byte to decode. */
+	private int readPosition;
+	/** State of the current tick, before encoding. */
+	private ByteBuffer state;
+
+	/**
+	 * Constructor, reserves room for the history.
+	 * 
+	 * @param ticks
+	 *            Ticks of history to keep, at least.
+	 * @param keyframeInterval
+	 *            Ticks between keyframes.
+	 */
+	public RewindBuffer(final int ticks, final int keyframeInterval) {
+		this.keyframeInterval = keyframeInterval;
+		// One more group so a full history survives starting a new one.
+		this.groups = new Group[(ticks + keyframeInterval - 1)
+				/ keyframeInterval + 1];
+		for (int i = 0; i < this.groups.length; i++)
+			this.groups[i] = new Group(keyframeInterval);
+		this.keyframe = new byte[0];
+		this.decoded = new byte[0];
+		this.state = ByteBuffer.allocate(INITIAL_STATE_BYTES);
+	}
+
+	/**
+	 * Adds the state of the current tick, dropping the oldest group if the
+	 * history is full.
+	 * 
+	 * @param source
+	 *            Game to record.
+	 */
+	public void record(final Saveable source) {
+		while (true) {
+			this.state.clear();
+			try {
+				source.save(this.state);
+				break;
+			} catch (BufferOverflowException e) {
+				this.state = ByteBuffer.allocate(this.state.capacity() * 2);
+			}
+		}
+		byte[] bytes = this.state.array();
+		int length = this.state.position();
+
+		Group group = this.groupCount == 0 ? null : newest();
+		if (group == null || group.count == this.keyframeInterval) {
+			if (this.groupCount == this.groups.length) {
+				this.first = (this.first + 1) % this.groups.length;
+				this.groupCount--;
+			}
+			group = this.groups[(this.first + this.groupCount)
+					% this.groups.length];
+			group.count = 0;
+			this.groupCount++;
+			if (this.keyframe.length < length)
+				this.keyframe = new byte[length];
+			System.arraycopy(bytes, 0, this.keyframe, 0, length);
+			this.keyframeLength = length;
+		}
+
+		int start = group.offsets[group.count];
+		// Worst case, runs of a single byte.
+		int needed = start + 2 * length + 10;
+		if (group.data.length < needed) {
+			byte[] grown = new byte[Math.max(needed, group.data.length * 2)];
+			System.arraycopy(group.data, 0, grown, 0, start);
+			group.data = grown;
+		}
+		// The keyframe is encoded against nothing, so it stays whole.
+		int end = group.count == 0 ? encode(bytes, length, null, 0,
+				group.data, start) : encode(bytes, length, this.keyframe,
+				this.keyframeLength, group.data, start);
+		group.count++;
+		group.offsets[group.count] = end;
+	}
+
+	/**
+	 * Drops the newest states and returns the one recorded before them.
+	 * 
+	 * @param ticks
+	 *            Ticks to go back, fewer if the history is shorter.
+	 * @return State of the tick gone back to, valid until the next call, or
+	 *         null if there is no older state.
+	 */
+	public ByteBuffer rewind(final int ticks) {
+		if (getTicks() < 2)
+			return null;
+		Group group = newest();
+		for (int i = 0; i < ticks && getTicks() > 1; i++) {
+			group.count--;
+			if (group.count == 0) {
+				this.groupCount--;
+				group = newest();
+				// New states are encoded against the keyframe of this group.
+				this.keyframeLength = decode(group, 0, null, 0);
+				if (this.keyframe.length < this.keyframeLength)
+					this.keyframe = new byte[this.keyframeLength];
+				System.arraycopy(this.decoded, 0, this.keyframe, 0,
+						this.keyframeLength);
+			}
+		}
+
+		int length;
+		if (group.count == 1) {
+			length = decode(group, 0, null, 0);
+		} else {
+			length = decode(group, group.count - 1, this.keyframe,
+					this.keyframeLength);
+		}
+		return ByteBuffer.wrap(this.decoded, 0, length);
+	}
+
+	/**
+	 * Forgets every state.
+	 */
+	public void clear() {
+		this.groupCount = 0;
+	}
+
+	/**
+	 * Getter for the history length.
+	 * 
+	 * @return Ticks recorded and not dropped.
+	 */
+	public int getTicks() {
+		if (this.groupCount == 0)
+			return 0;
+		return (this.groupCount - 1) * this.keyframeInterval
+				+ newest().count;
+	}
+
+	/**
+	 * Calculates the memory held by the history.
+	 * 
+	 * @return Bytes of the encoded records and work arrays.
+	 */
+	public long getMemoryUsed() {
+		long bytes = this.keyframe.length + this.decoded.length
+				+ this.state.capacity();
+		for (Group group : this.groups)
+			bytes += group.data.length + group.offsets.length * 4L;
+		return bytes;
+	}
+
+	/**
+	 * Returns the group holding the newest state.
+	 * 
+	 * @return Newest group, the buffer must not be empty.
+	 */
+	private Group newest() {
+		return this.groups[(this.first + this.groupCount - 1)
+				% this.groups.length];
+	}
+
+	/**
+	 * Encodes a state as its XOR with a reference. The output is the state
+	 * length, then pairs of unchanged and changed runs, each run length
+	 * followed by the changed bytes XOR-ed with the reference.
+	 * 
+	 * @param state
+	 *            Bytes of the state, from the start.
+	 * @param length
+	 *            Length of the state.
+	 * @param reference
+	 *            Reference state, null for none; missing bytes count as
+	 *            zero.
+	 * @param referenceLength
+	 *            Length of the reference.
+	 * @param output
+	 *            Array to encode into, with enough room.
+	 * @param start
+	 *            First byte to write.
+	 * @return End of the encoded record.
+	 */
+	private static int encode(final byte[] state, final int length,
+			final byte[] reference, final int referenceLength,
+			final byte[] output, final int start) {
+		int out = writeLength(output, start, length);
+		int i = 0;
+		while (i < length) {
+			int unchanged = i;
+			while (unchanged < length && unchanged < referenceLength
+					&& state[unchanged] == reference[unchanged])
+				unchanged++;
+			int changed = unchanged;
+			while (changed < length && (changed >= referenceLength
+					|| state[changed] != reference[changed]))
+				changed++;
+			out = writeLength(output, out, unchanged - i);
+			out = writeLength(output, out, changed - unchanged);
+			for (int j = unchanged; j < changed; j++)
+				output[out++] = (byte) (state[j] ^ (j
+						< referenceLength ? reference[j] : 0));
+			i = changed;
+		}
+		return out;
+	}
+
+	/**
+	 * Decodes a record of a group into the decoded state.
+	 * 
+	 * @param group
+	 *            Group of the record.
+	 * @param record
+	 *            Index of the record in the group.
+	 * @param reference
+	 *            Reference it was encoded against, null for none.
+	 * @param referenceLength
+	 *            Length of the reference.
+	 * @return Length of the decoded state.
+	 */
+	private int decode(final Group group, final int record,
+			final byte[] reference, final int referenceLength) {
+		byte[] data = group.data;
+		this.readPosition = group.offsets[record];
+		int length = readLength(data);
+		if (this.decoded.length < length)
+			this.decoded = new byte[length];
+		int i = 0;
+		while (i < length) {
+			int unchanged = readLength(data);
+			if (unchanged > 0)
+				System.arraycopy(reference, i, this.decoded, i, unchanged);
+			i += unchanged;
+			int changed = readLength(data);
+			for (int end = i + changed; i < end; i++)
+				this.decoded[i] = (byte) (data[this.readPosition++] ^ (i
+						< referenceLength ? reference[i] : 0));
+		}
+		return length;
+	}
+
+	/**
+	 * Writes a non negative length in 7 bit groups.
+	 * 
+	 * @param output
+	 *            Array to write to.
+	 * @param start
+	 *            First byte to write.
+	 * @param value
+	 *            Length to write.
+	 * @return Byte after the length.
+	 */
+	private static int writeLength(final byte[] output, final int start,
+			final int value) {
+		int out = start;
+		int rest = value;
+		while (rest >= 0x80) {
+			output[out++] = (byte) (rest | 0x80);
+			rest >>>= 7;
+		}
+		output[out++] = (byte) rest;
+		return out;
+	}
+
+	/**
+	 * Reads a length written by {@link #writeLength(byte[], int, int)} at
+	 * the read position, moving past it.
+	 * 
+	 * @param data
+	 *            Array to read from.
+	 * @return Length read.
+	 */
+	private int readLength(final byte[] data) {
+		int value = 0;
+		int shift = 0;
+		byte current;
+		do {
+			current = data[this.readPosition++];
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while (current < 0);
+		return value;
+	}
+}
@@ -0,0 +1,309 @@
+package engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the game in progress every few seconds, so it can be resumed after
+ * the process dies. The game thread only copies its state to a buffer; a
+ * background thread writes it, alternating between two files so a write cut
+ * halfway always leaves the previous save intact.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class SaveStateManager {
+
+	/** First bytes of every save. */
+	static final int MAGIC = 0x494E5653;
+	/** Version of the save layout. */
+	static final short VERSION = 1;
+
+	/** System property with the seconds between saves, zero disables. */
+	private static final String INTERVAL_PROPERTY = "invaders.saveInterval";
+	/** Seconds between saves by default. */
+	private static final int DEFAULT_INTERVAL = 5;
+	/** Directory the saves are written to. */
+	private static final String SAVE_DIRECTORY = "saves";
+	/** Number of save files written in turns. */
+	private static final int FILES = 2;
+	/** Initial room for the state, grown when it doesn't fit. */
+	private static final int INITIAL_CAPACITY = 16 * 1024;
+
+	/** Singleton instance of the class. */
+	private static SaveStateManager instance;
+
+	/** Application logger. */
+	private Logger logger;
+	/** Milliseconds between saves, zero if disabled. */
+	private final int interval;
+	/** Buffers the state is copied to, one per file. */
+	private final ByteBuffer[] buffers;
+	/** Number of the last save, continued from the files on disk. */
+	private long sequence;
+	/** Saves handed to the writer, game thread owned. */
+	private long requested;
+	/** Saves the writer finished with. */
+	private volatile long completed;
+	/** Thread writing saves to disk. */
+	private ExecutorService saveWriter;
+
+	/**
+	 * Private constructor.
+	 */
+	private SaveStateManager() {
+		this.logger = Core.getLogger();
+		this.interval = Math.max(0, Integer.getInteger(INTERVAL_PROPERTY,
+				DEFAULT_INTERVAL)) * 1000;
+		this.buffers = new ByteBuffer[FILES];
+		for (int i = 0; i < FILES; i++)
+			this.buffers[i] = ByteBuffer.allocate(INITIAL_CAPACITY);
+		for (int i = 0; i < FILES; i++) {
+			Save save = read(getFile(i));
+			if (save != null)
+				this.sequence = Math.max(this.sequence, save.sequence);
+		}
+		// Started now rather than on the first save, during a tick.
+		if (this.interval > 0)
+			getWriter();
+	}
+
+	/**
+	 * Returns shared instance of SaveStateManager.
+	 * 
+	 * @return Shared instance of SaveStateManager.
+	 */
+	protected static synchronized SaveStateManager getInstance() {
+		if (instance == null)
+			instance = new SaveStateManager();
+		return instance;
+	}
+
+	/**
+	 * Getter for the time between saves.
+	 * 
+	 * @return Milliseconds of game time between saves, zero if disabled.
+	 */
+	public int getInterval() {
+		return this.interval;
+	}
+
+	/**
+	 * Copies the state of a game and writes it on a background thread. If
+	 * the last two saves are still being written, this one is skipped.
+	 * Called by the game thread only.
+	 * 
+	 * @param source
+	 *            Game to save.
+	 * @return True if the save was handed to the writer.
+	 */
+	public boolean saveAsync(final Saveable source) {
+		if (this.requested - this.completed >= FILES) {
+			this.logger.fine("Saves are writing slowly, skipping one.");
+			return false;
+		}
+
+		int index = (int) ((this.sequence + 1) % FILES);
+		ByteBuffer buffer = this.buffers[index];
+		while (true) {
+			buffer.clear();
+			try {
+				source.save(buffer);
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+				this.buffers[index] = buffer;
+			}
+		}
+		buffer.flip();
+
+		final ByteBuffer state = buffer;
+		final long number = ++this.sequence;
+		this.requested++;
+		getWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write(state, number);
+				} finally {
+					completed++;
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Reads the newest valid save.
+	 * 
+	 * @return State of the saved game, null if there is none.
+	 */
+	public ByteBuffer loadLatest() {
+		Save latest = null;
+		for (int i = 0; i < FILES; i++) {
+			Save save = read(getFile(i));
+			if (save != null
+					&& (latest == null || save.sequence > latest.sequence))
+				latest = save;
+		}
+		if (latest == null)
+			return null;
+		this.logger.info("Loaded save " + latest.sequence + ".");
+		return ByteBuffer.wrap(latest.state);
+	}
+
+	/**
+	 * Deletes the saves, after the saves still being written.
+	 */
+	public void clear() {
+		getWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < FILES; i++) {
+					File file = getFile(i);
+					if (file.exists() && !file.delete())
+						logger.warning("Couldn't delete " + file);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the thread writing saves, starting it the first time.
+	 * 
+	 * @return Save writer.
+	 */
+	private synchronized ExecutorService getWriter() {
+		if (this.saveWriter == null)
+			this.saveWriter = Executors.newSingleThreadExecutor(
+					new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(runnable, "Save writer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		return this.saveWriter;
+	}
+
+	/**
+	 * Writes a save over the older of the two files.
+	 * 
+	 * @param state
+	 *            State of the game, from position to limit.
+	 * @param number
+	 *            Number of the save.
+	 */
+	private void write(final ByteBuffer state, final long number) {
+		File directory = new File(SAVE_DIRECTORY);
+		File file = getFile((int) (number % FILES));
+		CRC32 checksum = new CRC32();
+		checksum.update(state.duplicate());
+		DataOutputStream output = null;
+
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Cannot create " + directory);
+			output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			output.writeInt(MAGIC);
+			output.writeShort(VERSION);
+			output.writeLong(number);
+			output.writeInt(state.remaining());
+			output.writeInt((int) checksum.getValue());
+			output.write(state.array(), state.arrayOffset()
+					+ state.position(), state.remaining());
+			this.logger.fine("Save " + number + " written to " + file);
+		} catch (IOException e) {
+			this.logger.warning("Couldn't write save: " + e);
+		} finally {
+			if (output != null)
+				try {
+					output.close();
+				} catch (IOException e) {
+					this.logger.warning("Couldn't close save.");
+				}
+		}
+	}
+
+	/**
+	 * Reads a save file, checking it is complete.
+	 * 
+	 * @param file
+	 *            File to read.
+	 * @return Save in the file, null if missing, of another version or
+	 *         damaged.
+	 */
+	private Save read(final File file) {
+		if (!file.exists())
+			return null;
+		DataInputStream input = null;
+
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			if (input.readInt() != MAGIC)
+				throw new IOException("not a save");
+			short version = input.readShort();
+			if (version != VERSION)
+				throw new IOException("version " + version + " instead of "
+						+ VERSION);
+			Save save = new Save();
+			save.sequence = input.readLong();
+			int length = input.readInt();
+			int expected = input.readInt();
+			if (length < 0 || length > file.length())
+				throw new IOException("bad length " + length);
+			save.state = new byte[length];
+			input.readFully(save.state);
+			CRC32 checksum = new CRC32();
+			checksum.update(save.state);
+			if ((int) checksum.getValue() != expected)
+				throw new IOException("checksum mismatch");
+			return save;
+		} catch (IOException e) {
+			this.logger.warning("Ignoring save " + file + ": " + e);
+			return null;
+		} finally {
+			if (input != null)
+				try {
+					input.close();
+				} catch (IOException e) {
+					this.logger.warning("Couldn't close save.");
+				}
+		}
+	}
+
+	/**
+	 * Returns one of the save files.
+	 * 
+	 * @param index
+	 *            Number of the file.
+	 * @return Save file.
+	 */
+	private static File getFile(final int index) {
+		return new File(SAVE_DIRECTORY, "save-" + index + ".bin");
+	}
+
+	/**
+	 * Save read from disk.
+	 */
+	private static final class Save {
+		/** Number of the save. */
+		private long sequence;
+		/** State of the game. */
+		private byte[] state;
+	}
+}
@@ -0,0 +1,20 @@
+package engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes its state to a save, to be restored later.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public interface Saveable {
+
+	/**
+	 * Writes the whole state at the position of a buffer.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to, may overflow if too small.
+	 */
+	void save(ByteBuffer buffer);
+}
@@ -12,9 +12,11 @@ public class Score implements Comparable<Score> {
 	private String name;
 	/** Score points. */
 	private int score;
+	/** If a replay of the game was played back and scored the same. */
+	private boolean verified;
 
 	/**
-	 * Constructor.
+	 * Constructor, for a score not verified.
 	 * 
 	 * @param name
 	 *            Player name, three letters.
@@ -22,8 +24,24 @@ public class Score implements Comparable<Score> {
 	 *            Player score.
 	 */
 	public Score(final String name, final int score) {
+		this(name, score, false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 *            Player name, three letters.
+	 * @param score
+	 *            Player score.
+	 * @param verified
+	 *            If a replay of the game was played back and scored the
+	 *            same.
+	 */
+	public Score(final String name, final int score, final boolean verified) {
 		this.name = name;
 		this.score = score;
+		this.verified = verified;
 	}
 
 	/**
@@ -44,6 +62,15 @@ public class Score implements Comparable<Score> {
 		return this.score;
 	}
 
+	/**
+	 * Checks if the score was verified by playing its replay back.
+	 * 
+	 * @return True if the score is verified.
+	 */
+	public final boolean isVerified() {
+		return this.verified;
+	}
+
 	/**
 	 * Orders the scores descending by score.
 	 * 
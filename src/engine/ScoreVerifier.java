@@ -0,0 +1,268 @@
+package engine;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies submitted scores by playing their replays back, many at once and
+ * without drawing, and saves the verified ones apart from the high scores,
+ * which only show as verified the scores found there.
+ * A score is only accepted if its replay plays the whole game the same way
+ * the game would, level after level, and ends with that score.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class ScoreVerifier {
+
+	/** Directory of the scores verified. */
+	private static final String VERIFIED_DIRECTORY = "submissions/verified";
+	/** Directory of the scores rejected. */
+	private static final String REJECTED_DIRECTORY = "submissions/rejected";
+	/** Extension of score submissions. */
+	static final String SUBMISSION_EXTENSION = ".sub";
+
+	/**
+	 * Constructor, not called.
+	 */
+	private ScoreVerifier() {
+
+	}
+
+	/**
+	 * Verifies the pending submissions.
+	 *
+	 * @param args
+	 *            Threads to play back on, one per processor by default.
+	 */
+	public static void main(final String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			if (args.length > 0)
+				threads = Integer.parseInt(args[0]);
+		} catch (NumberFormatException e) {
+			threads = 0;
+		}
+		if (args.length > 1 || threads < 1) {
+			System.err.println("Usage: ScoreVerifier [threads]");
+			System.exit(1);
+		}
+
+		File[] pending = new File(ReplayRecorder.PENDING_DIRECTORY)
+				.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File file) {
+				return file.getName().endsWith(SUBMISSION_EXTENSION);
+			}
+		});
+		if (pending == null || pending.length == 0) {
+			System.out.println("No scores to verify.");
+			saveVerifiedScores();
+			return;
+		}
+		Arrays.sort(pending);
+
+		ReplayPlayback.prepare();
+
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Verdict>> verdicts = new ArrayList<Future<Verdict>>();
+		for (final File file : pending)
+			verdicts.add(executor.submit(new Callable<Verdict>() {
+				@Override
+				public Verdict call() {
+					return verify(file);
+				}
+			}));
+
+		int accepted = 0;
+		long ticks = 0;
+		for (int i = 0; i < pending.length; i++) {
+			Verdict verdict;
+			try {
+				verdict = verdicts.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				verdict = new Verdict(0, "crashed: " + e.getCause());
+			}
+			ticks += verdict.ticks;
+			if (verdict.reason == null) {
+				accepted++;
+				System.out.println("Accepted " + pending[i].getName());
+				move(pending[i], VERIFIED_DIRECTORY);
+			} else {
+				System.out.println("Rejected " + pending[i].getName() + ": "
+						+ verdict.reason);
+				move(pending[i], REJECTED_DIRECTORY);
+			}
+		}
+		executor.shutdown();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(String.format("%d accepted, %d rejected in %.2f s"
+				+ " on %d threads: %.1f replays/s, %.0f ticks/s.", accepted,
+				pending.length - accepted, seconds, threads, pending.length
+						/ seconds, ticks / seconds));
+		saveVerifiedScores();
+	}
+
+	/**
+	 * Plays a submission back.
+	 *
+	 * @param file
+	 *            Submission file.
+	 * @return Verdict on the score.
+	 */
+	private static Verdict verify(final File file) {
+		ByteBuffer submission;
+		Score claimed;
+		try {
+			submission = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			claimed = readHeader(submission);
+		} catch (IOException | BufferUnderflowException e) {
+			return new Verdict(0, "unreadable: " + e);
+		}
+
+		ReplayPlayback playback = null;
+		try {
+			playback = new ReplayPlayback(new ReplayReader(submission.slice()));
+			int score = playback.play().getScore();
+			if (score != claimed.getScore())
+				return new Verdict(playback.getTicks(), claimed.getName()
+						+ " claimed " + claimed.getScore() + " but scored "
+						+ score);
+			return new Verdict(playback.getTicks(), null);
+		} catch (IOException | BufferUnderflowException e) {
+			return new Verdict(playback == null ? 0 : playback.getTicks(),
+					e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads a submission up to its replay.
+	 *
+	 * @param submission
+	 *            Submission, moved to the start of the replay.
+	 * @return Name of the player and score claimed.
+	 * @throws IOException
+	 *             If it isn't a submission.
+	 */
+	private static Score readHeader(final ByteBuffer submission)
+			throws IOException {
+		if (submission.getInt() != ReplayRecorder.SUBMISSION_MAGIC)
+			throw new IOException("not a submission");
+		byte[] name = new byte[submission.getShort()];
+		submission.get(name);
+		return new Score(new String(name, StandardCharsets.UTF_8),
+				submission.getInt());
+	}
+
+	/**
+	 * Gets the replay of a submission.
+	 *
+	 * @param submission
+	 *            Submission, from its start.
+	 * @return Replay of the submission, without the name and score.
+	 * @throws IOException
+	 *             If it isn't a submission.
+	 */
+	static ByteBuffer readReplay(final ByteBuffer submission)
+			throws IOException {
+		readHeader(submission);
+		return submission.slice();
+	}
+
+	/**
+	 * Builds the verified scores again from the submissions verified, so
+	 * a score is only shown as verified while its replay is there. A game
+	 * submitted more than once counts once.
+	 */
+	private static void saveVerifiedScores() {
+		File[] verified = new File(VERIFIED_DIRECTORY).listFiles();
+		if (verified == null)
+			verified = new File[0];
+		Arrays.sort(verified);
+		Set<ByteBuffer> replays = new HashSet<ByteBuffer>();
+		List<Score> scores = new ArrayList<Score>();
+		for (File file : verified)
+			try {
+				ByteBuffer submission = ByteBuffer.wrap(Files
+						.readAllBytes(file.toPath()));
+				Score score = readHeader(submission);
+				if (replays.add(submission.slice()))
+					scores.add(new Score(score.getName(), score.getScore(),
+							true));
+			} catch (IOException | BufferUnderflowException e) {
+				System.err.println(file + ": " + e);
+			}
+		Collections.sort(scores);
+		try {
+			Core.getFileManager().saveVerifiedScores(scores);
+			System.out.println(scores.size() + " verified scores saved.");
+		} catch (IOException e) {
+			System.err.println("Couldn't save verified scores: " + e);
+		}
+	}
+
+	/**
+	 * Moves a submission to another directory, created if missing.
+	 *
+	 * @param file
+	 *            Submission file.
+	 * @param directory
+	 *            Directory to move it to.
+	 */
+	private static void move(final File file, final String directory) {
+		File target = new File(directory);
+		try {
+			if (!target.isDirectory() && !target.mkdirs())
+				throw new IOException("Cannot create " + target);
+			Files.move(file.toPath(), new File(target, file.getName())
+					.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println(file + ": " + e);
+		}
+	}
+
+	/**
+	 * Outcome of playing a submission back.
+	 */
+	private static final class Verdict {
+		/** Ticks played back. */
+		private final long ticks;
+		/** Why the score was rejected, null if it was accepted. */
+		private final String reason;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param ticks
+		 *            Ticks played back.
+		 * @param reason
+		 *            Why the score was rejected, null if it was accepted.
+		 */
+		private Verdict(final long ticks, final String reason) {
+			this.ticks = ticks;
+			this.reason = reason;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package engine;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Manages sound effects and background music. Every effect is decoded to
+ * samples at startup, while music is decoded as it plays.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class SoundManager {
+
+	/** System property selecting the audio output, "off" for none. */
+	private static final String AUDIO_PROPERTY = "invaders.audio";
+	/** Maximum effects playing at once. */
+	private static final int MAX_VOICES = 8;
+	/** Loudness of the generated effects, out of 1. */
+	private static final double VOLUME = 0.3;
+
+	/** Singleton instance of the class. */
+	private static SoundManager instance;
+
+	/** Application logger. */
+	private Logger logger;
+	/** Mixer playing the effects. */
+	private AudioMixer mixer;
+	/** Player of the background music. */
+	private MusicPlayer musicPlayer;
+
+	/** Sound effects. */
+	public static enum Sound {
+		/** Player ship shot. */
+		Shoot,
+		/** Enemy ship destroyed. */
+		EnemyExplosion,
+		/** Player ship hit. */
+		PlayerHit,
+		/** Bonus ship appearance. */
+		BonusShip
+	};
+
+	/** Background music tracks. */
+	public static enum Music {
+		/** Title and high score screens. */
+		Title,
+		/** Game screen. */
+		Game,
+		/** Score screen. */
+		Score
+	};
+
+	/**
+	 * Private constructor, decodes the effects and starts the mixer.
+	 */
+	private SoundManager() {
+		this.logger = Core.getLogger();
+
+		Sound[] sounds = Sound.values();
+		short[][] bank = new short[sounds.length][];
+		for (Sound sound : sounds) {
+			try {
+				bank[sound.ordinal()] = Core.getFileManager().loadSound(
+						sound.name().toLowerCase());
+			} catch (IOException e) {
+				this.logger.warning("Couldn't load sound " + sound + ": "
+						+ e.getMessage());
+			}
+			// Effects without a file are generated.
+			if (bank[sound.ordinal()] == null)
+				bank[sound.ordinal()] = synthesize(sound);
+		}
+		this.logger.info("Finished loading the sounds.");
+
+		AudioOutput output;
+		if ("off".equalsIgnoreCase(System.getProperty(AUDIO_PROPERTY)))
+			output = new NullAudioOutput();
+		else
+			output = new LineAudioOutput();
+		this.musicPlayer = new MusicPlayer(AudioMixer.BLOCK_FRAMES);
+		this.mixer = new AudioMixer(output, bank, MAX_VOICES,
+				this.musicPlayer);
+		this.musicPlayer.start();
+		this.mixer.start();
+	}
+
+	/**
+	 * Returns shared instance of SoundManager.
+	 * 
+	 * @return Shared instance of SoundManager.
+	 */
+	protected static synchronized SoundManager getInstance() {
+		if (instance == null)
+			instance = new SoundManager();
+		return instance;
+	}
+
+	/**
+	 * Plays a sound effect. Returns immediately.
+	 * 
+	 * @param sound
+	 *            Effect to play.
+	 */
+	public void play(final Sound sound) {
+		this.mixer.play(sound.ordinal());
+	}
+
+	/**
+	 * Changes the background music, crossfading from the current track.
+	 * Returns immediately.
+	 * 
+	 * @param track
+	 *            Track to play, null for silence.
+	 */
+	public void playMusic(final Music track) {
+		this.musicPlayer.play(track);
+	}
+
+	/**
+	 * Getter for the player of the background music.
+	 * 
+	 * @return Application music player.
+	 */
+	public MusicPlayer getMusicPlayer() {
+		return this.musicPlayer;
+	}
+
+	/**
+	 * Getter for the mixer playing the effects.
+	 * 
+	 * @return Application audio mixer.
+	 */
+	public AudioMixer getMixer() {
+		return this.mixer;
+	}
+
+	/**
+	 * Generates the samples of an effect.
+	 * 
+	 * @param sound
+	 *            Effect to generate.
+	 * @return Samples, in the mixer format.
+	 */
+	private static short[] synthesize(final Sound sound) {
+		Random random = new Random(sound.ordinal());
+		int rate = AudioMixer.SAMPLE_RATE;
+		short[] samples;
+		double phase = 0;
+		double noise = 0;
+
+		switch (sound) {
+		case Shoot:
+			// Square wave falling from 1200 to 300 Hz.
+			samples = new short[rate * 120 / 1000];
+			for (int i = 0; i < samples.length; i++) {
+				double progress = (double) i / samples.length;
+				phase += (1200 - 900 * progress) / rate;
+				samples[i] = sample((phase % 1 < 0.5 ? 1 : -1)
+						* (1 - progress));
+			}
+			break;
+		case EnemyExplosion:
+			// Filtered noise fading out.
+			samples = new short[rate * 250 / 1000];
+			for (int i = 0; i < samples.length; i++) {
+				double progress = (double) i / samples.length;
+				noise += (random.nextDouble() * 2 - 1 - noise) * 0.3;
+				samples[i] = sample(noise * 2 * (1 - progress)
+						* (1 - progress));
+			}
+			break;
+		case PlayerHit:
+			// Noise over a square wave falling from 200 to 60 Hz.
+			samples = new short[rate / 2];
+			for (int i = 0; i < samples.length; i++) {
+				double progress = (double) i / samples.length;
+				phase += (200 - 140 * progress) / rate;
+				noise += (random.nextDouble() * 2 - 1 - noise) * 0.1;
+				samples[i] = sample(((phase % 1 < 0.5 ? 0.6 : -0.6) + noise)
+						* (1 - progress));
+			}
+			break;
+		default:
+			// Sine wave warbling around 600 Hz.
+			samples = new short[rate * 600 / 1000];
+			for (int i = 0; i < samples.length; i++) {
+				double time = (double) i / rate;
+				phase += (600 + 150 * Math.sin(2 * Math.PI * 8 * time))
+						/ rate;
+				samples[i] = sample(Math.sin(2 * Math.PI * phase) * 0.8);
+			}
+			break;
+		}
+		return samples;
+	}
+
+	/**
+	 * Converts a generated value to a sample.
+	 * 
+	 * @param value
+	 *            Value between -1 and 1.
+	 * @return Sample at the effect volume.
+	 */
+	private static short sample(final double value) {
+		return (short) (Math.max(-1, Math.min(1, value)) * VOLUME
+				* Short.MAX_VALUE);
+	}
+}
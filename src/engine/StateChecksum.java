@@ -0,0 +1,92 @@
+package engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Rolling checksums of the state of a level, one per part of the game. The
+ * values of each tick are mixed into the ones before, so two runs that
+ * drifted apart keep differing, and a byte of each is enough to tell on
+ * which tick and where.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class StateChecksum {
+
+	/** Odd constant spreading the bits of each value. */
+	private static final int MULTIPLIER = 0x9E3779B1;
+
+	/** Parts of the game checked. */
+	public static enum Component {
+		/** Position of the player's ship and if it is destroyed. */
+		SHIP,
+		/** Position of the formation and the ships destroyed. */
+		FORMATION,
+		/** Positions of the bullets. */
+		BULLETS,
+		/** Score, lives, bullets shot and ships destroyed. */
+		SCORE,
+		/** State of the random numbers. */
+		RANDOM
+	}
+
+	/** Every component, in the order their bytes are written. */
+	private static final Component[] COMPONENTS = Component.values();
+	/** Bytes written per tick, one per component. */
+	public static final int BYTES = COMPONENTS.length;
+
+	/** Current checksum of each component. */
+	private final int[] values;
+
+	/**
+	 * Constructor, starts every checksum from zero.
+	 */
+	public StateChecksum() {
+		this.values = new int[BYTES];
+	}
+
+	/**
+	 * Mixes a value into the checksum of a component.
+	 * 
+	 * @param component
+	 *            Part of the game the value belongs to.
+	 * @param value
+	 *            Value to add.
+	 */
+	public void add(final Component component, final int value) {
+		int index = component.ordinal();
+		int mixed = (this.values[index] ^ value) * MULTIPLIER;
+		this.values[index] = mixed ^ (mixed >>> 16);
+	}
+
+	/**
+	 * Writes the lowest byte of each checksum.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	public void write(final ByteBuffer buffer) {
+		for (int value : this.values)
+			buffer.put((byte) value);
+	}
+
+	/**
+	 * Compares the checksums with the ones written on another run.
+	 * 
+	 * @param recorded
+	 *            Lowest byte of each checksum, as written by
+	 *            {@link #write(ByteBuffer)}.
+	 * @return Names of the components that differ, null if none does.
+	 */
+	public String compare(final byte[] recorded) {
+		String different = null;
+		for (Component component : COMPONENTS)
+			if ((byte) this.values[component.ordinal()]
+					!= recorded[component.ordinal()]) {
+				String name = component.name().toLowerCase();
+				different = different == null ? name : different + ", "
+						+ name;
+			}
+		return different;
+	}
+}
@@ -0,0 +1,92 @@
+package engine;
+
+import java.io.InputStream;
+
+import engine.SoundManager.Music;
+
+/**
+ * Generates an endless track, for tracks without a music file when
+ * -Dinvaders.generatedMusic=true is set. Samples are produced as they are
+ * read, in the mixer format.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class SynthesizedMusic extends InputStream {
+
+	/** Loudness of the track, out of 1. */
+	private static final double VOLUME = 0.12;
+
+	/** Notes of the melody, in semitones over the base note. */
+	private final int[] notes;
+	/** Frequency of the base note, in hertz. */
+	private final double baseFrequency;
+	/** Samples each note lasts. */
+	private final int noteLength;
+
+	/** Samples generated. */
+	private long position;
+	/** Position on the current wave, from 0 to 1. */
+	private double phase;
+	/** Current sample. */
+	private short sample;
+	/** If the high byte of the current sample is next. */
+	private boolean highByte;
+
+	/**
+	 * Constructor, establishes the melody of a track.
+	 * 
+	 * @param track
+	 *            Track to generate.
+	 */
+	public SynthesizedMusic(final Music track) {
+		switch (track) {
+		case Title:
+			this.notes = new int[] { 0, 3, 7, 12, 7, 3 };
+			this.baseFrequency = 220;
+			this.noteLength = AudioMixer.SAMPLE_RATE / 5;
+			break;
+		case Game:
+			// The four falling steps of the arcade march.
+			this.notes = new int[] { 0, -2, -4, -5 };
+			this.baseFrequency = 110;
+			this.noteLength = AudioMixer.SAMPLE_RATE * 2 / 5;
+			break;
+		default:
+			this.notes = new int[] { 0, 4, 7, 12 };
+			this.baseFrequency = 262;
+			this.noteLength = AudioMixer.SAMPLE_RATE / 4;
+			break;
+		}
+	}
+
+	@Override
+	public int read() {
+		if (!this.highByte) {
+			this.sample = nextSample();
+			this.highByte = true;
+			return this.sample & 0xFF;
+		}
+		this.highByte = false;
+		return (this.sample >> 8) & 0xFF;
+	}
+
+	/**
+	 * Generates the next sample, a triangle wave fading out on each note.
+	 * 
+	 * @return Next sample.
+	 */
+	private short nextSample() {
+		int note = (int) (this.position / this.noteLength % this.notes.length);
+		double progress = (double) (this.position % this.noteLength)
+				/ this.noteLength;
+		double frequency = this.baseFrequency
+				* Math.pow(2, this.notes[note] / 12.0);
+
+		this.phase = (this.phase + frequency / AudioMixer.SAMPLE_RATE) % 1;
+		this.position++;
+		double wave = 4 * Math.abs(this.phase - 0.5) - 1;
+		return (short) (wave * (1 - progress * 0.7) * VOLUME
+				* Short.MAX_VALUE);
+	}
+}
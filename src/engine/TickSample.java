@@ -0,0 +1,141 @@
+package engine;
+
+/**
+ * Stores the values measured on a single tick of the screen loop. The same
+ * sample is refilled every tick.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public class TickSample {
+
+	/** Moment the tick started, in milliseconds. */
+	private long time;
+	/** Time since the previous tick started, in microseconds. */
+	private int frameMicros;
+	/** Time spent updating the screen, in microseconds. */
+	private int updateMicros;
+	/** Game keys pressed, as an input manager key mask. */
+	private int inputMask;
+	/** Enemy ships alive. */
+	private int enemies;
+	/** Bullets on screen. */
+	private int bullets;
+	/** Current score. */
+	private int score;
+	/** Lives remaining. */
+	private int lives;
+	/** Current level. */
+	private int level;
+
+	/**
+	 * Starts a new tick, clearing the screen dependent values.
+	 * 
+	 * @param time
+	 *            Moment the tick started, in milliseconds.
+	 * @param frameMicros
+	 *            Time since the previous tick started, in microseconds.
+	 * @param updateMicros
+	 *            Time spent updating the screen, in microseconds.
+	 * @param inputMask
+	 *            Game keys pressed.
+	 */
+	public final void reset(final long time, final int frameMicros,
+			final int updateMicros, final int inputMask) {
+		this.time = time;
+		this.frameMicros = frameMicros;
+		this.updateMicros = updateMicros;
+		this.inputMask = inputMask;
+		this.enemies = 0;
+		this.bullets = 0;
+		this.score = 0;
+		this.lives = 0;
+		this.level = 0;
+	}
+
+	/**
+	 * Sets the game dependent values.
+	 * 
+	 * @param enemies
+	 *            Enemy ships alive.
+	 * @param bullets
+	 *            Bullets on screen.
+	 * @param score
+	 *            Current score.
+	 * @param lives
+	 *            Lives remaining.
+	 * @param level
+	 *            Current level.
+	 */
+	public final void setGameValues(final int enemies, final int bullets,
+			final int score, final int lives, final int level) {
+		this.enemies = enemies;
+		this.bullets = bullets;
+		this.score = score;
+		this.lives = lives;
+		this.level = level;
+	}
+
+	/**
+	 * @return the time
+	 */
+	public final long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the frameMicros
+	 */
+	public final int getFrameMicros() {
+		return frameMicros;
+	}
+
+	/**
+	 * @return the updateMicros
+	 */
+	public final int getUpdateMicros() {
+		return updateMicros;
+	}
+
+	/**
+	 * @return the inputMask
+	 */
+	public final int getInputMask() {
+		return inputMask;
+	}
+
+	/**
+	 * @return the enemies
+	 */
+	public final int getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * @return the bullets
+	 */
+	public final int getBullets() {
+		return bullets;
+	}
+
+	/**
+	 * @return the score
+	 */
+	public final int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the lives
+	 */
+	public final int getLives() {
+		return lives;
+	}
+
+	/**
+	 * @return the level
+	 */
+	public final int getLevel() {
+		return level;
+	}
+}
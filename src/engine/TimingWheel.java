@@ -0,0 +1,328 @@
+package engine;
+
+/**
+ * Schedules timers on the tick clock of a game. Timers wait in a hierarchy of
+ * wheels, each slot a linked list, so scheduling, rescheduling and
+ * cancelling take constant time. Each tick only visits the timers due on it,
+ * plus the timers moved down from a farther wheel every few ticks.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class TimingWheel {
+
+	/** Bits of the tick each wheel covers. */
+	private static final int SLOT_BITS = 6;
+	/** Slots in each wheel. */
+	private static final int SLOTS = 1 << SLOT_BITS;
+	/** Mask to map ticks to slots. */
+	private static final int SLOT_MASK = SLOTS - 1;
+	/** Number of wheels, each one 64 times coarser than the previous. */
+	private static final int LEVELS = 4;
+	/** Farthest a timer can be scheduled, about 77 hours at 60 ticks. */
+	private static final long HORIZON = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	/**
+	 * Timer waiting on a wheel. When it expires it runs its action, if any,
+	 * and stops being pending.
+	 */
+	public static final class Timer {
+
+		/** Wheel the timer is scheduled on. */
+		private final TimingWheel wheel;
+		/** Action to run when the timer expires, may be null. */
+		private final Runnable action;
+		/** Next timer on the same slot, null if not pending. */
+		private Timer next;
+		/** Previous timer on the same slot, null if not pending. */
+		private Timer prev;
+		/** Tick the timer expires on. */
+		private long deadline;
+
+		/**
+		 * Constructor, creates the head of an empty slot.
+		 */
+		private Timer() {
+			this.wheel = null;
+			this.action = null;
+			this.next = this;
+			this.prev = this;
+		}
+
+		/**
+		 * Constructor, creates a timer not scheduled yet.
+		 * 
+		 * @param wheel
+		 *            Wheel to schedule the timer on.
+		 * @param action
+		 *            Action to run on expiry, may be null.
+		 */
+		private Timer(final TimingWheel wheel, final Runnable action) {
+			this.wheel = wheel;
+			this.action = action;
+		}
+
+		/**
+		 * Checks if the timer is scheduled and not expired yet.
+		 * 
+		 * @return True if the timer is pending.
+		 */
+		public boolean isPending() {
+			return this.next != null;
+		}
+
+		/**
+		 * Calculates the ticks left until the timer expires.
+		 * 
+		 * @return Ticks until expiry, zero if not pending.
+		 */
+		public long getRemainingTicks() {
+			if (!isPending())
+				return 0;
+			return this.deadline - this.wheel.tick + 1;
+		}
+
+		/**
+		 * Schedules the timer again, replacing its previous deadline.
+		 * 
+		 * @param ticks
+		 *            Ticks until expiry, at least one.
+		 */
+		public void schedule(final int ticks) {
+			this.wheel.schedule(this, ticks);
+		}
+
+		/**
+		 * Stops the timer without running its action.
+		 */
+		public void cancel() {
+			this.wheel.cancel(this);
+		}
+	}
+
+	/** Ticks in a second of game time. */
+	private final int ticksPerSecond;
+	/** Head of each slot, by wheel. */
+	private final Timer[][] slots;
+	/** Head of the timers being expired or moved. */
+	private final Timer due;
+	/** Next tick to process. */
+	private long tick;
+	/** Number of pending timers. */
+	private int pending;
+
+	/**
+	 * Constructor, creates empty wheels.
+	 * 
+	 * @param ticksPerSecond
+	 *            Ticks in a second of game time.
+	 */
+	public TimingWheel(final int ticksPerSecond) {
+		this.ticksPerSecond = ticksPerSecond;
+		this.slots = new Timer[LEVELS][SLOTS];
+		for (Timer[] wheel : this.slots)
+			for (int i = 0; i < SLOTS; i++)
+				wheel[i] = new Timer();
+		this.due = new Timer();
+	}
+
+	/**
+	 * Creates a timer on this wheel, not scheduled yet.
+	 * 
+	 * @param action
+	 *            Action to run when the timer expires, null to only check
+	 *            {@link Timer#isPending()}.
+	 * @return A new timer.
+	 */
+	public Timer newTimer(final Runnable action) {
+		return new Timer(this, action);
+	}
+
+	/**
+	 * Creates a cooldown running on the ticks of this wheel.
+	 * 
+	 * @param milliseconds
+	 *            Duration of the cooldown, in game time.
+	 * @return A new cooldown.
+	 */
+	public Cooldown getCooldown(final int milliseconds) {
+		return new Cooldown(this, milliseconds, 0, null);
+	}
+
+	/**
+	 * Creates a cooldown with variance running on the ticks of this wheel.
+	 * 
+	 * @param milliseconds
+	 *            Duration of the cooldown, in game time.
+	 * @param variance
+	 *            Variation in the cooldown duration.
+	 * @param random
+	 *            Random numbers of the game, for the variation.
+	 * @return A new cooldown with variance.
+	 */
+	public Cooldown getVariableCooldown(final int milliseconds,
+			final int variance, final GameRandom random) {
+		return new Cooldown(this, milliseconds, variance, random);
+	}
+
+	/**
+	 * Converts game time to ticks, rounding to the closest tick.
+	 * 
+	 * @param milliseconds
+	 *            Game time.
+	 * @return Ticks in that time, at least one.
+	 */
+	public int toTicks(final int milliseconds) {
+		return (int) Math.max(1, ((long) milliseconds * this.ticksPerSecond
+				+ 500) / 1000);
+	}
+
+	/**
+	 * Converts ticks to game time.
+	 * 
+	 * @param ticks
+	 *            Number of ticks.
+	 * @return Milliseconds of game time in those ticks.
+	 */
+	public long toMilliseconds(final long ticks) {
+		return ticks * 1000 / this.ticksPerSecond;
+	}
+
+	/**
+	 * Schedules a timer, or moves it if it was already pending.
+	 * 
+	 * @param timer
+	 *            Timer created by this wheel.
+	 * @param ticks
+	 *            Ticks until expiry, at least one.
+	 */
+	public void schedule(final Timer timer, final int ticks) {
+		if (timer.wheel != this)
+			throw new IllegalArgumentException("Timer of another wheel");
+		if (timer.isPending())
+			unlink(timer);
+		else
+			this.pending++;
+		timer.deadline = this.tick + Math.min(Math.max(ticks, 1), HORIZON)
+				- 1;
+		link(timer);
+	}
+
+	/**
+	 * Stops a timer without running its action. Does nothing if it isn't
+	 * pending.
+	 * 
+	 * @param timer
+	 *            Timer created by this wheel.
+	 */
+	public void cancel(final Timer timer) {
+		if (timer.wheel != this)
+			throw new IllegalArgumentException("Timer of another wheel");
+		if (timer.isPending()) {
+			unlink(timer);
+			this.pending--;
+		}
+	}
+
+	/**
+	 * Moves the clock one tick forward and expires the timers due on it.
+	 * Actions may schedule and cancel timers, the new ones expire on later
+	 * ticks.
+	 */
+	public void advance() {
+		long now = this.tick;
+		// Every lap of a wheel, brings a slot of the next one closer.
+		if ((now & SLOT_MASK) == 0)
+			for (int level = 1; level < LEVELS; level++) {
+				int index = (int) (now >>> (SLOT_BITS * level)) & SLOT_MASK;
+				takeAll(this.slots[level][index]);
+				while (this.due.next != this.due) {
+					Timer timer = this.due.next;
+					unlink(timer);
+					link(timer);
+				}
+				if (index != 0)
+					break;
+			}
+
+		takeAll(this.slots[0][(int) now & SLOT_MASK]);
+		this.tick = now + 1;
+		while (this.due.next != this.due) {
+			Timer timer = this.due.next;
+			unlink(timer);
+			this.pending--;
+			if (timer.action != null)
+				timer.action.run();
+		}
+	}
+
+	/**
+	 * Getter for the clock.
+	 * 
+	 * @return Ticks processed since the wheel was created.
+	 */
+	public long getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * Getter for the pending timers.
+	 * 
+	 * @return Number of timers scheduled and not expired yet.
+	 */
+	public int getPending() {
+		return this.pending;
+	}
+
+	/**
+	 * Adds a timer to the slot of its deadline, on the finest wheel that
+	 * reaches it.
+	 * 
+	 * @param timer
+	 *            Timer not linked to any slot.
+	 */
+	private void link(final Timer timer) {
+		long delta = timer.deadline - this.tick;
+		int level = 0;
+		while (level < LEVELS - 1
+				&& delta >= 1L << (SLOT_BITS * (level + 1)))
+			level++;
+		Timer head = this.slots[level][(int) (timer.deadline
+				>>> (SLOT_BITS * level)) & SLOT_MASK];
+		timer.prev = head.prev;
+		timer.next = head;
+		head.prev.next = timer;
+		head.prev = timer;
+	}
+
+	/**
+	 * Removes a timer from its slot.
+	 * 
+	 * @param timer
+	 *            Timer linked to a slot.
+	 */
+	private static void unlink(final Timer timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.next = null;
+		timer.prev = null;
+	}
+
+	/**
+	 * Moves every timer of a slot to the list of due timers, which must be
+	 * empty.
+	 * 
+	 * @param head
+	 *            Head of the slot.
+	 */
+	private void takeAll(final Timer head) {
+		if (head.next == head)
+			return;
+		this.due.next = head.next;
+		this.due.prev = head.prev;
+		this.due.next.prev = this.due;
+		this.due.prev.next = this.due;
+		head.next = head;
+		head.prev = head;
+	}
+}
@@ -0,0 +1,89 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer between one producer and one consumer thread. The
+ * producer always has a slot to write on, the consumer always gets the most
+ * recently published one, and neither of them ever waits for the other.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ * @param <T>
+ *            Type of the buffered slots.
+ */
+public final class TripleBuffer<T> {
+
+	/** Mask of the slot index in the shared state. */
+	private static final int INDEX_MASK = 0x3;
+	/** Flag marking the shared slot as not yet consumed. */
+	private static final int DIRTY = 0x4;
+
+	/** The three slots. */
+	private final T[] slots;
+	/** Index of the shared slot, plus the dirty flag. */
+	private final AtomicInteger shared;
+	/** Index of the slot owned by the producer. */
+	private int back;
+	/** Index of the slot owned by the consumer. */
+	private int front;
+
+	/**
+	 * Constructor, takes ownership of the three slots.
+	 *
+	 * @param first
+	 *            First slot, initially the producer's.
+	 * @param second
+	 *            Second slot, initially shared.
+	 * @param third
+	 *            Third slot, initially the consumer's.
+	 */
+	@SuppressWarnings("unchecked")
+	public TripleBuffer(final T first, final T second, final T third) {
+		this.slots = (T[]) new Object[] { first, second, third };
+		this.back = 0;
+		this.shared = new AtomicInteger(1);
+		this.front = 2;
+	}
+
+	/**
+	 * Returns the slot the producer writes on. Only called from the producer
+	 * thread.
+	 *
+	 * @return Producer slot.
+	 */
+	public T getBack() {
+		return this.slots[this.back];
+	}
+
+	/**
+	 * Publishes the producer slot, taking the shared one in exchange. Only
+	 * called from the producer thread.
+	 */
+	public void publish() {
+		this.back = this.shared.getAndSet(this.back | DIRTY) & INDEX_MASK;
+	}
+
+	/**
+	 * Checks if a slot was published since the last one was acquired.
+	 *
+	 * @return True if there is an unconsumed slot.
+	 */
+	public boolean hasNew() {
+		return (this.shared.get() & DIRTY) != 0;
+	}
+
+	/**
+	 * Takes the most recently published slot, if there is a new one. Only
+	 * called from the consumer thread.
+	 *
+	 * @return The latest published slot, or null if nothing new was
+	 *         published.
+	 */
+	public T acquire() {
+		if (!hasNew())
+			return null;
+		this.front = this.shared.getAndSet(this.front) & INDEX_MASK;
+		return this.slots[this.front];
+	}
+}
@@ -0,0 +1,220 @@
+package engine;
+
+import screen.GameScreen;
+
+/**
+ * Plays several games at once for bots to learn from, all of them a step
+ * forward at a time and without drawing or sounds. Everything a step
+ * returns is written into the same arrays, made once, so stepping creates
+ * no objects beyond the ones the game itself does.
+ * 
+ * Each step is the next tick the bot is in control on: the countdown
+ * before a level and the wait after it are played through in the same
+ * step, and the next level starts as the game would start it. A game that
+ * ends starts over right away, with its next seed, so the observation of
+ * a step that ended a game is already the first of the next one.
+ * 
+ * Several environments may step on different threads.
+ * 
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ * 
+ */
+public final class VectorEnvironment {
+
+	/** Values observed of each game, see {@link GameScreen#observe}. */
+	public static final int OBSERVATION_SIZE = GameScreen.OBSERVATION_SIZE;
+
+	/** Games played, in lockstep. */
+	private final GameScreen[] screens;
+	/** Seeds of the levels of each game, from the seed given for it. */
+	private final GameRandom[] randoms;
+	/** Observations of every game, one after the other. */
+	private final int[] observations;
+	/** Score gained by each game on the last step. */
+	private final int[] rewards;
+	/** Games that ended on the last step. */
+	private final boolean[] dones;
+	/** Levels a game can get to. */
+	private final int levelCount;
+
+	/**
+	 * Constructor. Games start on {@link #reset(long[])}. The logger and the
+	 * renderer are left as they are, so an environment can be made inside
+	 * a running game or tool; its games never draw.
+	 * 
+	 * @param games
+	 *            Number of games played at once.
+	 */
+	public VectorEnvironment(final int games) {
+		if (games < 1)
+			throw new IllegalArgumentException("No games to play");
+		ReplayPlayback.createManagers();
+		this.screens = new GameScreen[games];
+		this.randoms = new GameRandom[games];
+		this.observations = new int[games * OBSERVATION_SIZE];
+		this.rewards = new int[games];
+		this.dones = new boolean[games];
+		this.levelCount = Core.getLevelManager().getLevelCount();
+	}
+
+	/**
+	 * Gets a process that only trains ready to play without a screen. This
+	 * changes the whole game: the logger only shows warnings, which also
+	 * quiets the line logged for each level built, and screens draw off
+	 * screen. Call it once, before the first environment is made, and
+	 * never inside a running game.
+	 */
+	public static void prepareHeadless() {
+		ReplayPlayback.prepare();
+	}
+
+	/**
+	 * Starts every game over.
+	 * 
+	 * @param seeds
+	 *            Seed of each game; the same seed and the same actions
+	 *            play the same game.
+	 * @return Observations of every game, {@link #OBSERVATION_SIZE} each.
+	 */
+	public int[] reset(final long[] seeds) {
+		if (seeds.length != this.screens.length)
+			throw new IllegalArgumentException(seeds.length + " seeds for "
+					+ this.screens.length + " games");
+		for (int i = 0; i < this.screens.length; i++) {
+			this.randoms[i] = new GameRandom(seeds[i]);
+			startGame(i);
+			this.rewards[i] = 0;
+			this.dones[i] = false;
+		}
+		return this.observations;
+	}
+
+	/**
+	 * Plays a step of every game.
+	 * 
+	 * @param actions
+	 *            Keys held in each game, as input manager key masks.
+	 * @return Observations of every game, {@link #OBSERVATION_SIZE} each.
+	 */
+	public int[] step(final int[] actions) {
+		if (actions.length != this.screens.length)
+			throw new IllegalArgumentException(actions.length
+					+ " actions for " + this.screens.length + " games");
+		for (int i = 0; i < this.screens.length; i++) {
+			int offset = i * OBSERVATION_SIZE;
+			// The score is the third value observed.
+			int score = this.observations[offset + 2];
+			boolean done = !this.screens[i].step(actions[i])
+					&& !nextLevel(i);
+			if (!done)
+				done = !skip(i) && !nextLevel(i);
+			this.screens[i].observe(this.observations, offset);
+			this.rewards[i] = this.observations[offset + 2] - score;
+			this.dones[i] = done;
+			if (done)
+				startGame(i);
+		}
+		return this.observations;
+	}
+
+	/**
+	 * Getter for the observations of the last step.
+	 * 
+	 * @return Observations of every game, {@link #OBSERVATION_SIZE} each.
+	 */
+	public int[] getObservations() {
+		return this.observations;
+	}
+
+	/**
+	 * Getter for the rewards of the last step.
+	 * 
+	 * @return Score gained by each game, lives left included when a level
+	 *         ends.
+	 */
+	public int[] getRewards() {
+		return this.rewards;
+	}
+
+	/**
+	 * Getter for the games ended on the last step.
+	 * 
+	 * @return True for each game that ended, and started over.
+	 */
+	public boolean[] getDones() {
+		return this.dones;
+	}
+
+	/**
+	 * Getter for the number of games.
+	 * 
+	 * @return Games played at once.
+	 */
+	public int getGames() {
+		return this.screens.length;
+	}
+
+	/**
+	 * Starts a game from its first level, up to the player's control.
+	 * 
+	 * @param game
+	 *            Index of the game.
+	 */
+	private void startGame(final int game) {
+		startLevel(game, new GameState(1, 0, Core.MAX_LIVES, 0, 0));
+		skip(game);
+		this.screens[game].observe(this.observations, game
+				* OBSERVATION_SIZE);
+	}
+
+	/**
+	 * Starts a level of a game.
+	 * 
+	 * @param game
+	 *            Index of the game.
+	 * @param gameState
+	 *            State of the game at the start of the level.
+	 */
+	private void startLevel(final int game, final GameState gameState) {
+		int level = gameState.getLevel();
+		boolean bonusLife = level % Core.EXTRA_LIFE_FRECUENCY == 0
+				&& gameState.getLivesRemaining() < Core.MAX_LIVES;
+		this.screens[game] = GameScreen.newHeadless(gameState,
+				ReplayPlayback.getLevel(level), bonusLife,
+				this.randoms[game].nextLong(), Core.WIDTH, Core.HEIGHT,
+				Core.FPS);
+	}
+
+	/**
+	 * Goes on to the level after the one a game closed, as the game does.
+	 * 
+	 * @param game
+	 *            Index of the game.
+	 * @return False if the game is over.
+	 */
+	private boolean nextLevel(final int game) {
+		GameState gameState = this.screens[game].getGameState();
+		if (gameState.getLivesRemaining() == 0
+				|| gameState.getLevel() >= this.levelCount)
+			return false;
+		startLevel(game, new GameState(gameState.getLevel() + 1,
+				gameState.getScore(), gameState.getLivesRemaining(),
+				gameState.getBulletsShot(), gameState.getShipsDestroyed()));
+		return skip(game);
+	}
+
+	/**
+	 * Plays a game on until the player is in control.
+	 * 
+	 * @param game
+	 *            Index of the game.
+	 * @return False if the level closed first.
+	 */
+	private boolean skip(final int game) {
+		GameScreen screen = this.screens[game];
+		while (!screen.isPlayable())
+			if (!screen.step(0))
+				return false;
+		return true;
+	}
+}
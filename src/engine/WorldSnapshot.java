@@ -0,0 +1,554 @@
+package engine;
+
+import java.awt.Color;
+import java.util.List;
+
+import screen.Screen;
+import engine.DrawManager.SpriteType;
+
+/**
+ * Stores everything drawn on one frame, entity positions and sprites and HUD
+ * values, as a compact list of commands that can be replayed on another
+ * renderer. Snapshots are reused, so recording does not allocate once the
+ * arrays have grown to the size of a frame.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public final class WorldSnapshot {
+
+	/** Initial number of integers reserved for commands. */
+	private static final int INITIAL_COMMANDS = 1024;
+	/** Initial number of references reserved for commands. */
+	private static final int INITIAL_REFERENCES = 128;
+
+	/** Sprite, color reference, x and y. */
+	private static final int ENTITY = 1;
+	/** Score. */
+	private static final int SCORE = 2;
+	/** Lives. */
+	private static final int LIVES = 3;
+	/** Y coordinate. */
+	private static final int HORIZONTAL_LINE = 4;
+	/** No arguments. */
+	private static final int TITLE = 5;
+	/** Option. */
+	private static final int MENU = 6;
+	/** Score, lives, ships destroyed, accuracy bits and record flag. */
+	private static final int RESULTS = 7;
+	/** Name length, name characters and character selected. */
+	private static final int NAME_INPUT = 8;
+	/** Input flag and record flag. */
+	private static final int GAME_OVER = 9;
+	/** No arguments. */
+	private static final int HIGH_SCORE_MENU = 10;
+	/** List reference. */
+	private static final int HIGH_SCORES = 11;
+	/** String reference and height. */
+	private static final int REGULAR_STRING = 12;
+	/** String reference and height. */
+	private static final int BIG_STRING = 13;
+	/** Level, number and bonus life flag. */
+	private static final int COUNTDOWN = 14;
+	/** Count, then x, y and color of each particle. */
+	private static final int PARTICLES = 15;
+	/** Slot, height, x, y and each row as two integers; color reference. */
+	private static final int BITMAP = 16;
+
+	/** Sprite types, indexed by ordinal. */
+	private static final SpriteType[] SPRITE_TYPES = SpriteType.values();
+
+	/** Screen the snapshot was taken from. */
+	private Screen screen;
+	/** Commands and their integer arguments. */
+	private int[] commands;
+	/** Number of integers used in the commands array. */
+	private int commandCount;
+	/** Object arguments of the commands, in order. */
+	private Object[] references;
+	/** Number of references used. */
+	private int referenceCount;
+	/** Scratch space for name input replay. */
+	private char[] name;
+	/** Scratch space for particle replay, left sides. */
+	private int[] particlesX;
+	/** Scratch space for particle replay, upper sides. */
+	private int[] particlesY;
+	/** Scratch space for particle replay, colors. */
+	private int[] particleColors;
+	/** Scratch space for bitmap replay. */
+	private long[] bitmapRows;
+	/** Order of the snapshot since the renderer started. */
+	private long sequence;
+
+	/**
+	 * Constructor, reserves the command arrays.
+	 */
+	public WorldSnapshot() {
+		this.commands = new int[INITIAL_COMMANDS];
+		this.references = new Object[INITIAL_REFERENCES];
+		this.name = new char[3];
+		this.particlesX = new int[0];
+		this.particlesY = new int[0];
+		this.particleColors = new int[0];
+		this.bitmapRows = new long[0];
+	}
+
+	/**
+	 * Empties the snapshot to record a new frame.
+	 *
+	 * @param newScreen
+	 *            Screen being recorded.
+	 * @param newSequence
+	 *            Order of the frame.
+	 */
+	public void clear(final Screen newScreen, final long newSequence) {
+		this.screen = newScreen;
+		this.sequence = newSequence;
+		this.commandCount = 0;
+		// Drops references so replayed objects can be collected.
+		for (int i = 0; i < this.referenceCount; i++)
+			this.references[i] = null;
+		this.referenceCount = 0;
+	}
+
+	/**
+	 * Getter for the snapshot order.
+	 *
+	 * @return Sequence number of the frame.
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * Getter for the screen recorded.
+	 *
+	 * @return Screen the snapshot was taken from.
+	 */
+	public Screen getScreen() {
+		return this.screen;
+	}
+
+	/**
+	 * Records a sprite.
+	 *
+	 * @param spriteType
+	 *            Sprite drawn.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param positionX
+	 *            Left side of the sprite.
+	 * @param positionY
+	 *            Upper side of the sprite.
+	 */
+	public void addSprite(final SpriteType spriteType, final Color color,
+			final int positionX, final int positionY) {
+		add(ENTITY, spriteType.ordinal(), positionX, positionY);
+		addReference(color);
+	}
+
+	/**
+	 * Records a batch of particles, copying them.
+	 *
+	 * @param positionsX
+	 *            Left side of each particle.
+	 * @param positionsY
+	 *            Upper side of each particle.
+	 * @param colors
+	 *            Color of each particle, as RGB.
+	 * @param count
+	 *            Number of particles.
+	 */
+	public void addParticles(final int[] positionsX, final int[] positionsY,
+			final int[] colors, final int count) {
+		add(PARTICLES, count);
+		reserve(count * 3);
+		for (int i = 0; i < count; i++) {
+			this.commands[this.commandCount++] = positionsX[i];
+			this.commands[this.commandCount++] = positionsY[i];
+			this.commands[this.commandCount++] = colors[i];
+		}
+	}
+
+	/**
+	 * Records a bitmap, copying its rows.
+	 *
+	 * @param slot
+	 *            Number identifying the bitmap between frames.
+	 * @param rows
+	 *            Points of each row.
+	 * @param height
+	 *            Number of rows.
+	 * @param color
+	 *            Color of the points.
+	 * @param positionX
+	 *            Left side of the bitmap.
+	 * @param positionY
+	 *            Upper side of the bitmap.
+	 */
+	public void addBitmap(final int slot, final long[] rows,
+			final int height, final Color color, final int positionX,
+			final int positionY) {
+		add(BITMAP, slot, height);
+		add(positionX, positionY);
+		reserve(height * 2);
+		for (int i = 0; i < height; i++) {
+			this.commands[this.commandCount++] = (int) (rows[i] >>> 32);
+			this.commands[this.commandCount++] = (int) rows[i];
+		}
+		addReference(color);
+	}
+
+	/**
+	 * Records the score.
+	 *
+	 * @param score
+	 *            Current score.
+	 */
+	public void addScore(final int score) {
+		add(SCORE, score);
+	}
+
+	/**
+	 * Records the lives.
+	 *
+	 * @param lives
+	 *            Current lives.
+	 */
+	public void addLives(final int lives) {
+		add(LIVES, lives);
+	}
+
+	/**
+	 * Records a horizontal line.
+	 *
+	 * @param positionY
+	 *            Y coordinate of the line.
+	 */
+	public void addHorizontalLine(final int positionY) {
+		add(HORIZONTAL_LINE, positionY);
+	}
+
+	/**
+	 * Records the game title.
+	 */
+	public void addTitle() {
+		add(TITLE);
+	}
+
+	/**
+	 * Records the main menu.
+	 *
+	 * @param option
+	 *            Option selected.
+	 */
+	public void addMenu(final int option) {
+		add(MENU, option);
+	}
+
+	/**
+	 * Records game results.
+	 *
+	 * @param score
+	 *            Score obtained.
+	 * @param livesRemaining
+	 *            Lives remaining when finished.
+	 * @param shipsDestroyed
+	 *            Total ships destroyed.
+	 * @param accuracy
+	 *            Total accuracy.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	public void addResults(final int score, final int livesRemaining,
+			final int shipsDestroyed, final float accuracy,
+			final boolean isNewRecord) {
+		add(RESULTS, score, livesRemaining, shipsDestroyed);
+		add(Float.floatToIntBits(accuracy), isNewRecord ? 1 : 0);
+	}
+
+	/**
+	 * Records the name input, copying the characters.
+	 *
+	 * @param newName
+	 *            Current name selected.
+	 * @param nameCharSelected
+	 *            Current character selected for modification.
+	 */
+	public void addNameInput(final char[] newName,
+			final int nameCharSelected) {
+		add(NAME_INPUT, newName.length);
+		for (char c : newName)
+			add(c);
+		add(nameCharSelected);
+	}
+
+	/**
+	 * Records the game over screen.
+	 *
+	 * @param acceptsInput
+	 *            If the screen accepts input.
+	 * @param isNewRecord
+	 *            If the score is a new high score.
+	 */
+	public void addGameOver(final boolean acceptsInput,
+			final boolean isNewRecord) {
+		add(GAME_OVER, acceptsInput ? 1 : 0, isNewRecord ? 1 : 0);
+	}
+
+	/**
+	 * Records the high score title and instructions.
+	 */
+	public void addHighScoreMenu() {
+		add(HIGH_SCORE_MENU);
+	}
+
+	/**
+	 * Records the high scores. The list must not change afterwards.
+	 *
+	 * @param highScores
+	 *            List of high scores.
+	 */
+	public void addHighScores(final List<Score> highScores) {
+		add(HIGH_SCORES);
+		addReference(highScores);
+	}
+
+	/**
+	 * Records a centered string.
+	 *
+	 * @param string
+	 *            String to draw.
+	 * @param height
+	 *            Height of the drawing.
+	 * @param big
+	 *            If the big font is used.
+	 */
+	public void addCenteredString(final String string, final int height,
+			final boolean big) {
+		add(big ? BIG_STRING : REGULAR_STRING, height);
+		addReference(string);
+	}
+
+	/**
+	 * Records the countdown.
+	 *
+	 * @param level
+	 *            Game difficulty level.
+	 * @param number
+	 *            Countdown number.
+	 * @param bonusLife
+	 *            Checks if a bonus life is received.
+	 */
+	public void addCountDown(final int level, final int number,
+			final boolean bonusLife) {
+		add(COUNTDOWN, level, number, bonusLife ? 1 : 0);
+	}
+
+	/**
+	 * Draws the recorded frame on a renderer, from start to completion.
+	 *
+	 * @param renderer
+	 *            Renderer to draw on.
+	 */
+	@SuppressWarnings("unchecked")
+	public void replay(final Renderer renderer) {
+		int i = 0;
+		int r = 0;
+
+		renderer.initDrawing(this.screen);
+		while (i < this.commandCount) {
+			switch (this.commands[i++]) {
+			case ENTITY:
+				renderer.drawSprite(SPRITE_TYPES[this.commands[i]],
+						(Color) this.references[r++], this.commands[i + 1],
+						this.commands[i + 2]);
+				i += 3;
+				break;
+			case PARTICLES:
+				int count = this.commands[i++];
+				if (this.particlesX.length < count) {
+					this.particlesX = new int[count];
+					this.particlesY = new int[count];
+					this.particleColors = new int[count];
+				}
+				for (int p = 0; p < count; p++) {
+					this.particlesX[p] = this.commands[i++];
+					this.particlesY[p] = this.commands[i++];
+					this.particleColors[p] = this.commands[i++];
+				}
+				renderer.drawParticles(this.particlesX, this.particlesY,
+						this.particleColors, count);
+				break;
+			case BITMAP:
+				int slot = this.commands[i++];
+				int height = this.commands[i++];
+				int positionX = this.commands[i++];
+				int positionY = this.commands[i++];
+				if (this.bitmapRows.length < height)
+					this.bitmapRows = new long[height];
+				for (int row = 0; row < height; row++) {
+					this.bitmapRows[row] = (long) this.commands[i] << 32
+							| this.commands[i + 1] & 0xFFFFFFFFL;
+					i += 2;
+				}
+				renderer.drawBitmap(slot, this.bitmapRows, height,
+						(Color) this.references[r++], positionX, positionY);
+				break;
+			case SCORE:
+				renderer.drawScore(this.screen, this.commands[i++]);
+				break;
+			case LIVES:
+				renderer.drawLives(this.screen, this.commands[i++]);
+				break;
+			case HORIZONTAL_LINE:
+				renderer.drawHorizontalLine(this.screen, this.commands[i++]);
+				break;
+			case TITLE:
+				renderer.drawTitle(this.screen);
+				break;
+			case MENU:
+				renderer.drawMenu(this.screen, this.commands[i++]);
+				break;
+			case RESULTS:
+				renderer.drawResults(this.screen, this.commands[i],
+						this.commands[i + 1], this.commands[i + 2],
+						Float.intBitsToFloat(this.commands[i + 3]),
+						this.commands[i + 4] != 0);
+				i += 5;
+				break;
+			case NAME_INPUT:
+				int length = this.commands[i++];
+				if (this.name.length != length)
+					this.name = new char[length];
+				for (int c = 0; c < length; c++)
+					this.name[c] = (char) this.commands[i++];
+				renderer.drawNameInput(this.screen, this.name,
+						this.commands[i++]);
+				break;
+			case GAME_OVER:
+				renderer.drawGameOver(this.screen, this.commands[i] != 0,
+						this.commands[i + 1] != 0);
+				i += 2;
+				break;
+			case HIGH_SCORE_MENU:
+				renderer.drawHighScoreMenu(this.screen);
+				break;
+			case HIGH_SCORES:
+				renderer.drawHighScores(this.screen,
+						(List<Score>) this.references[r++]);
+				break;
+			case REGULAR_STRING:
+				renderer.drawCenteredRegularString(this.screen,
+						(String) this.references[r++], this.commands[i++]);
+				break;
+			case BIG_STRING:
+				renderer.drawCenteredBigString(this.screen,
+						(String) this.references[r++], this.commands[i++]);
+				break;
+			case COUNTDOWN:
+				renderer.drawCountDown(this.screen, this.commands[i],
+						this.commands[i + 1], this.commands[i + 2] != 0);
+				i += 3;
+				break;
+			default:
+				throw new IllegalStateException("Corrupted snapshot.");
+			}
+		}
+		renderer.completeDrawing(this.screen);
+	}
+
+	/**
+	 * Makes room for more integers in the command array.
+	 *
+	 * @param count
+	 *            Integers about to be appended.
+	 */
+	private void reserve(final int count) {
+		if (this.commandCount + count > this.commands.length) {
+			int[] grown = new int[Math.max(this.commands.length * 2,
+					this.commandCount + count)];
+			System.arraycopy(this.commands, 0, grown, 0, this.commandCount);
+			this.commands = grown;
+		}
+	}
+
+	/**
+	 * Appends an integer to the command array.
+	 *
+	 * @param a
+	 *            Integer to append.
+	 */
+	private void add(final int a) {
+		reserve(1);
+		this.commands[this.commandCount++] = a;
+	}
+
+	/**
+	 * Appends two integers to the command array.
+	 *
+	 * @param a
+	 *            First integer.
+	 * @param b
+	 *            Second integer.
+	 */
+	private void add(final int a, final int b) {
+		reserve(2);
+		this.commands[this.commandCount++] = a;
+		this.commands[this.commandCount++] = b;
+	}
+
+	/**
+	 * Appends three integers to the command array.
+	 *
+	 * @param a
+	 *            First integer.
+	 * @param b
+	 *            Second integer.
+	 * @param c
+	 *            Third integer.
+	 */
+	private void add(final int a, final int b, final int c) {
+		reserve(3);
+		this.commands[this.commandCount++] = a;
+		this.commands[this.commandCount++] = b;
+		this.commands[this.commandCount++] = c;
+	}
+
+	/**
+	 * Appends four integers to the command array.
+	 *
+	 * @param a
+	 *            First integer.
+	 * @param b
+	 *            Second integer.
+	 * @param c
+	 *            Third integer.
+	 * @param d
+	 *            Fourth integer.
+	 */
+	private void add(final int a, final int b, final int c, final int d) {
+		reserve(4);
+		this.commands[this.commandCount++] = a;
+		this.commands[this.commandCount++] = b;
+		this.commands[this.commandCount++] = c;
+		this.commands[this.commandCount++] = d;
+	}
+
+	/**
+	 * Appends an object argument, growing the array if needed.
+	 *
+	 * @param reference
+	 *            Object to append.
+	 */
+	private void addReference(final Object reference) {
+		if (this.referenceCount == this.references.length) {
+			Object[] grown = new Object[this.references.length * 2];
+			System.arraycopy(this.references, 0, grown, 0,
+					this.referenceCount);
+			this.references = grown;
+		}
+		this.references[this.referenceCount++] = reference;
+	}
+}
@@ -17,6 +17,8 @@ public class Bullet extends Entity {
 	 * positive is down.
 	 */
 	private int speed;
+	/** Interceptor tracking the bullet, set by the interceptor itself. */
+	BulletInterceptor interceptor;
 
 	/**
 	 * Constructor, establishes the bullet's properties.
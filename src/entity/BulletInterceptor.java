@@ -0,0 +1,205 @@
+package entity;
+
+import java.util.Set;
+
+/**
+ * Finds player bullets crossing enemy bullets. Each side is kept in its own
+ * array sorted by horizontal position from frame to frame; bullets hardly
+ * move sideways, so sorting again is close to linear. A single sweep over
+ * both arrays then only compares bullets whose columns overlap.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public class BulletInterceptor {
+
+	/** Initial room on each side. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** Bullets shot by the player, by left side. */
+	private Bullet[] playerBullets;
+	/** Number of player bullets tracked. */
+	private int playerCount;
+	/** Bullets shot by the enemies, by left side. */
+	private Bullet[] enemyBullets;
+	/** Number of enemy bullets tracked. */
+	private int enemyCount;
+	/** Pairs of bullets compared on the last sweep. */
+	private int pairsTested;
+
+	/**
+	 * Constructor, reserves room for the bullets.
+	 */
+	public BulletInterceptor() {
+		this.playerBullets = new Bullet[INITIAL_CAPACITY];
+		this.enemyBullets = new Bullet[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Finds the player bullets that met an enemy bullet since the last
+	 * frame. Each bullet cancels at most one other.
+	 *
+	 * @param bullets
+	 *            Bullets on screen, after moving.
+	 * @param intercepted
+	 *            Set to add the bullets that cancelled each other to.
+	 */
+	public final void intercept(final Set<Bullet> bullets,
+			final Set<Bullet> intercepted) {
+		this.playerCount = retain(this, this.playerBullets,
+				this.playerCount, bullets, true);
+		this.enemyCount = retain(this, this.enemyBullets, this.enemyCount,
+				bullets, false);
+		for (Bullet bullet : bullets)
+			if (bullet.interceptor != this) {
+				bullet.interceptor = this;
+				if (bullet.getSpeed() < 0) {
+					this.playerBullets = append(this.playerBullets,
+							this.playerCount++, bullet);
+				} else {
+					this.enemyBullets = append(this.enemyBullets,
+							this.enemyCount++, bullet);
+				}
+			}
+		int widest = sort(this.enemyBullets, this.enemyCount);
+		sort(this.playerBullets, this.playerCount);
+
+		this.pairsTested = 0;
+		int first = 0;
+		for (int i = 0; i < this.playerCount; i++) {
+			Bullet player = this.playerBullets[i];
+			int left = player.getPositionX();
+			int right = left + player.getWidth();
+			// Enemy bullets this far left can't reach this or later ones.
+			while (first < this.enemyCount
+					&& this.enemyBullets[first].getPositionX() + widest
+							<= left)
+				first++;
+
+			for (int j = first; j < this.enemyCount; j++) {
+				Bullet enemy = this.enemyBullets[j];
+				if (enemy.getPositionX() >= right)
+					break;
+				this.pairsTested++;
+				if (enemy.getPositionX() + enemy.getWidth() > left
+						&& crossed(player, enemy)
+						&& !intercepted.contains(enemy)) {
+					intercepted.add(player);
+					intercepted.add(enemy);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Getter for the pairs compared.
+	 *
+	 * @return Pairs of bullets compared on the last sweep.
+	 */
+	public final int getPairsTested() {
+		return this.pairsTested;
+	}
+
+	/**
+	 * Checks if two bullets overlapped at any point of the last frame. Their
+	 * vertical extents are stretched back along their movement, so fast
+	 * bullets can't pass through each other.
+	 *
+	 * @param player
+	 *            Bullet moving up.
+	 * @param enemy
+	 *            Bullet moving down.
+	 * @return True if the bullets crossed.
+	 */
+	private static boolean crossed(final Bullet player, final Bullet enemy) {
+		int playerTop = player.getPositionY();
+		int playerBottom = playerTop + player.getHeight() - player.getSpeed();
+		int enemyBottom = enemy.getPositionY() + enemy.getHeight();
+		int enemyTop = enemy.getPositionY() - enemy.getSpeed();
+		return playerTop < enemyBottom && enemyTop < playerBottom;
+	}
+
+	/**
+	 * Drops the bullets that left the screen or changed sides, keeping the
+	 * order of the rest.
+	 *
+	 * @param interceptor
+	 *            Interceptor tracking the bullets.
+	 * @param tracked
+	 *            Bullets of one side.
+	 * @param count
+	 *            Number of bullets tracked.
+	 * @param bullets
+	 *            Bullets on screen.
+	 * @param upwards
+	 *            If the side shoots upwards.
+	 * @return Number of bullets kept.
+	 */
+	private static int retain(final BulletInterceptor interceptor,
+			final Bullet[] tracked, final int count, final Set<Bullet> bullets,
+			final boolean upwards) {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			Bullet bullet = tracked[i];
+			tracked[i] = null;
+			// Recycled bullets may come back on the other side, or in
+			// another game with its own interceptor.
+			if (bullet.interceptor != interceptor)
+				continue;
+			if (bullets.contains(bullet) && bullet.getSpeed() < 0 == upwards)
+				tracked[kept++] = bullet;
+			else
+				bullet.interceptor = null;
+		}
+		return kept;
+	}
+
+	/**
+	 * Stores a bullet at the end of an array, growing it if needed.
+	 *
+	 * @param tracked
+	 *            Bullets of one side.
+	 * @param count
+	 *            Number of bullets tracked.
+	 * @param bullet
+	 *            Bullet to add.
+	 * @return Array holding the bullets.
+	 */
+	private static Bullet[] append(final Bullet[] tracked, final int count,
+			final Bullet bullet) {
+		Bullet[] result = tracked;
+		if (count == tracked.length) {
+			result = new Bullet[tracked.length * 2];
+			System.arraycopy(tracked, 0, result, 0, count);
+		}
+		result[count] = bullet;
+		return result;
+	}
+
+	/**
+	 * Sorts bullets by their left side with an insertion sort, fast on the
+	 * nearly sorted arrays left by the previous frame.
+	 *
+	 * @param tracked
+	 *            Bullets of one side.
+	 * @param count
+	 *            Number of bullets tracked.
+	 * @return Width of the widest bullet.
+	 */
+	private static int sort(final Bullet[] tracked, final int count) {
+		int widest = 0;
+		for (int i = 0; i < count; i++) {
+			Bullet bullet = tracked[i];
+			int positionX = bullet.getPositionX();
+			int j = i - 1;
+			while (j >= 0 && tracked[j].getPositionX() > positionX) {
+				tracked[j + 1] = tracked[j];
+				j--;
+			}
+			tracked[j + 1] = bullet;
+			widest = Math.max(widest, bullet.getWidth());
+		}
+		return widest;
+	}
+}
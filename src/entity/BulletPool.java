@@ -1,18 +1,35 @@
 package entity;
 
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implements a pool of recyclable bullets.
+ * Implements a pool of recyclable bullets. Each thread has its own pool, so
+ * games simulated on several threads never share a bullet. Bullets are
+ * handed out last in, first out, so the same game gets the same bullets
+ * on every run.
  * 
  * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
  * 
  */
 public final class BulletPool {
 
-	/** Set of already created bullets. */
-	private static Set<Bullet> pool = new HashSet<Bullet>();
+	/** Already created bullets, by thread. */
+	private static final ThreadLocal<Deque<Bullet>> POOL =
+			new ThreadLocal<Deque<Bullet>>() {
+		@Override
+		protected Deque<Bullet> initialValue() {
+			return new ArrayDeque<Bullet>();
+		}
+	};
+	/** Requests served with a recycled bullet. */
+	private static final AtomicLong HITS = new AtomicLong();
+	/** Requests that needed a new bullet. */
+	private static final AtomicLong MISSES = new AtomicLong();
+	/** Bullets available to the last thread, readable from others. */
+	private static volatile int size;
 
 	/**
 	 * Constructor, not called.
@@ -36,17 +53,22 @@ public final class BulletPool {
 	 */
 	public static Bullet getBullet(final int positionX,
 			final int positionY, final int speed) {
+		Deque<Bullet> pool = POOL.get();
 		Bullet bullet;
 		if (!pool.isEmpty()) {
-			bullet = pool.iterator().next();
-			pool.remove(bullet);
+			bullet = pool.pollLast();
+			size = pool.size();
+			HITS.incrementAndGet();
 			bullet.setPositionX(positionX - bullet.getWidth() / 2);
 			bullet.setPositionY(positionY);
 			bullet.setSpeed(speed);
 			bullet.setSprite();
+			// Tracked again from scratch, as a new bullet would be.
+			bullet.interceptor = null;
 		} else {
 			bullet = new Bullet(positionX, positionY, speed);
 			bullet.setPositionX(positionX - bullet.getWidth() / 2);
+			MISSES.incrementAndGet();
 		}
 		return bullet;
 	}
@@ -55,9 +77,39 @@ public final class BulletPool {
 	 * Adds one or more bullets to the list of available ones.
 	 * 
 	 * @param bullet
-	 *            Bullets to recycle.
+	 *            Bullets to recycle, in an order that is the same on every
+	 *            run.
 	 */
 	public static void recycle(final Set<Bullet> bullet) {
+		Deque<Bullet> pool = POOL.get();
 		pool.addAll(bullet);
+		size = pool.size();
+	}
+
+	/**
+	 * Getter for the bullets available.
+	 * 
+	 * @return Number of bullets waiting to be reused.
+	 */
+	public static int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter for the requests served with a recycled bullet.
+	 * 
+	 * @return Number of recycled bullets handed out.
+	 */
+	public static long getHits() {
+		return HITS.get();
+	}
+
+	/**
+	 * Getter for the requests that needed a new bullet.
+	 * 
+	 * @return Number of bullets created.
+	 */
+	public static long getMisses() {
+		return MISSES.get();
 	}
 }
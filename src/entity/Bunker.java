@@ -0,0 +1,242 @@
+package entity;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import engine.Renderer;
+
+/**
+ * Implements a shield that wears away where bullets hit it. The shape is a
+ * bitmap with one word per row, so collisions and damage are computed a row
+ * at a time instead of point by point.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public class Bunker extends Entity {
+
+	/** Size in pixels of each bitmap point. */
+	private static final int SCALE = 2;
+	/** Points per row. */
+	private static final int COLUMNS = 22;
+	/** Rows of points. */
+	private static final int ROWS = 16;
+	/** Width of the damage masks, in points. */
+	private static final int MASK_COLUMNS = 7;
+	/** Height of the damage masks, in points. */
+	private static final int MASK_ROWS = 6;
+	/** Number of different damage masks. */
+	private static final int MASKS = 4;
+
+	/** Intact shape, bit i of each row is column i from the left. */
+	private static final long[] SHAPE = new long[ROWS];
+	/** Shapes carved by bullets, aligned to column 0. */
+	private static final long[][] DAMAGE_MASKS = new long[MASKS][MASK_ROWS];
+
+	static {
+		long full = (1L << COLUMNS) - 1;
+		for (int row = 0; row < ROWS; row++) {
+			SHAPE[row] = full;
+			// Slanted top corners.
+			if (row < 4) {
+				long corner = (1L << (4 - row)) - 1;
+				SHAPE[row] &= ~corner & ~(corner << (COLUMNS - 4 + row));
+			}
+			// Arch at the bottom.
+			if (row >= ROWS - 6)
+				SHAPE[row] &= ~(((1L << 8) - 1) << 7);
+			else if (row == ROWS - 7)
+				SHAPE[row] &= ~(((1L << 6) - 1) << 8);
+		}
+
+		// Rough craters, the same on every run.
+		Random random = new Random(MASK_COLUMNS * 31 + MASK_ROWS);
+		double radiusX = MASK_COLUMNS / 2.0;
+		double radiusY = MASK_ROWS / 2.0;
+		for (long[] mask : DAMAGE_MASKS)
+			for (int row = 0; row < MASK_ROWS; row++)
+				for (int column = 0; column < MASK_COLUMNS; column++) {
+					double dx = (column + 0.5 - radiusX) / radiusX;
+					double dy = (row + 0.5 - radiusY) / radiusY;
+					if (dx * dx + dy * dy < 0.8 + random.nextDouble() * 0.6)
+						mask[row] |= 1L << column;
+				}
+	}
+
+	/** Current shape, bit i of each row is column i from the left. */
+	private final long[] rows;
+	/** Number of the bunker, for the renderer to keep its image. */
+	private final int slot;
+	/** Hits taken, to pick the next damage mask. */
+	private int hits;
+
+	/**
+	 * Constructor, establishes the bunker's position.
+	 *
+	 * @param slot
+	 *            Number of the bunker on the screen.
+	 * @param positionX
+	 *            Initial position of the bunker in the X axis.
+	 * @param positionY
+	 *            Initial position of the bunker in the Y axis.
+	 */
+	public Bunker(final int slot, final int positionX, final int positionY) {
+		super(positionX, positionY, COLUMNS * SCALE, ROWS * SCALE,
+				Color.GREEN);
+		this.slot = slot;
+		this.rows = SHAPE.clone();
+	}
+
+	/**
+	 * Checks if a bullet hits the bunker, and carves a crater where it does.
+	 *
+	 * @param bullet
+	 *            Bullet to check.
+	 * @return True if the bullet hit the bunker.
+	 */
+	public final boolean hit(final Bullet bullet) {
+		int row = findImpact(bullet, bullet.getSpeed() < 0);
+		if (row < 0)
+			return false;
+
+		int column = Math.floorDiv(bullet.getPositionX() + bullet.getWidth()
+				/ 2 - this.positionX, SCALE) - MASK_COLUMNS / 2;
+		long[] mask = DAMAGE_MASKS[this.hits++ % MASKS];
+		int top = row - MASK_ROWS / 2;
+		for (int i = 0; i < MASK_ROWS; i++)
+			if (top + i >= 0 && top + i < ROWS)
+				this.rows[top + i] &= ~shift(mask[i], column);
+		return true;
+	}
+
+	/**
+	 * Clears the part of the bunker an entity is over.
+	 *
+	 * @param entity
+	 *            Entity crossing the bunker.
+	 */
+	public final void erase(final Entity entity) {
+		int firstRow = Math.max(0, Math.floorDiv(entity.getPositionY()
+				- this.positionY, SCALE));
+		int lastRow = Math.min(ROWS, ceilDiv(entity.getPositionY()
+				+ entity.getHeight() - this.positionY, SCALE));
+		long span = columnSpan(entity);
+		for (int row = firstRow; row < lastRow; row++)
+			this.rows[row] &= ~span;
+	}
+
+	/**
+	 * Draws the bunker.
+	 *
+	 * @param renderer
+	 *            Renderer to draw on.
+	 */
+	public final void draw(final Renderer renderer) {
+		renderer.drawBitmap(this.slot, this.rows, ROWS, getColor(),
+				this.positionX, this.positionY);
+	}
+
+	/**
+	 * Writes the shape of the bunker to a save.
+	 *
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	public final void save(final ByteBuffer buffer) {
+		buffer.putInt(this.hits);
+		for (long row : this.rows)
+			buffer.putLong(row);
+	}
+
+	/**
+	 * Reads the shape written by {@link #save(ByteBuffer)}.
+	 *
+	 * @param buffer
+	 *            Buffer to read from.
+	 */
+	public final void restore(final ByteBuffer buffer) {
+		this.hits = buffer.getInt();
+		for (int row = 0; row < ROWS; row++)
+			this.rows[row] = buffer.getLong();
+	}
+
+	/**
+	 * Finds the first row a moving entity meets, comparing whole rows with
+	 * the columns it covers.
+	 *
+	 * @param entity
+	 *            Entity to check.
+	 * @param upwards
+	 *            If the entity moves up, so lower rows are met first.
+	 * @return Row hit, or -1 if the entity doesn't touch the bunker.
+	 */
+	private int findImpact(final Entity entity, final boolean upwards) {
+		int top = entity.getPositionY() - this.positionY;
+		int bottom = top + entity.getHeight();
+		if (bottom <= 0 || top >= this.height)
+			return -1;
+		long span = columnSpan(entity);
+		if (span == 0)
+			return -1;
+
+		int firstRow = Math.max(0, Math.floorDiv(top, SCALE));
+		int lastRow = Math.min(ROWS, ceilDiv(bottom, SCALE));
+		if (upwards) {
+			for (int row = lastRow - 1; row >= firstRow; row--)
+				if ((this.rows[row] & span) != 0)
+					return row;
+		} else {
+			for (int row = firstRow; row < lastRow; row++)
+				if ((this.rows[row] & span) != 0)
+					return row;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the columns an entity covers, as a row mask.
+	 *
+	 * @param entity
+	 *            Entity to check.
+	 * @return Bits of the covered columns, zero if none.
+	 */
+	private long columnSpan(final Entity entity) {
+		int left = Math.max(0, Math.floorDiv(entity.getPositionX()
+				- this.positionX, SCALE));
+		int right = Math.min(COLUMNS, ceilDiv(entity.getPositionX()
+				+ entity.getWidth() - this.positionX, SCALE));
+		if (left >= right)
+			return 0;
+		return ((1L << (right - left)) - 1) << left;
+	}
+
+	/**
+	 * Moves a row mask sideways, dropping the bits outside the bunker.
+	 *
+	 * @param mask
+	 *            Mask aligned to column 0.
+	 * @param column
+	 *            Column the mask starts at, may be negative.
+	 * @return Shifted mask.
+	 */
+	private static long shift(final long mask, final int column) {
+		if (column >= COLUMNS || column <= -MASK_COLUMNS)
+			return 0;
+		long shifted = column >= 0 ? mask << column : mask >>> -column;
+		return shifted & ((1L << COLUMNS) - 1);
+	}
+
+	/**
+	 * Divides rounding up, for negative values too.
+	 *
+	 * @param dividend
+	 *            Value to divide.
+	 * @param divisor
+	 *            Positive divisor.
+	 * @return Quotient rounded up.
+	 */
+	private static int ceilDiv(final int dividend, final int divisor) {
+		return -Math.floorDiv(-dividend, divisor);
+	}
+}
@@ -2,8 +2,6 @@ package entity;
 
 import java.awt.Color;
 
-import engine.Cooldown;
-import engine.Core;
 import engine.DrawManager.SpriteType;
 
 /**
@@ -23,8 +21,6 @@ public class EnemyShip extends Entity {
 	/** Point value of a bonus enemy. */
 	private static final int BONUS_TYPE_POINTS = 100;
 
-	/** Cooldown between sprite changes. */
-	private Cooldown animationCooldown;
 	/** Checks if the ship has been hit by a bullet. */
 	private boolean isDestroyed;
 	/** Values of the ship, in points, when destroyed. */
@@ -45,7 +41,6 @@ public class EnemyShip extends Entity {
 		super(positionX, positionY, 12 * 2, 8 * 2, Color.WHITE);
 
 		this.spriteType = spriteType;
-		this.animationCooldown = Core.getCooldown(500);
 		this.isDestroyed = false;
 
 		switch (this.spriteType) {
@@ -101,38 +96,6 @@ public class EnemyShip extends Entity {
 		this.positionY += distanceY;
 	}
 
-	/**
-	 * Updates attributes, mainly used for animation purposes.
-	 */
-	public final void update() {
-		if (this.animationCooldown.checkFinished()) {
-			this.animationCooldown.reset();
-
-			switch (this.spriteType) {
-			case EnemyShipA1:
-				this.spriteType = SpriteType.EnemyShipA2;
-				break;
-			case EnemyShipA2:
-				this.spriteType = SpriteType.EnemyShipA1;
-				break;
-			case EnemyShipB1:
-				this.spriteType = SpriteType.EnemyShipB2;
-				break;
-			case EnemyShipB2:
-				this.spriteType = SpriteType.EnemyShipB1;
-				break;
-			case EnemyShipC1:
-				this.spriteType = SpriteType.EnemyShipC2;
-				break;
-			case EnemyShipC2:
-				this.spriteType = SpriteType.EnemyShipC1;
-				break;
-			default:
-				break;
-			}
-		}
-	}
-
 	/**
 	 * Destroys the ship, causing an explosion.
 	 */
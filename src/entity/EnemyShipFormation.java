@@ -1,18 +1,25 @@
 package entity;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import screen.Screen;
 import engine.Cooldown;
 import engine.Core;
-import engine.DrawManager;
 import engine.DrawManager.SpriteType;
+import engine.GameRandom;
 import engine.GameSettings;
+import engine.LevelCompiler;
+import engine.Renderer;
+import engine.StateChecksum;
+import engine.TimingWheel;
 
 /**
  * Groups enemy ships into a formation that moves together.
@@ -28,18 +35,15 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	private static final int INIT_POS_Y = 100;
 	/** Distance between ships. */
 	private static final int SEPARATION_DISTANCE = 40;
-	/** Proportion of C-type ships. */
-	private static final double PROPORTION_C = 0.2;
-	/** Proportion of B-type ships. */
-	private static final double PROPORTION_B = 0.4;
+	/** Cells of the largest formation, one bit each when observed. */
+	private static final int CELLS = LevelCompiler.MAX_WIDTH
+			* LevelCompiler.MAX_HEIGHT;
+	/** Values written by {@link #observe(int[], int)}. */
+	public static final int OBSERVATION_SIZE = 2 + (CELLS + 31) / 32;
 	/** Lateral speed of the formation. */
 	private static final int X_SPEED = 8;
 	/** Downwards speed of the formation. */
 	private static final int Y_SPEED = 4;
-	/** Speed of the bullets shot by the members. */
-	private static final int BULLET_SPEED = 4;
-	/** Proportion of differences between shooting times. */
-	private static final double SHOOTING_VARIANCE = .2;
 	/** Margin on the sides of the screen. */
 	private static final int SIDE_MARGIN = 20;
 	/** Margin on the bottom of the screen. */
@@ -48,18 +52,41 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	private static final int DESCENT_DISTANCE = 20;
 	/** Minimum speed allowed. */
 	private static final int MINIMUM_SPEED = 10;
+	/** Time between sprite changes. */
+	private static final int ANIMATION_INTERVAL = 500;
+	/** Sprite shown for each sprite of the ships, by animation phase. */
+	private static final SpriteType[][] ANIMATION_FRAMES =
+			new SpriteType[2][SpriteType.values().length];
+
+	static {
+		for (SpriteType spriteType : SpriteType.values()) {
+			ANIMATION_FRAMES[0][spriteType.ordinal()] = spriteType;
+			ANIMATION_FRAMES[1][spriteType.ordinal()] = spriteType;
+		}
+		swapFrames(SpriteType.EnemyShipA1, SpriteType.EnemyShipA2);
+		swapFrames(SpriteType.EnemyShipB1, SpriteType.EnemyShipB2);
+		swapFrames(SpriteType.EnemyShipC1, SpriteType.EnemyShipC2);
+	}
 
-	/** DrawManager instance. */
-	private DrawManager drawManager;
+	/** Renderer instance. */
+	private Renderer drawManager;
 	/** Application logger. */
 	private Logger logger;
 	/** Screen to draw ships on. */
 	private Screen screen;
+	/** Wheel of the game clock. */
+	private TimingWheel timingWheel;
+	/** Random numbers of the game. */
+	private GameRandom random;
 
 	/** List of enemy ships forming the formation. */
 	private List<List<EnemyShip>> enemyShips;
 	/** Minimum time between shots. */
 	private Cooldown shootingCooldown;
+	/** Minimum time between sprite changes, for the whole formation. */
+	private Cooldown animationCooldown;
+	/** Current animation phase, index of {@link #ANIMATION_FRAMES}. */
+	private int animationPhase;
 	/** Number of ships in the formation - horizontally. */
 	private int nShipsWide;
 	/** Number of ships in the formation - vertically. */
@@ -68,6 +95,8 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	private int shootingInterval;
 	/** Variance in the time between shots. */
 	private int shootingVariance;
+	/** Speed of the bullets shot by the members. */
+	private int bulletSpeed;
 	/** Initial ship speed. */
 	private int baseSpeed;
 	/** Speed of the ships. */
@@ -92,8 +121,14 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	private int shipHeight;
 	/** List of ships that are able to shoot. */
 	private List<EnemyShip> shooters;
+	/** Destroyed ships of a column, emptied after each use. */
+	private List<EnemyShip> destroyed;
+	/** Columns left empty, emptied after each use. */
+	private Set<Integer> emptyColumns;
 	/** Number of not destroyed ships. */
 	private int shipCount;
+	/** Number of ships the formation started with. */
+	private int initialShipCount;
 
 	/** Directions the formation can move. */
 	private enum Direction {
@@ -120,13 +155,16 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 		this.nShipsWide = gameSettings.getFormationWidth();
 		this.nShipsHigh = gameSettings.getFormationHeight();
 		this.shootingInterval = gameSettings.getShootingFrecuency();
-		this.shootingVariance = (int) (gameSettings.getShootingFrecuency()
-				* SHOOTING_VARIANCE);
+		this.shootingVariance = gameSettings.getShootingFrecuency()
+				* gameSettings.getShootingVariance() / 100;
+		this.bulletSpeed = gameSettings.getBulletSpeed();
 		this.baseSpeed = gameSettings.getBaseSpeed();
 		this.movementSpeed = this.baseSpeed;
 		this.positionX = INIT_POS_X;
 		this.positionY = INIT_POS_Y;
 		this.shooters = new ArrayList<EnemyShip>();
+		this.destroyed = new ArrayList<EnemyShip>();
+		this.emptyColumns = new HashSet<Integer>();
 		SpriteType spriteType;
 
 		this.logger.info("Initializing " + nShipsWide + "x" + nShipsHigh
@@ -138,13 +176,11 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 
 		for (List<EnemyShip> column : this.enemyShips) {
 			for (int i = 0; i < this.nShipsHigh; i++) {
-				if (i / (float) this.nShipsHigh < PROPORTION_C)
-					spriteType = SpriteType.EnemyShipC1;
-				else if (i / (float) this.nShipsHigh < PROPORTION_B
-						+ PROPORTION_C)
-					spriteType = SpriteType.EnemyShipB1;
-				else
-					spriteType = SpriteType.EnemyShipA1;
+				spriteType = gameSettings.getEnemyType(
+						this.enemyShips.indexOf(column), i);
+				// Empty cell.
+				if (spriteType == null)
+					continue;
 
 				column.add(new EnemyShip((SEPARATION_DISTANCE 
 						* this.enemyShips.indexOf(column))
@@ -153,9 +189,14 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 				this.shipCount++;
 			}
 		}
+		this.initialShipCount = this.shipCount;
 
-		this.shipWidth = this.enemyShips.get(0).get(0).getWidth();
-		this.shipHeight = this.enemyShips.get(0).get(0).getHeight();
+		EnemyShip anyShip = null;
+		for (List<EnemyShip> column : this.enemyShips)
+			if (anyShip == null && !column.isEmpty())
+				anyShip = column.get(0);
+		this.shipWidth = anyShip.getWidth();
+		this.shipHeight = anyShip.getHeight();
 
 		this.width = (this.nShipsWide - 1) * SEPARATION_DISTANCE
 				+ this.shipWidth;
@@ -163,26 +204,40 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 				+ this.shipHeight;
 
 		for (List<EnemyShip> column : this.enemyShips)
-			this.shooters.add(column.get(column.size() - 1));
+			if (!column.isEmpty())
+				this.shooters.add(column.get(column.size() - 1));
 	}
 
 	/**
-	 * Associates the formation to a given screen.
+	 * Associates the formation to a given screen, its clock and its random
+	 * numbers.
 	 * 
 	 * @param newScreen
 	 *            Screen to attach.
+	 * @param newTimingWheel
+	 *            Wheel of the game clock.
+	 * @param newRandom
+	 *            Random numbers of the game.
 	 */
-	public final void attach(final Screen newScreen) {
+	public final void attach(final Screen newScreen,
+			final TimingWheel newTimingWheel, final GameRandom newRandom) {
 		screen = newScreen;
+		timingWheel = newTimingWheel;
+		random = newRandom;
+		this.animationCooldown = timingWheel.getCooldown(ANIMATION_INTERVAL);
 	}
 
 	/**
-	 * Draws every individual component of the formation.
+	 * Draws every individual component of the formation, each with the
+	 * sprite of the current animation phase.
 	 */
 	public final void draw() {
+		SpriteType[] frames = ANIMATION_FRAMES[this.animationPhase];
 		for (List<EnemyShip> column : this.enemyShips)
 			for (EnemyShip enemyShip : column)
-				drawManager.drawEntity(enemyShip, enemyShip.getPositionX(),
+				drawManager.drawSprite(
+						frames[enemyShip.getSpriteType().ordinal()],
+						enemyShip.getColor(), enemyShip.getPositionX(),
 						enemyShip.getPositionY());
 	}
 
@@ -191,8 +246,8 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	 */
 	public final void update() {
 		if(this.shootingCooldown == null) {
-			this.shootingCooldown = Core.getVariableCooldown(shootingInterval,
-					shootingVariance);
+			this.shootingCooldown = this.timingWheel.getVariableCooldown(
+					shootingInterval, shootingVariance, this.random);
 			this.shootingCooldown.reset();
 		}
 		
@@ -201,7 +256,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 		int movementX = 0;
 		int movementY = 0;
 		double remainingProportion = (double) this.shipCount
-				/ (this.nShipsHigh * this.nShipsWide);
+				/ this.initialShipCount;
 		this.movementSpeed = (int) (Math.pow(remainingProportion, 2)
 				* this.baseSpeed);
 		this.movementSpeed += MINIMUM_SPEED;
@@ -221,30 +276,30 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 				if (isAtHorizontalAltitude)
 					if (previousDirection == Direction.RIGHT) {
 						currentDirection = Direction.LEFT;
-						this.logger.info("Formation now moving left 1");
+						this.logger.fine("Formation now moving left 1");
 					} else {
 						currentDirection = Direction.RIGHT;
-						this.logger.info("Formation now moving right 2");
+						this.logger.fine("Formation now moving right 2");
 					}
 			} else if (currentDirection == Direction.LEFT) {
 				if (isAtLeftSide)
 					if (!isAtBottom) {
 						previousDirection = currentDirection;
 						currentDirection = Direction.DOWN;
-						this.logger.info("Formation now moving down 3");
+						this.logger.fine("Formation now moving down 3");
 					} else {
 						currentDirection = Direction.RIGHT;
-						this.logger.info("Formation now moving right 4");
+						this.logger.fine("Formation now moving right 4");
 					}
 			} else {
 				if (isAtRightSide)
 					if (!isAtBottom) {
 						previousDirection = currentDirection;
 						currentDirection = Direction.DOWN;
-						this.logger.info("Formation now moving down 5");
+						this.logger.fine("Formation now moving down 5");
 					} else {
 						currentDirection = Direction.LEFT;
-						this.logger.info("Formation now moving left 6");
+						this.logger.fine("Formation now moving left 6");
 					}
 			}
 
@@ -258,26 +313,36 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 			positionX += movementX;
 			positionY += movementY;
 
-			// Cleans explosions.
-			List<EnemyShip> destroyed;
-			for (List<EnemyShip> column : this.enemyShips) {
-				destroyed = new ArrayList<EnemyShip>();
-				for (EnemyShip ship : column) {
+			// Cleans explosions. Indexed, as iterators are objects too.
+			for (int i = 0; i < this.enemyShips.size(); i++) {
+				final List<EnemyShip> column = this.enemyShips.get(i);
+				for (int j = 0; j < column.size(); j++) {
+					final EnemyShip ship = column.get(j);
 					if (ship != null && ship.isDestroyed()) {
-						destroyed.add(ship);
-						this.logger.info("Removed enemy "
-								+ column.indexOf(ship) + " from column "
-								+ this.enemyShips.indexOf(column));
+						this.destroyed.add(ship);
+						if (this.logger.isLoggable(Level.FINE))
+							this.logger.fine(() -> "Removed enemy "
+									+ column.indexOf(ship) + " from column "
+									+ this.enemyShips.indexOf(column));
 					}
 				}
-				column.removeAll(destroyed);
+				if (!this.destroyed.isEmpty()) {
+					column.removeAll(this.destroyed);
+					this.destroyed.clear();
+				}
 			}
 
-			for (List<EnemyShip> column : this.enemyShips)
-				for (EnemyShip enemyShip : column) {
-					enemyShip.move(movementX, movementY);
-					enemyShip.update();
-				}
+			for (int i = 0; i < this.enemyShips.size(); i++) {
+				List<EnemyShip> column = this.enemyShips.get(i);
+				for (int j = 0; j < column.size(); j++)
+					column.get(j).move(movementX, movementY);
+			}
+
+			// One phase change animates every ship.
+			if (this.animationCooldown.checkFinished()) {
+				this.animationCooldown.reset();
+				this.animationPhase = 1 - this.animationPhase;
+			}
 		}
 	}
 
@@ -285,10 +350,10 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	 * Cleans empty columns, adjusts the width and height of the formation.
 	 */
 	private void cleanUp() {
-		Set<Integer> emptyColumns = new HashSet<Integer>();
 		int maxColumn = 0;
 		int minPositionY = Integer.MAX_VALUE;
-		for (List<EnemyShip> column : this.enemyShips) {
+		for (int i = 0; i < this.enemyShips.size(); i++) {
+			List<EnemyShip> column = this.enemyShips.get(i);
 			if (!column.isEmpty()) {
 				// Height of this column
 				int columnSize = column.get(column.size() - 1).positionY
@@ -298,18 +363,22 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 						.getPositionY());
 			} else {
 				// Empty column, we remove it.
-				emptyColumns.add(this.enemyShips.indexOf(column));
+				this.emptyColumns.add(this.enemyShips.indexOf(column));
 			}
 		}
-		for (int index : emptyColumns) {
-			this.enemyShips.remove(index);
-			logger.info("Removed column " + index);
+		if (!this.emptyColumns.isEmpty()) {
+			for (int index : this.emptyColumns) {
+				this.enemyShips.remove(index);
+				logger.fine(() -> "Removed column " + index);
+			}
+			this.emptyColumns.clear();
 		}
 
 		int leftMostPoint = 0;
 		int rightMostPoint = 0;
 		
-		for (List<EnemyShip> column : this.enemyShips) {
+		for (int i = 0; i < this.enemyShips.size(); i++) {
+			List<EnemyShip> column = this.enemyShips.get(i);
 			if (!column.isEmpty()) {
 				if (leftMostPoint == 0)
 					leftMostPoint = column.get(0).getPositionX();
@@ -332,13 +401,14 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	 */
 	public final void shoot(final Set<Bullet> bullets) {
 		// For now, only ships in the bottom row are able to shoot.
-		int index = (int) (Math.random() * this.shooters.size());
+		int index = this.random.nextInt(this.shooters.size());
 		EnemyShip shooter = this.shooters.get(index);
 
 		if (this.shootingCooldown.checkFinished()) {
 			this.shootingCooldown.reset();
 			bullets.add(BulletPool.getBullet(shooter.getPositionX()
-					+ shooter.width / 2, shooter.getPositionY(), BULLET_SPEED));
+					+ shooter.width / 2, shooter.getPositionY(),
+					this.bulletSpeed));
 		}
 	}
 
@@ -353,8 +423,12 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 			for (int i = 0; i < column.size(); i++)
 				if (column.get(i).equals(destroyedShip)) {
 					column.get(i).destroy();
-					this.logger.info("Destroyed ship in ("
-							+ this.enemyShips.indexOf(column) + "," + i + ")");
+					if (this.logger.isLoggable(Level.FINE)) {
+						final int row = i;
+						this.logger.fine(() -> "Destroyed ship in ("
+								+ this.enemyShips.indexOf(column) + ","
+								+ row + ")");
+					}
 				}
 
 		// Updates the list of ships that can shoot the player.
@@ -375,7 +449,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 				this.shooters.set(destroyedShipIndex, nextShooter);
 			else {
 				this.shooters.remove(destroyedShipIndex);
-				this.logger.info("Shooters list reduced to "
+				this.logger.fine(() -> "Shooters list reduced to "
 						+ this.shooters.size() + " members.");
 			}
 		}
@@ -409,13 +483,85 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	 */
 	@Override
 	public final Iterator<EnemyShip> iterator() {
-		Set<EnemyShip> enemyShipsList = new HashSet<EnemyShip>();
+		// Column after column, the same order on every run so games can be
+		// replayed, and without copying the ships on every tick.
+		return new Iterator<EnemyShip>() {
+			/** Column of the next ship. */
+			private int column;
+			/** Row of the next ship in its column. */
+			private int row;
+
+			@Override
+			public boolean hasNext() {
+				while (this.column < enemyShips.size()
+						&& this.row >= enemyShips.get(this.column).size()) {
+					this.column++;
+					this.row = 0;
+				}
+				return this.column < enemyShips.size();
+			}
 
-		for (List<EnemyShip> column : this.enemyShips)
-			for (EnemyShip enemyShip : column)
-				enemyShipsList.add(enemyShip);
+			@Override
+			public EnemyShip next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return enemyShips.get(this.column).get(this.row++);
+			}
+		};
+	}
 
-		return enemyShipsList.iterator();
+	/**
+	 * Adds the position of the formation and the ships left to a checksum.
+	 * 
+	 * @param checksum
+	 *            Checksums of the game.
+	 */
+	public final void checksum(final StateChecksum checksum) {
+		checksum.add(StateChecksum.Component.FORMATION, this.positionX);
+		checksum.add(StateChecksum.Component.FORMATION, this.positionY);
+		checksum.add(StateChecksum.Component.FORMATION, this.shipCount);
+	}
+
+	/**
+	 * Writes the position of the formation, then which of its cells hold a
+	 * ship not destroyed: cell (column, row) from its upper left corner is
+	 * bit column * {@link LevelCompiler#MAX_HEIGHT} + row, counting 32 bits
+	 * per value from the lowest.
+	 * 
+	 * @param observation
+	 *            Array to write to.
+	 * @param offset
+	 *            First of the {@link #OBSERVATION_SIZE} values written.
+	 */
+	public final void observe(final int[] observation, final int offset) {
+		observation[offset] = this.positionX;
+		observation[offset + 1] = this.positionY;
+		int cells = offset + 2;
+		for (int i = cells; i < offset + OBSERVATION_SIZE; i++)
+			observation[i] = 0;
+		for (int i = 0; i < this.enemyShips.size(); i++) {
+			List<EnemyShip> column = this.enemyShips.get(i);
+			for (int j = 0; j < column.size(); j++) {
+				EnemyShip ship = column.get(j);
+				if (ship.isDestroyed())
+					continue;
+				int cell = (ship.getPositionX() - this.positionX)
+						/ SEPARATION_DISTANCE * LevelCompiler.MAX_HEIGHT
+						+ (ship.getPositionY() - this.positionY)
+						/ SEPARATION_DISTANCE;
+				if (cell >= 0 && cell < CELLS)
+					observation[cells + cell / 32] |= 1 << (cell % 32);
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of ships not destroyed.
+	 * 
+	 * @return Ships alive in the formation.
+	 */
+	public final int getShipCount() {
+		return this.shipCount;
 	}
 
 	/**
@@ -426,4 +572,121 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
 	public final boolean isEmpty() {
 		return this.shipCount <= 0;
 	}
+
+	/**
+	 * Writes the position, movement, cooldowns and ships of the formation to
+	 * a save.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	public final void save(final ByteBuffer buffer) {
+		buffer.putInt(this.positionX);
+		buffer.putInt(this.positionY);
+		buffer.putInt(this.width);
+		buffer.putInt(this.height);
+		buffer.put((byte) this.currentDirection.ordinal());
+		buffer.put((byte) (this.previousDirection == null ? -1
+				: this.previousDirection.ordinal()));
+		buffer.putInt(this.movementInterval);
+		buffer.put((byte) this.animationPhase);
+		buffer.putInt((int) this.animationCooldown.getRemainingTicks());
+		buffer.putInt(this.shootingCooldown == null ? -1
+				: (int) this.shootingCooldown.getRemainingTicks());
+		buffer.putInt(this.shipCount);
+		buffer.putInt(this.initialShipCount);
+
+		buffer.putShort((short) this.enemyShips.size());
+		for (List<EnemyShip> column : this.enemyShips) {
+			buffer.putShort((short) column.size());
+			for (EnemyShip enemyShip : column) {
+				buffer.putInt(enemyShip.getPositionX());
+				buffer.putInt(enemyShip.getPositionY());
+				buffer.put((byte) enemyShip.getSpriteType().ordinal());
+				buffer.put((byte) (enemyShip.isDestroyed() ? 1 : 0));
+			}
+		}
+		// Shooters as column and row, they are picked by index.
+		buffer.putShort((short) this.shooters.size());
+		for (EnemyShip shooter : this.shooters) {
+			int column = 0;
+			int row = -1;
+			while (column < this.enemyShips.size() && row < 0)
+				row = this.enemyShips.get(column++).indexOf(shooter);
+			buffer.putShort((short) (column - 1));
+			buffer.putShort((short) row);
+		}
+	}
+
+	/**
+	 * Reads the state written by {@link #save(ByteBuffer)}, replacing the
+	 * ships. The formation must be attached first.
+	 * 
+	 * @param buffer
+	 *            Buffer to read from.
+	 */
+	public final void restore(final ByteBuffer buffer) {
+		Direction[] directions = Direction.values();
+		SpriteType[] spriteTypes = SpriteType.values();
+		this.positionX = buffer.getInt();
+		this.positionY = buffer.getInt();
+		this.width = buffer.getInt();
+		this.height = buffer.getInt();
+		this.currentDirection = directions[buffer.get()];
+		int previous = buffer.get();
+		this.previousDirection = previous < 0 ? null : directions[previous];
+		this.movementInterval = buffer.getInt();
+		this.animationPhase = buffer.get();
+		this.animationCooldown.resume(buffer.getInt());
+		int shootingTicks = buffer.getInt();
+		if (this.shootingCooldown != null)
+			this.shootingCooldown.resume(0);
+		if (shootingTicks >= 0) {
+			if (this.shootingCooldown == null)
+				this.shootingCooldown = this.timingWheel.getVariableCooldown(
+						shootingInterval, shootingVariance, this.random);
+			this.shootingCooldown.resume(shootingTicks);
+		} else {
+			this.shootingCooldown = null;
+		}
+		this.shipCount = buffer.getInt();
+		this.initialShipCount = buffer.getInt();
+
+		this.enemyShips.clear();
+		int columns = buffer.getShort();
+		for (int i = 0; i < columns; i++) {
+			int size = buffer.getShort();
+			List<EnemyShip> column = new ArrayList<EnemyShip>(size);
+			for (int j = 0; j < size; j++) {
+				EnemyShip enemyShip = new EnemyShip(buffer.getInt(),
+						buffer.getInt(), spriteTypes[buffer.get()]);
+				if (buffer.get() != 0)
+					enemyShip.destroy();
+				column.add(enemyShip);
+			}
+			this.enemyShips.add(column);
+		}
+		this.shooters.clear();
+		int shooterCount = buffer.getShort();
+		for (int i = 0; i < shooterCount; i++) {
+			int column = buffer.getShort();
+			int row = buffer.getShort();
+			if (row >= 0)
+				this.shooters.add(this.enemyShips.get(column).get(row));
+		}
+	}
+
+	/**
+	 * Makes two sprites alternate on the second animation phase.
+	 * 
+	 * @param first
+	 *            One sprite of the pair.
+	 * @param second
+	 *            The other sprite of the pair.
+	 */
+	private static void swapFrames(final SpriteType first,
+			final SpriteType second) {
+		ANIMATION_FRAMES[1][first.ordinal()] = second;
+		ANIMATION_FRAMES[1][second.ordinal()] = first;
+	}
 }
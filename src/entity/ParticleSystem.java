@@ -0,0 +1,187 @@
+package entity;
+
+import engine.Renderer;
+
+/**
+ * Implements a fixed set of particles, for explosions and hits. Particles
+ * are kept in parallel arrays of fixed point values, so spawning, moving and
+ * removing them never allocates.
+ *
+ * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
+ *
+ */
+public class ParticleSystem {
+
+	/** Fraction bits of the fixed point positions and velocities. */
+	private static final int FIXED_SHIFT = 8;
+	/** One pixel, in fixed point. */
+	private static final int UNIT = 1 << FIXED_SHIFT;
+	/** Fall speed gained each frame, in fixed point. */
+	private static final int GRAVITY = UNIT / 32;
+	/** Number of directions particles can be thrown in. */
+	private static final int DIRECTIONS = 64;
+	/** Horizontal component of each direction, in fixed point. */
+	private static final int[] DIRECTION_X = new int[DIRECTIONS];
+	/** Vertical component of each direction, in fixed point. */
+	private static final int[] DIRECTION_Y = new int[DIRECTIONS];
+
+	static {
+		for (int i = 0; i < DIRECTIONS; i++) {
+			double angle = 2 * Math.PI * i / DIRECTIONS;
+			DIRECTION_X[i] = (int) Math.round(Math.cos(angle) * UNIT);
+			DIRECTION_Y[i] = (int) Math.round(Math.sin(angle) * UNIT);
+		}
+	}
+
+	/** Horizontal position of each particle, in fixed point. */
+	private final int[] positionsX;
+	/** Vertical position of each particle, in fixed point. */
+	private final int[] positionsY;
+	/** Horizontal speed of each particle, in fixed point. */
+	private final int[] speedsX;
+	/** Vertical speed of each particle, in fixed point. */
+	private final int[] speedsY;
+	/** Frames each particle has left. */
+	private final int[] lives;
+	/** Color of each particle, as RGB. */
+	private final int[] colors;
+	/** Horizontal pixel of each particle, filled when drawing. */
+	private final int[] pixelsX;
+	/** Vertical pixel of each particle, filled when drawing. */
+	private final int[] pixelsY;
+	/** Number of live particles, at the start of the arrays. */
+	private int count;
+	/** Particles not spawned because the arrays were full. */
+	private long dropped;
+	/** State of the random generator. */
+	private int seed;
+
+	/**
+	 * Constructor, reserves room for every particle.
+	 *
+	 * @param capacity
+	 *            Maximum particles alive at once.
+	 */
+	public ParticleSystem(final int capacity) {
+		this.positionsX = new int[capacity];
+		this.positionsY = new int[capacity];
+		this.speedsX = new int[capacity];
+		this.speedsY = new int[capacity];
+		this.lives = new int[capacity];
+		this.colors = new int[capacity];
+		this.pixelsX = new int[capacity];
+		this.pixelsY = new int[capacity];
+		this.seed = 0x2545F491;
+	}
+
+	/**
+	 * Throws particles in every direction from a point. Particles that don't
+	 * fit are dropped.
+	 *
+	 * @param positionX
+	 *            Horizontal position of the origin.
+	 * @param positionY
+	 *            Vertical position of the origin.
+	 * @param amount
+	 *            Number of particles.
+	 * @param rgb
+	 *            Color of the particles.
+	 * @param speed
+	 *            Highest speed of the particles, in pixels per frame.
+	 * @param life
+	 *            Longest life of the particles, in frames.
+	 */
+	public final void emit(final int positionX, final int positionY,
+			final int amount, final int rgb, final int speed,
+			final int life) {
+		for (int n = 0; n < amount; n++) {
+			if (this.count == this.lives.length) {
+				this.dropped += amount - n;
+				return;
+			}
+			int i = this.count++;
+			int direction = nextRandom() & (DIRECTIONS - 1);
+			int magnitude = nextRandom() % (speed * UNIT + 1);
+			this.positionsX[i] = positionX << FIXED_SHIFT;
+			this.positionsY[i] = positionY << FIXED_SHIFT;
+			this.speedsX[i] = DIRECTION_X[direction] * magnitude
+					>> FIXED_SHIFT;
+			this.speedsY[i] = DIRECTION_Y[direction] * magnitude
+					>> FIXED_SHIFT;
+			this.lives[i] = life / 2 + nextRandom() % (life / 2 + 1);
+			this.colors[i] = rgb;
+		}
+	}
+
+	/**
+	 * Moves the particles one frame and removes the expired ones.
+	 */
+	public final void update() {
+		int i = 0;
+		while (i < this.count) {
+			if (--this.lives[i] <= 0) {
+				// Replaced by the last particle, checked on this same index.
+				int last = --this.count;
+				this.positionsX[i] = this.positionsX[last];
+				this.positionsY[i] = this.positionsY[last];
+				this.speedsX[i] = this.speedsX[last];
+				this.speedsY[i] = this.speedsY[last];
+				this.lives[i] = this.lives[last];
+				this.colors[i] = this.colors[last];
+				continue;
+			}
+			this.speedsY[i] += GRAVITY;
+			this.positionsX[i] += this.speedsX[i];
+			this.positionsY[i] += this.speedsY[i];
+			i++;
+		}
+	}
+
+	/**
+	 * Draws every particle in a single call.
+	 *
+	 * @param renderer
+	 *            Renderer to draw on.
+	 */
+	public final void draw(final Renderer renderer) {
+		if (this.count == 0)
+			return;
+		for (int i = 0; i < this.count; i++) {
+			this.pixelsX[i] = this.positionsX[i] >> FIXED_SHIFT;
+			this.pixelsY[i] = this.positionsY[i] >> FIXED_SHIFT;
+		}
+		renderer.drawParticles(this.pixelsX, this.pixelsY, this.colors,
+				this.count);
+	}
+
+	/**
+	 * Getter for the live particles.
+	 *
+	 * @return Number of particles alive.
+	 */
+	public final int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Getter for the particles that didn't fit.
+	 *
+	 * @return Particles dropped since the system was created.
+	 */
+	public final long getDropped() {
+		return this.dropped;
+	}
+
+	/**
+	 * Returns the next value of a xorshift generator, cheaper than a shared
+	 * random generator.
+	 *
+	 * @return Random non negative integer.
+	 */
+	private int nextRandom() {
+		this.seed ^= this.seed << 13;
+		this.seed ^= this.seed >>> 17;
+		this.seed ^= this.seed << 5;
+		return this.seed & Integer.MAX_VALUE;
+	}
+}
@@ -1,11 +1,13 @@
 package entity;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import engine.Cooldown;
 import engine.Core;
 import engine.DrawManager.SpriteType;
+import engine.TimingWheel;
 
 /**
  * Implements a ship, to be controlled by the player.
@@ -17,6 +19,8 @@ public class Ship extends Entity {
 
 	/** Time between shots. */
 	private static final int SHOOTING_INTERVAL = 750;
+	/** Time spent inactive after a hit. */
+	private static final int DESTRUCTION_TIME = 1000;
 	/** Speed of the bullets shot by the ship. */
 	private static final int BULLET_SPEED = -6;
 	/** Movement of the ship for each unit of time. */
@@ -28,7 +32,8 @@ public class Ship extends Entity {
 	private Cooldown destructionCooldown;
 
 	/**
-	 * Constructor, establishes the ship's properties.
+	 * Constructor, establishes the properties of a ship outside of a game,
+	 * with cooldowns on the system clock.
 	 * 
 	 * @param positionX
 	 *            Initial position of the ship in the X axis.
@@ -40,7 +45,26 @@ public class Ship extends Entity {
 
 		this.spriteType = SpriteType.Ship;
 		this.shootingCooldown = Core.getCooldown(SHOOTING_INTERVAL);
-		this.destructionCooldown = Core.getCooldown(1000);
+		this.destructionCooldown = Core.getCooldown(DESTRUCTION_TIME);
+	}
+
+	/**
+	 * Constructor, establishes the ship's properties.
+	 * 
+	 * @param positionX
+	 *            Initial position of the ship in the X axis.
+	 * @param positionY
+	 *            Initial position of the ship in the Y axis.
+	 * @param timingWheel
+	 *            Wheel of the game clock, for the cooldowns.
+	 */
+	public Ship(final int positionX, final int positionY,
+			final TimingWheel timingWheel) {
+		super(positionX, positionY, 13 * 2, 8 * 2, Color.GREEN);
+
+		this.spriteType = SpriteType.Ship;
+		this.shootingCooldown = timingWheel.getCooldown(SHOOTING_INTERVAL);
+		this.destructionCooldown = timingWheel.getCooldown(DESTRUCTION_TIME);
 	}
 
 	/**
@@ -102,6 +126,33 @@ public class Ship extends Entity {
 		return !this.destructionCooldown.checkFinished();
 	}
 
+	/**
+	 * Writes the position and cooldowns of the ship to a save.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	public final void save(final ByteBuffer buffer) {
+		buffer.putInt(this.positionX);
+		buffer.putInt(this.positionY);
+		buffer.putInt((int) this.shootingCooldown.getRemainingTicks());
+		buffer.putInt((int) this.destructionCooldown.getRemainingTicks());
+	}
+
+	/**
+	 * Reads the state written by {@link #save(ByteBuffer)}.
+	 * 
+	 * @param buffer
+	 *            Buffer to read from.
+	 */
+	public final void restore(final ByteBuffer buffer) {
+		this.positionX = buffer.getInt();
+		this.positionY = buffer.getInt();
+		this.shootingCooldown.resume(buffer.getInt());
+		this.destructionCooldown.resume(buffer.getInt());
+		update();
+	}
+
 	/**
 	 * Getter for the ship's speed.
 	 * 
@@ -1,18 +1,37 @@
 package screen;
 
+import java.awt.Color;
 import java.awt.event.KeyEvent;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import engine.Cooldown;
 import engine.Core;
+import engine.FrameWatchdog;
+import engine.GameRandom;
 import engine.GameSettings;
 import engine.GameState;
+import engine.InputManager;
+import engine.Replay;
+import engine.ReplayRecorder;
+import engine.RewindBuffer;
+import engine.SaveStateManager;
+import engine.Saveable;
+import engine.SoundManager.Music;
+import engine.SoundManager.Sound;
+import engine.StateChecksum;
+import engine.StateChecksum.Component;
+import engine.TickSample;
+import engine.TimingWheel;
 import entity.Bullet;
+import entity.BulletInterceptor;
 import entity.BulletPool;
+import entity.Bunker;
 import entity.EnemyShip;
 import entity.EnemyShipFormation;
 import entity.Entity;
+import entity.ParticleSystem;
 import entity.Ship;
 
 /**
@@ -21,27 +40,71 @@ import entity.Ship;
  * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
  * 
  */
-public class GameScreen extends Screen {
+public class GameScreen extends Screen implements Saveable {
 
 	/** Milliseconds until the screen accepts user input. */
 	private static final int INPUT_DELAY = 6000;
 	/** Bonus score for each life remaining at the end of the level. */
 	private static final int LIFE_SCORE = 100;
-	/** Minimum time between bonus ship's appearances. */
-	private static final int BONUS_SHIP_INTERVAL = 20000;
-	/** Maximum variance in the time between bonus ship's appearances. */
-	private static final int BONUS_SHIP_VARIANCE = 10000;
 	/** Time until bonus ship explosion disappears. */
 	private static final int BONUS_SHIP_EXPLOSION = 500;
 	/** Time from finishing the level to screen change. */
 	private static final int SCREEN_CHANGE_INTERVAL = 1500;
 	/** Height of the interface separation line. */
 	private static final int SEPARATION_LINE_HEIGHT = 40;
+	/** Maximum particles on screen. */
+	private static final int PARTICLE_CAPACITY = 4096;
+	/** Particles thrown by a destroyed enemy. */
+	private static final int ENEMY_PARTICLES = 40;
+	/** Particles thrown by the player ship when hit. */
+	private static final int PLAYER_PARTICLES = 120;
+	/** Particles thrown by the destroyed bonus ship. */
+	private static final int BONUS_SHIP_PARTICLES = 160;
+	/** Number of bunkers. */
+	private static final int BUNKERS = 4;
+	/** Distance from the bottom of the screen to the bunkers. */
+	private static final int BUNKER_ALTITUDE = 110;
+	/** If play can be rewound, for practice and debugging. */
+	private static final boolean REWIND_ENABLED = Boolean
+			.getBoolean("invaders.rewind");
+	/** Key held to rewind play. */
+	private static final int REWIND_KEY = KeyEvent.VK_BACK_SPACE;
+	/** Seconds of play that can be rewound. */
+	private static final int REWIND_SECONDS = 30;
+	/** Ticks gone back on each frame the rewind key is held. */
+	private static final int REWIND_SPEED = 2;
+	/** Color of the ghost ship, dim enough to tell it from the player. */
+	private static final Color GHOST_COLOR = new Color(0x00, 0x60, 0x00);
+	/** Enemy bullets nearest to the ship told to a bot. */
+	public static final int OBSERVED_BULLETS = 4;
+	/** Values told to a bot on each step, see {@link #observe(int[], int)}. */
+	public static final int OBSERVATION_SIZE = 5
+			+ EnemyShipFormation.OBSERVATION_SIZE + 2 * OBSERVED_BULLETS;
 
 	/** Current game difficulty settings. */
 	private GameSettings gameSettings;
 	/** Current difficulty level number. */
 	private int level;
+	/** Timers of the game, on its tick clock. */
+	private TimingWheel timingWheel;
+	/** Random numbers of the game. */
+	private GameRandom random;
+	/** Saved state to continue from, null to start the level. */
+	private ByteBuffer savedState;
+	/** Asks for a save every few seconds. */
+	private TimingWheel.Timer saveTimer;
+	/** If the game is saved at the end of the current tick. */
+	private boolean saveDue;
+	/** States of the last ticks, null if rewinding is disabled. */
+	private RewindBuffer rewindBuffer;
+	/** Records the inputs of the game, null if not recorded. */
+	private ReplayRecorder replayRecorder;
+	/** Game raced, or played back by a ghost; null for none. */
+	private Replay replay;
+	/** Best game played back alongside this one, null for none. */
+	private GameScreen ghost;
+	/** If this screen is unseen and unheard, as a ghost or for a bot. */
+	private boolean isGhost;
 	/** Formation of enemy ships. */
 	private EnemyShipFormation enemyShipFormation;
 	/** Player's ship. */
@@ -52,10 +115,26 @@ public class GameScreen extends Screen {
 	private Cooldown enemyShipSpecialCooldown;
 	/** Time until bonus ship explosion disappears. */
 	private Cooldown enemyShipSpecialExplosionCooldown;
-	/** Time from finishing the level to screen change. */
-	private Cooldown screenFinishedCooldown;
+	/** Ends the screen a while after finishing the level. */
+	private TimingWheel.Timer screenFinishedTimer;
+	/** Shields between the player and the enemies. */
+	private Bunker[] bunkers;
+	/** Upper side of the bunkers. */
+	private int bunkerTop;
+	/** Lower side of the bunkers. */
+	private int bunkerBottom;
+	/** Finds player and enemy bullets crossing each other. */
+	private BulletInterceptor bulletInterceptor;
+	/** Particles of explosions and hits. */
+	private ParticleSystem particles;
+	/** Checksums of the level, from its first tick. */
+	private StateChecksum checksum;
+	/** Where a ghost drifted from the recorded game, null if it didn't. */
+	private String divergence;
 	/** Set of all bullets fired by on screen ships. */
 	private Set<Bullet> bullets;
+	/** Bullets gone on the current tick, in order, emptied once recycled. */
+	private Set<Bullet> recyclable;
 	/** Current score. */
 	private int score;
 	/** Player lives left. */
@@ -64,8 +143,6 @@ public class GameScreen extends Screen {
 	private int bulletsShot;
 	/** Total ships destroyed by the player. */
 	private int shipsDestroyed;
-	/** Moment the game starts. */
-	private long gameStartTime;
 	/** Checks if the level is finished. */
 	private boolean levelFinished;
 	/** Checks if a bonus life is received. */
@@ -101,6 +178,16 @@ public class GameScreen extends Screen {
 			this.lives++;
 		this.bulletsShot = gameState.getBulletsShot();
 		this.shipsDestroyed = gameState.getShipsDestroyed();
+		this.random = new GameRandom(System.nanoTime());
+	}
+
+	/**
+	 * Plays the game music.
+	 * 
+	 * @return Track of the screen.
+	 */
+	public final Music getMusic() {
+		return Music.Game;
 	}
 
 	/**
@@ -109,22 +196,91 @@ public class GameScreen extends Screen {
 	public final void initialize() {
 		super.initialize();
 
-		enemyShipFormation = new EnemyShipFormation(this.gameSettings);
-		enemyShipFormation.attach(this);
-		this.ship = new Ship(this.width / 2, this.height - 30);
-		// Appears each 10-30 seconds.
-		this.enemyShipSpecialCooldown = Core.getVariableCooldown(
-				BONUS_SHIP_INTERVAL, BONUS_SHIP_VARIANCE);
+		this.timingWheel = new TimingWheel(this.fps);
+		if (this.replayRecorder != null) {
+			if (this.savedState != null)
+				this.replayRecorder.discard();
+			else
+				this.replayRecorder.startLevel(new GameState(this.level,
+						this.score, this.bonusLife ? this.lives - 1
+								: this.lives, this.bulletsShot,
+						this.shipsDestroyed), this.bonusLife, this.random
+						.getState());
+		}
+		// Usually built while the previous level was ending.
+		if (!this.isGhost)
+			enemyShipFormation = Core.getLevelManager().takeFormation(
+					this.level, this.gameSettings);
+		if (enemyShipFormation == null)
+			enemyShipFormation = new EnemyShipFormation(this.gameSettings);
+		enemyShipFormation.attach(this, this.timingWheel, this.random);
+		this.ship = new Ship(this.width / 2, this.height - 30,
+				this.timingWheel);
+		// Appears each 10-30 seconds by default.
+		this.enemyShipSpecialCooldown = this.timingWheel.getVariableCooldown(
+				this.gameSettings.getBonusShipInterval(),
+				this.gameSettings.getBonusShipVariance(), this.random);
 		this.enemyShipSpecialCooldown.reset();
-		this.enemyShipSpecialExplosionCooldown = Core
+		this.enemyShipSpecialExplosionCooldown = this.timingWheel
 				.getCooldown(BONUS_SHIP_EXPLOSION);
-		this.screenFinishedCooldown = Core.getCooldown(SCREEN_CHANGE_INTERVAL);
-		this.bullets = new HashSet<Bullet>();
+		this.screenFinishedTimer = this.timingWheel.newTimer(new Runnable() {
+			@Override
+			public void run() {
+				isRunning = false;
+			}
+		});
+		// Same order on every run, so games can be replayed.
+		this.bullets = new LinkedHashSet<Bullet>();
+		this.recyclable = new LinkedHashSet<Bullet>();
+		this.bulletInterceptor = new BulletInterceptor();
+		this.particles = new ParticleSystem(PARTICLE_CAPACITY);
+		this.checksum = new StateChecksum();
+		this.bunkers = new Bunker[BUNKERS];
+		this.bunkerTop = this.height - BUNKER_ALTITUDE;
+		for (int i = 0; i < BUNKERS; i++) {
+			this.bunkers[i] = new Bunker(i, 0, this.bunkerTop);
+			// Evenly spread, centered on equal parts of the screen.
+			this.bunkers[i].setPositionX(this.width * (2 * i + 1)
+					/ (2 * BUNKERS) - this.bunkers[i].getWidth() / 2);
+		}
+		this.bunkerBottom = this.bunkerTop + this.bunkers[0].getHeight();
 
 		// Special input delay / countdown.
-		this.gameStartTime = System.currentTimeMillis();
-		this.inputDelay = Core.getCooldown(INPUT_DELAY);
+		this.inputDelay = this.timingWheel.getCooldown(INPUT_DELAY);
 		this.inputDelay.reset();
+
+		if (this.savedState != null) {
+			restore(this.savedState);
+			this.savedState = null;
+			this.logger.info("Resumed level " + this.level + " with "
+					+ this.enemyShipFormation.getShipCount()
+					+ " enemies and " + this.lives + " lives.");
+		}
+
+		if (this.replay != null && !this.isGhost
+				&& this.replay.seekLevel(this.level))
+			this.ghost = newGhost(this.replay, this.gameSettings);
+
+		if (REWIND_ENABLED && !this.isGhost) {
+			// A keyframe each second.
+			this.rewindBuffer = new RewindBuffer(REWIND_SECONDS * this.fps,
+					this.fps);
+			Core.getEngineMetrics().setRewindBuffer(this.rewindBuffer);
+		}
+
+		// Saved every few seconds, to be resumed if the game dies.
+		final int saveInterval = this.isGhost ? 0 : Core
+				.getSaveStateManager().getInterval();
+		if (saveInterval > 0) {
+			this.saveTimer = this.timingWheel.newTimer(new Runnable() {
+				@Override
+				public void run() {
+					saveDue = true;
+					saveTimer.schedule(timingWheel.toTicks(saveInterval));
+				}
+			});
+			this.saveTimer.schedule(this.timingWheel.toTicks(saveInterval));
+		}
 	}
 
 	/**
@@ -135,7 +291,7 @@ public class GameScreen extends Screen {
 	public final int run() {
 		super.run();
 
-		this.score += LIFE_SCORE * (this.lives - 1);
+		scoreLives();
 		this.logger.info("Screen cleared with a score of " + this.score);
 
 		return this.returnCode;
@@ -146,14 +302,70 @@ public class GameScreen extends Screen {
 	 */
 	protected final void update() {
 		super.update();
+		if (this.rewindBuffer != null
+				&& inputManager.isKeyDown(REWIND_KEY)) {
+			ByteBuffer state = this.rewindBuffer.rewind(REWIND_SPEED);
+			if (state != null) {
+				rewind(state);
+				// The recorded inputs no longer lead here.
+				if (this.replayRecorder != null)
+					this.replayRecorder.discard();
+			}
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.DRAW);
+			draw();
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.UPDATE);
+			return;
+		}
+
+		int input = inputManager.getKeyMask();
+		tick(input);
+		if (this.replayRecorder != null)
+			this.replayRecorder.record(input, this.checksum);
+
+		if (this.ghost != null) {
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.GHOST);
+			if (!this.ghost.playBack()) {
+				if (this.ghost.divergence != null)
+					this.logger.warning("The best game no longer plays back"
+							+ " the same way, " + this.ghost.divergence);
+				this.ghost = null;
+			}
+		}
+
+		this.frameWatchdog.beginPhase(FrameWatchdog.Phase.DRAW);
+		draw();
+		this.frameWatchdog.beginPhase(FrameWatchdog.Phase.UPDATE);
+
+		// Between ticks, so a restored game goes on with the next one.
+		if (this.saveDue) {
+			this.saveDue = false;
+			Core.getSaveStateManager().saveAsync(this);
+		}
+		if (this.rewindBuffer != null)
+			this.rewindBuffer.record(this);
+	}
+
+	/**
+	 * Adds the bonus for the lives left once the level is over.
+	 */
+	private void scoreLives() {
+		this.score += LIFE_SCORE * (this.lives - 1);
+	}
+
+	/**
+	 * Moves the game a tick forward.
+	 * 
+	 * @param input
+	 *            Keys held, as an input manager key mask.
+	 */
+	private void tick(final int input) {
+		this.timingWheel.advance();
 
 		if (this.inputDelay.checkFinished() && !this.levelFinished) {
 
 			if (!this.ship.isDestroyed()) {
-				boolean moveRight = inputManager.isKeyDown(KeyEvent.VK_RIGHT)
-						|| inputManager.isKeyDown(KeyEvent.VK_D);
-				boolean moveLeft = inputManager.isKeyDown(KeyEvent.VK_LEFT)
-						|| inputManager.isKeyDown(KeyEvent.VK_A);
+				boolean moveRight = (input & InputManager.MASK_RIGHT) != 0;
+				boolean moveLeft = (input & InputManager.MASK_LEFT) != 0;
 
 				boolean isRightBorder = this.ship.getPositionX()
 						+ this.ship.getWidth() + this.ship.getSpeed() > this.width - 1;
@@ -166,9 +378,11 @@ public class GameScreen extends Screen {
 				if (moveLeft && !isLeftBorder) {
 					this.ship.moveLeft();
 				}
-				if (inputManager.isKeyDown(KeyEvent.VK_SPACE))
-					if (this.ship.shoot(this.bullets))
-						this.bulletsShot++;
+				if ((input & InputManager.MASK_SPACE) != 0
+						&& this.ship.shoot(this.bullets)) {
+					this.bulletsShot++;
+					playSound(Sound.Shoot);
+				}
 			}
 
 			if (this.enemyShipSpecial != null) {
@@ -182,12 +396,15 @@ public class GameScreen extends Screen {
 					&& this.enemyShipSpecialCooldown.checkFinished()) {
 				this.enemyShipSpecial = new EnemyShip();
 				this.enemyShipSpecialCooldown.reset();
-				this.logger.info("A special ship appears");
+				playSound(Sound.BonusShip);
+				if (!this.isGhost)
+					this.logger.info("A special ship appears");
 			}
 			if (this.enemyShipSpecial != null
 					&& this.enemyShipSpecial.getPositionX() > this.width) {
 				this.enemyShipSpecial = null;
-				this.logger.info("The special ship has escaped");
+				if (!this.isGhost)
+					this.logger.info("The special ship has escaped");
 			}
 
 			this.ship.update();
@@ -195,19 +412,36 @@ public class GameScreen extends Screen {
 			this.enemyShipFormation.shoot(this.bullets);
 		}
 
+		this.particles.update();
+
+		if (!this.isGhost)
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.COLLISIONS);
 		manageCollisions();
 		cleanBullets();
-		draw();
 
 		if ((this.enemyShipFormation.isEmpty() || this.lives == 0)
 				&& !this.levelFinished) {
 			this.levelFinished = true;
-			this.screenFinishedCooldown.reset();
+			this.screenFinishedTimer.schedule(this.timingWheel
+					.toTicks(SCREEN_CHANGE_INTERVAL));
+			if (this.lives > 0 && !this.isGhost)
+				Core.getLevelManager().prepareFormation(this.level + 1);
 		}
 
-		if (this.levelFinished && this.screenFinishedCooldown.checkFinished())
-			this.isRunning = false;
-
+		// Bullets and destroyed ships are added as they are checked.
+		this.checksum.add(Component.SHIP, this.ship.getPositionX());
+		this.checksum.add(Component.SHIP, this.ship.isDestroyed() ? 1 : 0);
+		this.enemyShipFormation.checksum(this.checksum);
+		if (this.enemyShipSpecial != null)
+			this.checksum.add(Component.FORMATION,
+					this.enemyShipSpecial.getPositionX());
+		this.checksum.add(Component.SCORE, this.score);
+		this.checksum.add(Component.SCORE, this.lives);
+		this.checksum.add(Component.SCORE, this.bulletsShot);
+		this.checksum.add(Component.SCORE, this.shipsDestroyed);
+		long randomState = this.random.getState();
+		this.checksum.add(Component.RANDOM, (int) randomState);
+		this.checksum.add(Component.RANDOM, (int) (randomState >>> 32));
 	}
 
 	/**
@@ -216,6 +450,11 @@ public class GameScreen extends Screen {
 	private void draw() {
 		drawManager.initDrawing(this);
 
+		// Under the player, who stays visible where they meet.
+		if (this.ghost != null)
+			drawManager.drawSprite(this.ghost.ship.getSpriteType(),
+					GHOST_COLOR, this.ghost.ship.getPositionX(),
+					this.ghost.ship.getPositionY());
 		drawManager.drawEntity(this.ship, this.ship.getPositionX(),
 				this.ship.getPositionY());
 		if (this.enemyShipSpecial != null)
@@ -224,6 +463,9 @@ public class GameScreen extends Screen {
 					this.enemyShipSpecial.getPositionY());
 
 		enemyShipFormation.draw();
+		for (Bunker bunker : this.bunkers)
+			bunker.draw(drawManager);
+		this.particles.draw(drawManager);
 
 		for (Bullet bullet : this.bullets)
 			drawManager.drawEntity(bullet, bullet.getPositionX(),
@@ -236,9 +478,7 @@ public class GameScreen extends Screen {
 
 		// Countdown to game start.
 		if (!this.inputDelay.checkFinished()) {
-			int countdown = (int) ((INPUT_DELAY
-					- (System.currentTimeMillis()
-							- this.gameStartTime)) / 1000);
+			int countdown = (int) (this.inputDelay.getRemainingTime() / 1000);
 			drawManager.drawCountDown(this, this.level, countdown,
 					this.bonusLife);
 			drawManager.drawHorizontalLine(this, this.height / 2 - this.height
@@ -250,35 +490,81 @@ public class GameScreen extends Screen {
 		drawManager.completeDrawing(this);
 	}
 
+	/**
+	 * Fills the tick sample with the state of the game.
+	 * 
+	 * @param sample
+	 *            Sample of the current tick.
+	 */
+	@Override
+	protected final void sampleState(final TickSample sample) {
+		sample.setGameValues(this.enemyShipFormation.getShipCount(),
+				this.bullets.size(), this.score, this.lives, this.level);
+	}
+
 	/**
 	 * Cleans bullets that go off screen.
 	 */
 	private void cleanBullets() {
-		Set<Bullet> recyclable = new HashSet<Bullet>();
 		for (Bullet bullet : this.bullets) {
 			bullet.update();
+			this.checksum.add(Component.BULLETS, bullet.getPositionX());
+			this.checksum.add(Component.BULLETS, bullet.getPositionY());
 			if (bullet.getPositionY() < SEPARATION_LINE_HEIGHT
 					|| bullet.getPositionY() > this.height)
-				recyclable.add(bullet);
+				this.recyclable.add(bullet);
 		}
-		this.bullets.removeAll(recyclable);
-		BulletPool.recycle(recyclable);
+		recycleBullets();
+
+		// Enemies reaching the bunkers wear them away.
+		for (EnemyShip enemyShip : this.enemyShipFormation)
+			if (enemyShip.getPositionY() + enemyShip.getHeight()
+					> this.bunkerTop)
+				for (Bunker bunker : this.bunkers)
+					if (checkCollision(enemyShip, bunker))
+						bunker.erase(enemyShip);
+	}
+
+	/**
+	 * Checks if a bullet hits any bunker, damaging it.
+	 * 
+	 * @param bullet
+	 *            Bullet to check.
+	 * @return True if the bullet hit a bunker.
+	 */
+	private boolean hitsBunker(final Bullet bullet) {
+		// Most bullets are nowhere near the bunkers.
+		if (bullet.getPositionY() + bullet.getHeight() <= this.bunkerTop
+				|| bullet.getPositionY() >= this.bunkerBottom)
+			return false;
+		for (Bunker bunker : this.bunkers)
+			if (bunker.hit(bullet))
+				return true;
+		return false;
 	}
 
 	/**
 	 * Manages collisions between bullets and ships.
 	 */
 	private void manageCollisions() {
-		Set<Bullet> recyclable = new HashSet<Bullet>();
+		// Player and enemy bullets cancel each other.
+		this.bulletInterceptor.intercept(this.bullets, this.recyclable);
 		for (Bullet bullet : this.bullets)
-			if (bullet.getSpeed() > 0) {
+			if (this.recyclable.contains(bullet)) {
+				continue;
+			} else if (hitsBunker(bullet)) {
+				this.recyclable.add(bullet);
+			} else if (bullet.getSpeed() > 0) {
 				if (checkCollision(bullet, this.ship) && !this.levelFinished) {
-					recyclable.add(bullet);
+					this.recyclable.add(bullet);
 					if (!this.ship.isDestroyed()) {
 						this.ship.destroy();
+						playSound(Sound.PlayerHit);
+						emitParticles(this.ship, PLAYER_PARTICLES, 3);
 						this.lives--;
-						this.logger.info("Hit on player ship, " + this.lives
-								+ " lives remaining.");
+						if (!this.isGhost)
+							this.logger.info(() -> "Hit on player ship, "
+									+ this.lives + " lives remaining.");
 					}
 				}
 			} else {
@@ -288,7 +574,13 @@ public class GameScreen extends Screen {
 						this.score += enemyShip.getPointValue();
 						this.shipsDestroyed++;
 						this.enemyShipFormation.destroy(enemyShip);
-						recyclable.add(bullet);
+						this.checksum.add(Component.FORMATION,
+								enemyShip.getPositionX());
+						this.checksum.add(Component.FORMATION,
+								enemyShip.getPositionY());
+						playSound(Sound.EnemyExplosion);
+						emitParticles(enemyShip, ENEMY_PARTICLES, 2);
+						this.recyclable.add(bullet);
 					}
 				if (this.enemyShipSpecial != null
 						&& !this.enemyShipSpecial.isDestroyed()
@@ -296,12 +588,55 @@ public class GameScreen extends Screen {
 					this.score += this.enemyShipSpecial.getPointValue();
 					this.shipsDestroyed++;
 					this.enemyShipSpecial.destroy();
+					playSound(Sound.EnemyExplosion);
+					emitParticles(this.enemyShipSpecial, BONUS_SHIP_PARTICLES,
+							3);
 					this.enemyShipSpecialExplosionCooldown.reset();
-					recyclable.add(bullet);
+					this.recyclable.add(bullet);
 				}
 			}
-		this.bullets.removeAll(recyclable);
-		BulletPool.recycle(recyclable);
+		recycleBullets();
+	}
+
+	/**
+	 * Takes the bullets gone on this tick off the screen, for reuse.
+	 */
+	private void recycleBullets() {
+		if (this.recyclable.isEmpty())
+			return;
+		this.bullets.removeAll(this.recyclable);
+		BulletPool.recycle(this.recyclable);
+		this.recyclable.clear();
+	}
+
+	/**
+	 * Plays a sound effect, unless this is the ghost of the best game.
+	 * 
+	 * @param sound
+	 *            Sound to play.
+	 */
+	private void playSound(final Sound sound) {
+		if (!this.isGhost)
+			Core.getSoundManager().play(sound);
+	}
+
+	/**
+	 * Throws particles of the color of an entity from its center.
+	 * 
+	 * @param entity
+	 *            Entity exploding.
+	 * @param amount
+	 *            Number of particles.
+	 * @param speed
+	 *            Highest speed of the particles, in pixels per frame.
+	 */
+	private void emitParticles(final Entity entity, final int amount,
+			final int speed) {
+		if (this.isGhost)
+			return;
+		this.particles.emit(entity.getPositionX() + entity.getWidth() / 2,
+				entity.getPositionY() + entity.getHeight() / 2, amount,
+				entity.getColor().getRGB(), speed, this.fps);
 	}
 
 	/**
@@ -329,6 +664,318 @@ public class GameScreen extends Screen {
 		return distanceX < maxDistanceX && distanceY < maxDistanceY;
 	}
 
+	/**
+	 * Continues a saved game instead of starting the level. The game state
+	 * given to the constructor must be the one read from the same save.
+	 * 
+	 * @param state
+	 *            Saved state, positioned after the game state.
+	 */
+	public final void resume(final ByteBuffer state) {
+		this.savedState = state;
+	}
+
+	/**
+	 * Records the inputs of this level, to race the game as a ghost later.
+	 * 
+	 * @param recorder
+	 *            Recorder of the whole game.
+	 */
+	public final void record(final ReplayRecorder recorder) {
+		this.replayRecorder = recorder;
+	}
+
+	/**
+	 * Plays the best game back alongside this one, if it got to this level.
+	 * 
+	 * @param bestReplay
+	 *            Replay of the best game, read up to this level.
+	 */
+	public final void race(final Replay bestReplay) {
+		this.replay = bestReplay;
+	}
+
+	/**
+	 * Creates a screen that plays a recorded level back, without drawing or
+	 * sounds, on the screen the game was recorded on.
+	 * 
+	 * @param replay
+	 *            Recorded game, at the start of the level.
+	 * @param gameSettings
+	 *            Settings of the level.
+	 * @return Ghost screen, initialized and running.
+	 */
+	public static GameScreen newGhost(final Replay replay,
+			final GameSettings gameSettings) {
+		GameScreen ghost = newHeadless(replay.getGameState(), gameSettings,
+				replay.hasBonusLife(), replay.getSeed(), replay.getWidth(),
+				replay.getHeight(), replay.getFps());
+		ghost.replay = replay;
+		return ghost;
+	}
+
+	/**
+	 * Creates a screen that plays a level without drawing or sounds, moved
+	 * a tick at a time by {@link #step(int)}.
+	 * 
+	 * @param gameState
+	 *            Game state at the start of the level.
+	 * @param gameSettings
+	 *            Settings of the level.
+	 * @param bonusLife
+	 *            Checks if a bonus life is awarded this level.
+	 * @param seed
+	 *            State of the random numbers of the level.
+	 * @param width
+	 *            Screen width.
+	 * @param height
+	 *            Screen height.
+	 * @param fps
+	 *            Ticks per second of the game clock.
+	 * @return Headless screen, initialized and running.
+	 */
+	public static GameScreen newHeadless(final GameState gameState,
+			final GameSettings gameSettings, final boolean bonusLife,
+			final long seed, final int width, final int height,
+			final int fps) {
+		GameScreen screen = new GameScreen(gameState, gameSettings,
+				bonusLife, width, height, fps);
+		screen.isGhost = true;
+		screen.random.setState(seed);
+		screen.initialize();
+		screen.isRunning = true;
+		return screen;
+	}
+
+	/**
+	 * Moves a headless screen a tick forward. When the level ends, the lives
+	 * left are scored as when a played screen closes.
+	 * 
+	 * @param input
+	 *            Keys held, as an input manager key mask.
+	 * @return False once the screen closed.
+	 */
+	public final boolean step(final int input) {
+		tick(input);
+		if (!this.isRunning)
+			scoreLives();
+		return this.isRunning;
+	}
+
+	/**
+	 * Checks if the input of the current tick moves the game, rather than
+	 * the countdown or the end of the level going on regardless.
+	 * 
+	 * @return True if the player is in control.
+	 */
+	public final boolean isPlayable() {
+		return this.inputDelay.checkFinished() && !this.levelFinished;
+	}
+
+	/**
+	 * Writes what a bot sees of the game: the ship's x, the lives, the
+	 * score and the bonus ship's x, or -1 without one; then the formation,
+	 * as written by {@link EnemyShipFormation#observe(int[], int)}; then
+	 * how many enemy bullets follow and, for the nearest ones first, how far
+	 * right of the ship's center and above its top they are, with zeros
+	 * for the bullets missing.
+	 * 
+	 * @param observation
+	 *            Array to write to.
+	 * @param offset
+	 *            First of the {@link #OBSERVATION_SIZE} values written.
+	 */
+	public final void observe(final int[] observation, final int offset) {
+		observation[offset] = this.ship.getPositionX();
+		observation[offset + 1] = this.lives;
+		observation[offset + 2] = this.score;
+		observation[offset + 3] = this.enemyShipSpecial == null
+				|| this.enemyShipSpecial.isDestroyed() ? -1
+				: this.enemyShipSpecial.getPositionX();
+		this.enemyShipFormation.observe(observation, offset + 4);
+
+		int count = offset + 4 + EnemyShipFormation.OBSERVATION_SIZE;
+		int first = count + 1;
+		int seen = 0;
+		int centerX = this.ship.getPositionX() + this.ship.getWidth() / 2;
+		for (Bullet bullet : this.bullets) {
+			if (bullet.getSpeed() <= 0)
+				continue;
+			int x = bullet.getPositionX() + bullet.getWidth() / 2 - centerX;
+			int y = this.ship.getPositionY() - bullet.getPositionY();
+			long distance = (long) x * x + (long) y * y;
+			// Insertion into the nearest ones, sorted by distance.
+			int i = Math.min(seen, OBSERVED_BULLETS);
+			while (i > 0) {
+				int previousX = observation[first + 2 * (i - 1)];
+				int previousY = observation[first + 2 * (i - 1) + 1];
+				if ((long) previousX * previousX + (long) previousY
+						* previousY <= distance)
+					break;
+				if (i < OBSERVED_BULLETS) {
+					observation[first + 2 * i] = previousX;
+					observation[first + 2 * i + 1] = previousY;
+				}
+				i--;
+			}
+			if (i < OBSERVED_BULLETS) {
+				observation[first + 2 * i] = x;
+				observation[first + 2 * i + 1] = y;
+			}
+			seen++;
+		}
+		observation[count] = Math.min(seen, OBSERVED_BULLETS);
+		for (int i = Math.min(seen, OBSERVED_BULLETS) * 2;
+				i < 2 * OBSERVED_BULLETS; i++)
+			observation[first + i] = 0;
+	}
+
+	/**
+	 * Plays the next recorded tick of a ghost. When the level ends, the
+	 * lives left are scored as when a played screen closes.
+	 * 
+	 * @return False once the screen closed, the recorded inputs ran out or
+	 *         the game played differently than recorded.
+	 */
+	public final boolean playBack() {
+		int input = this.replay.nextInput();
+		// The recorded game left the level here.
+		if (input < 0) {
+			this.isRunning = false;
+			return false;
+		}
+		tick(input);
+		String different = this.checksum.compare(this.replay.getChecksums());
+		if (different != null) {
+			this.divergence = "first on tick " + this.timingWheel.getTick()
+					+ " of level " + this.level + ", in " + different;
+			this.isRunning = false;
+			return false;
+		}
+		if (!this.isRunning)
+			scoreLives();
+		return this.isRunning;
+	}
+
+	/**
+	 * Getter for the divergence of a ghost.
+	 * 
+	 * @return Tick and parts of the game that first played differently
+	 *         than recorded, null if none did.
+	 */
+	public final String getDivergence() {
+		return this.divergence;
+	}
+
+	/**
+	 * Checks if a ghost got to the end of the level, rather than the
+	 * recorded inputs running out before.
+	 * 
+	 * @return True if the level ended and the screen closed.
+	 */
+	public final boolean isClosed() {
+		return this.levelFinished && !this.screenFinishedTimer.isPending();
+	}
+
+	/**
+	 * Writes the state of the level to a save, after the game state.
+	 * 
+	 * @param buffer
+	 *            Buffer to write to.
+	 */
+	@Override
+	public final void save(final ByteBuffer buffer) {
+		getGameState().save(buffer);
+		buffer.put((byte) (this.bonusLife ? 1 : 0));
+		buffer.put((byte) (this.levelFinished ? 1 : 0));
+		buffer.putLong(this.random.getState());
+		buffer.putInt((int) this.inputDelay.getRemainingTicks());
+		buffer.putInt((int) this.enemyShipSpecialCooldown
+				.getRemainingTicks());
+		buffer.putInt((int) this.enemyShipSpecialExplosionCooldown
+				.getRemainingTicks());
+		buffer.putInt((int) this.screenFinishedTimer.getRemainingTicks());
+		this.ship.save(buffer);
+
+		if (this.enemyShipSpecial == null) {
+			buffer.put((byte) 0);
+		} else {
+			buffer.put((byte) (this.enemyShipSpecial.isDestroyed() ? 2 : 1));
+			buffer.putInt(this.enemyShipSpecial.getPositionX());
+			buffer.putInt(this.enemyShipSpecial.getPositionY());
+		}
+		this.enemyShipFormation.save(buffer);
+
+		buffer.putInt(this.bullets.size());
+		for (Bullet bullet : this.bullets) {
+			buffer.putInt(bullet.getPositionX());
+			buffer.putInt(bullet.getPositionY());
+			buffer.putInt(bullet.getSpeed());
+		}
+		for (Bunker bunker : this.bunkers)
+			bunker.save(buffer);
+	}
+
+	/**
+	 * Goes back to a state recorded on an earlier tick of this level.
+	 * 
+	 * @param state
+	 *            State written by {@link #save(ByteBuffer)}.
+	 */
+	private void rewind(final ByteBuffer state) {
+		GameState gameState = GameState.restore(state);
+		this.score = gameState.getScore();
+		this.lives = gameState.getLivesRemaining();
+		this.bulletsShot = gameState.getBulletsShot();
+		this.shipsDestroyed = gameState.getShipsDestroyed();
+		restore(state);
+	}
+
+	/**
+	 * Reads the state of the level written by {@link #save(ByteBuffer)}.
+	 * 
+	 * @param buffer
+	 *            Buffer to read from, positioned after the game state.
+	 */
+	private void restore(final ByteBuffer buffer) {
+		this.bonusLife = buffer.get() != 0;
+		this.levelFinished = buffer.get() != 0;
+		this.random.setState(buffer.getLong());
+		this.inputDelay.resume(buffer.getInt());
+		this.enemyShipSpecialCooldown.resume(buffer.getInt());
+		this.enemyShipSpecialExplosionCooldown.resume(buffer.getInt());
+		int screenFinishedTicks = buffer.getInt();
+		if (screenFinishedTicks > 0)
+			this.screenFinishedTimer.schedule(screenFinishedTicks);
+		else
+			this.screenFinishedTimer.cancel();
+		this.ship.restore(buffer);
+
+		byte special = buffer.get();
+		this.enemyShipSpecial = null;
+		if (special != 0) {
+			this.enemyShipSpecial = new EnemyShip();
+			this.enemyShipSpecial.setPositionX(buffer.getInt());
+			this.enemyShipSpecial.setPositionY(buffer.getInt());
+			if (special == 2)
+				this.enemyShipSpecial.destroy();
+		}
+		this.enemyShipFormation.restore(buffer);
+
+		BulletPool.recycle(this.bullets);
+		this.bullets.clear();
+		int bulletCount = buffer.getInt();
+		for (int i = 0; i < bulletCount; i++) {
+			int positionX = buffer.getInt();
+			Bullet bullet = BulletPool.getBullet(0, buffer.getInt(),
+					buffer.getInt());
+			bullet.setPositionX(positionX);
+			this.bullets.add(bullet);
+		}
+		for (Bunker bunker : this.bunkers)
+			bunker.restore(buffer);
+	}
+
 	/**
 	 * Returns a GameState object representing the status of the game.
 	 * 
@@ -1,11 +1,12 @@
 package screen;
 
 import java.awt.event.KeyEvent;
-import java.io.IOException;
 import java.util.List;
 
 import engine.Core;
+import engine.HighScoreListener;
 import engine.Score;
+import engine.SoundManager.Music;
 
 /**
  * Implements the high scores screen, it shows player records.
@@ -13,10 +14,10 @@ import engine.Score;
  * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
  * 
  */
-public class HighScoreScreen extends Screen {
+public class HighScoreScreen extends Screen implements HighScoreListener {
 
 	/** List of past high scores. */
-	private List<Score> highScores;
+	private volatile List<Score> highScores;
 
 	/**
 	 * Constructor, establishes the properties of the screen.
@@ -32,12 +33,7 @@ public class HighScoreScreen extends Screen {
 		super(width, height, fps);
 
 		this.returnCode = 1;
-
-		try {
-			this.highScores = Core.getFileManager().loadHighScores();
-		} catch (NumberFormatException | IOException e) {
-			logger.warning("Couldn't load high scores!");
-		}
+		this.highScores = Core.getHighScoreRepository().getHighScores();
 	}
 
 	/**
@@ -46,21 +42,58 @@ public class HighScoreScreen extends Screen {
 	 * @return Next screen code.
 	 */
 	public final int run() {
-		super.run();
+		Core.getHighScoreRepository().addListener(this);
+		this.highScores = Core.getHighScoreRepository().getHighScores();
+		try {
+			super.run();
+		} finally {
+			Core.getHighScoreRepository().removeListener(this);
+		}
 
 		return this.returnCode;
 	}
 
+	/**
+	 * Shows the new high scores.
+	 * 
+	 * @param newHighScores
+	 *            New high scores.
+	 */
+	@Override
+	public final void highScoresChanged(final List<Score> newHighScores) {
+		this.highScores = newHighScores;
+		requestRedraw();
+	}
+
 	/**
 	 * Updates the elements on screen and checks for events.
 	 */
 	protected final void update() {
 		super.update();
 
-		draw();
 		if (inputManager.isKeyDown(KeyEvent.VK_SPACE)
 				&& this.inputDelay.checkFinished())
 			this.isRunning = false;
+		if (needsRedraw())
+			draw();
+	}
+
+	/**
+	 * Waits for input between frames, the list never changes.
+	 * 
+	 * @return Milliseconds to wait.
+	 */
+	protected final long getIdleTime() {
+		return getMenuIdleTime();
+	}
+
+	/**
+	 * Plays the title music.
+	 * 
+	 * @return Track of the screen.
+	 */
+	public final Music getMusic() {
+		return Music.Title;
 	}
 
 	/**
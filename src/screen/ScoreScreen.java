@@ -1,14 +1,13 @@
 package screen;
 
 import java.awt.event.KeyEvent;
-import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
 
 import engine.Cooldown;
 import engine.Core;
 import engine.GameState;
+import engine.ReplayRecorder;
 import engine.Score;
+import engine.SoundManager.Music;
 
 /**
  * Implements the score screen.
@@ -20,8 +19,6 @@ public class ScoreScreen extends Screen {
 
 	/** Milliseconds between changes in user selection. */
 	private static final int SELECTION_TIME = 200;
-	/** Maximum number of high scores. */
-	private static final int MAX_HIGH_SCORE_NUM = 7;
 	/** Code of first mayus character. */
 	private static final int FIRST_CHAR = 65;
 	/** Code of last mayus character. */
@@ -35,8 +32,6 @@ public class ScoreScreen extends Screen {
 	private int bulletsShot;
 	/** Total ships destroyed by the player. */
 	private int shipsDestroyed;
-	/** List of past high scores. */
-	private List<Score> highScores;
 	/** Checks if current score is a new high score. */
 	private boolean isNewRecord;
 	/** Player name for record input. */
@@ -45,6 +40,10 @@ public class ScoreScreen extends Screen {
 	private int nameCharSelected;
 	/** Time between changes in user selection. */
 	private Cooldown selectionCooldown;
+	/** If the screen was last drawn accepting input. */
+	private boolean drawnAcceptingInput;
+	/** Replay proving the score, null if there is none. */
+	private ReplayRecorder replayRecorder;
 
 	/**
 	 * Constructor, establishes the properties of the screen.
@@ -66,22 +65,23 @@ public class ScoreScreen extends Screen {
 		this.livesRemaining = gameState.getLivesRemaining();
 		this.bulletsShot = gameState.getBulletsShot();
 		this.shipsDestroyed = gameState.getShipsDestroyed();
-		this.isNewRecord = false;
 		this.name = "AAA".toCharArray();
 		this.nameCharSelected = 0;
 		this.selectionCooldown = Core.getCooldown(SELECTION_TIME);
 		this.selectionCooldown.reset();
+		this.isNewRecord = Core.getHighScoreRepository().isHighScore(
+				this.score);
+	}
 
-		try {
-			this.highScores = Core.getFileManager().loadHighScores();
-			if (highScores.size() < MAX_HIGH_SCORE_NUM
-					|| highScores.get(highScores.size() - 1).getScore()
-					< this.score)
-				this.isNewRecord = true;
-
-		} catch (IOException e) {
-			logger.warning("Couldn't load high scores!");
-		}
+	/**
+	 * Sends the replay of the game along with the score, if it is saved, so
+	 * the score can be verified.
+	 * 
+	 * @param recorder
+	 *            Replay of the whole game.
+	 */
+	public final void attachReplay(final ReplayRecorder recorder) {
+		this.replayRecorder = recorder;
 	}
 
 	/**
@@ -101,7 +101,6 @@ public class ScoreScreen extends Screen {
 	protected final void update() {
 		super.update();
 
-		draw();
 		if (this.inputDelay.checkFinished()) {
 			if (inputManager.isKeyDown(KeyEvent.VK_ESCAPE)) {
 				// Return to main menu.
@@ -122,11 +121,13 @@ public class ScoreScreen extends Screen {
 					this.nameCharSelected = this.nameCharSelected == 2 ? 0
 							: this.nameCharSelected + 1;
 					this.selectionCooldown.reset();
+					requestRedraw();
 				}
 				if (inputManager.isKeyDown(KeyEvent.VK_LEFT)) {
 					this.nameCharSelected = this.nameCharSelected == 0 ? 2
 							: this.nameCharSelected - 1;
 					this.selectionCooldown.reset();
+					requestRedraw();
 				}
 				if (inputManager.isKeyDown(KeyEvent.VK_UP)) {
 					this.name[this.nameCharSelected] =
@@ -134,6 +135,7 @@ public class ScoreScreen extends Screen {
 									== LAST_CHAR ? FIRST_CHAR
 							: this.name[this.nameCharSelected] + 1);
 					this.selectionCooldown.reset();
+					requestRedraw();
 				}
 				if (inputManager.isKeyDown(KeyEvent.VK_DOWN)) {
 					this.name[this.nameCharSelected] =
@@ -141,26 +143,45 @@ public class ScoreScreen extends Screen {
 									== FIRST_CHAR ? LAST_CHAR
 							: this.name[this.nameCharSelected] - 1);
 					this.selectionCooldown.reset();
+					requestRedraw();
 				}
 			}
 		}
 
+		// The instructions change once input is accepted.
+		if (this.inputDelay.checkFinished() != this.drawnAcceptingInput)
+			requestRedraw();
+		if (needsRedraw())
+			draw();
+	}
+
+	/**
+	 * Waits for input between frames, the results only change on key
+	 * presses and when input starts being accepted.
+	 * 
+	 * @return Milliseconds to wait.
+	 */
+	protected final long getIdleTime() {
+		return getMenuIdleTime();
+	}
+
+	/**
+	 * Plays the score music.
+	 * 
+	 * @return Track of the screen.
+	 */
+	public final Music getMusic() {
+		return Music.Score;
 	}
 
 	/**
 	 * Saves the score as a high score.
 	 */
 	private void saveScore() {
-		highScores.add(new Score(new String(this.name), score));
-		Collections.sort(highScores);
-		if (highScores.size() > MAX_HIGH_SCORE_NUM)
-			highScores.remove(highScores.size() - 1);
-
-		try {
-			Core.getFileManager().saveHighScores(highScores);
-		} catch (IOException e) {
-			logger.warning("Couldn't load high scores!");
-		}
+		Core.getHighScoreRepository().add(
+				new Score(new String(this.name), score));
+		if (this.replayRecorder != null)
+			this.replayRecorder.submit(new String(this.name), this.score);
 	}
 
 	/**
@@ -169,7 +190,8 @@ public class ScoreScreen extends Screen {
 	private void draw() {
 		drawManager.initDrawing(this);
 
-		drawManager.drawGameOver(this, this.inputDelay.checkFinished(),
+		this.drawnAcceptingInput = this.inputDelay.checkFinished();
+		drawManager.drawGameOver(this, this.drawnAcceptingInput,
 				this.isNewRecord);
 		drawManager.drawResults(this, this.score, this.livesRemaining,
 				this.shipsDestroyed, (float) this.shipsDestroyed
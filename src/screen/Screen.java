@@ -1,13 +1,20 @@
 package screen;
 
 import java.awt.Insets;
+import java.awt.event.KeyEvent;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import engine.Cooldown;
 import engine.Core;
-import engine.DrawManager;
+import engine.EngineControl;
+import engine.EngineMetrics;
+import engine.FlightRecorder;
+import engine.FrameWatchdog;
 import engine.InputManager;
+import engine.Renderer;
+import engine.SoundManager.Music;
+import engine.TickSample;
 
 /**
  * Implements a generic screen.
@@ -19,13 +26,22 @@ public class Screen {
 	
 	/** Milliseconds until the screen accepts user input. */
 	private static final int INPUT_DELAY = 1000;
+	/** Frames longer than this many target frame times are too slow. */
+	private static final int FRAME_BUDGET_FACTOR = Integer.getInteger(
+			"invaders.frameBudgetFactor", 3);
+	/** Key that dumps the flight record. */
+	private static final int FLIGHT_RECORD_KEY = KeyEvent.VK_F9;
+	/** Longest time an idle screen waits for input before redrawing. */
+	private static final int MAX_IDLE_TIME = 1000;
 
 	/** Draw Manager instance. */
-	protected DrawManager drawManager;
+	protected Renderer drawManager;
 	/** Input Manager instance. */
 	protected InputManager inputManager;
 	/** Application logger. */
 	protected Logger logger;
+	/** Watchdog of the screen loop. */
+	protected FrameWatchdog frameWatchdog;
 
 	/** Screen width. */
 	protected int width;
@@ -42,6 +58,14 @@ public class Screen {
 	protected boolean isRunning;
 	/** What kind of screen goes next. */
 	protected int returnCode;
+	/** Values measured on the current tick. */
+	private TickSample tickSample;
+	/** If something shown on the screen changed since the last draw. */
+	private volatile boolean redrawRequested;
+	/** Moment of the last draw, for screens that redraw on demand. */
+	private long lastDraw;
+	/** Moment the first frame started, in nanoseconds. */
+	private long startTime;
 
 	/**
 	 * Constructor, establishes the properties of the screen.
@@ -61,9 +85,12 @@ public class Screen {
 		this.drawManager = Core.getDrawManager();
 		this.inputManager = Core.getInputManager();
 		this.logger = Core.getLogger();
+		this.frameWatchdog = Core.getFrameWatchdog();
 		this.inputDelay = Core.getCooldown(INPUT_DELAY);
 		this.inputDelay.reset();
 		this.returnCode = 0;
+		this.tickSample = new TickSample();
+		this.redrawRequested = true;
 	}
 
 	/**
@@ -80,20 +107,61 @@ public class Screen {
 	 */
 	public int run() {
 		this.isRunning = true;
+		FlightRecorder flightRecorder = Core.getFlightRecorder();
+		EngineMetrics engineMetrics = Core.getEngineMetrics();
+		EngineControl engineControl = Core.getEngineControl();
+		int budgetMicros = FRAME_BUDGET_FACTOR * 1000000 / this.fps;
+		boolean dumpKeyDown = false;
+		long previousStart = System.nanoTime();
+		this.startTime = previousStart;
+		this.frameWatchdog.setBudget(TimeUnit.MICROSECONDS
+				.toNanos(budgetMicros));
 
 		while (this.isRunning) {
 			long time = System.currentTimeMillis();
+			long start = System.nanoTime();
+			long events = inputManager.getEventCount();
+			this.frameWatchdog.beginFrame();
 
 			update();
 
-			time = (1000 / this.fps) - (System.currentTimeMillis() - time);
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.RECORD);
+			this.tickSample.reset(time, (int) ((start - previousStart) / 1000),
+					(int) ((System.nanoTime() - start) / 1000),
+					inputManager.getKeyMask());
+			sampleState(this.tickSample);
+			flightRecorder.record(this.tickSample, budgetMicros);
+			engineMetrics.recordTick(this.tickSample);
+			previousStart = start;
+
+			if (inputManager.isKeyDown(FLIGHT_RECORD_KEY) && !dumpKeyDown)
+				flightRecorder.dumpAsync("hotkey");
+			dumpKeyDown = inputManager.isKeyDown(FLIGHT_RECORD_KEY);
+
+			this.frameWatchdog.beginPhase(FrameWatchdog.Phase.SLEEP);
+			time = (1000 / engineControl.getTargetFps(this.fps))
+					- (System.currentTimeMillis() - time);
 			if (time > 0) {
 				try {
 					TimeUnit.MILLISECONDS.sleep(time);
 				} catch (InterruptedException e) {
+					this.frameWatchdog.endFrame();
 					return 0;
 				}
 			}
+			this.frameWatchdog.endFrame();
+
+			// Static screens sleep until a key event instead of polling.
+			long idleTime = this.isRunning ? getIdleTime() : 0;
+			if (idleTime > 0) {
+				long idleStart = System.nanoTime();
+				try {
+					inputManager.awaitEvent(events, idleTime);
+				} catch (InterruptedException e) {
+					return 0;
+				}
+				previousStart += System.nanoTime() - idleStart;
+			}
 		}
 
 		return 0;
@@ -105,6 +173,82 @@ public class Screen {
 	protected void update() {
 	}
 
+	/**
+	 * Background music played while the screen is shown.
+	 * 
+	 * @return Track of the screen, null for silence.
+	 */
+	public Music getMusic() {
+		return null;
+	}
+
+	/**
+	 * Time the screen can wait for a key event after the current frame.
+	 * Screens that only change on input override it to stop polling.
+	 * 
+	 * @return Milliseconds to wait, zero to run the next frame right away.
+	 */
+	protected long getIdleTime() {
+		return 0;
+	}
+
+	/**
+	 * Idle time of screens that only change on input: none while a key is
+	 * held, so held keys keep repeating, until input is accepted if it is
+	 * still delayed, and a second otherwise.
+	 * 
+	 * @return Milliseconds to wait.
+	 */
+	protected final long getMenuIdleTime() {
+		if (inputManager.isAnyKeyDown())
+			return 0;
+		long untilInput = this.inputDelay.getRemainingTime();
+		if (untilInput > 0)
+			return Math.min(untilInput, MAX_IDLE_TIME);
+		return MAX_IDLE_TIME;
+	}
+
+	/**
+	 * Marks the screen as changed, so it is drawn on the next frame.
+	 */
+	protected final void requestRedraw() {
+		this.redrawRequested = true;
+	}
+
+	/**
+	 * Checks if the screen must be drawn, because it changed or because it has
+	 * not been drawn for a while, and clears the request.
+	 * 
+	 * @return True if the screen must be drawn now.
+	 */
+	protected final boolean needsRedraw() {
+		long now = System.currentTimeMillis();
+		if (!this.redrawRequested && now - this.lastDraw < MAX_IDLE_TIME)
+			return false;
+		this.redrawRequested = false;
+		this.lastDraw = now;
+		return true;
+	}
+
+	/**
+	 * Fills the game values of the tick sample. Screens without a game
+	 * leave them empty.
+	 * 
+	 * @param sample
+	 *            Sample of the current tick.
+	 */
+	protected void sampleState(final TickSample sample) {
+	}
+
+	/**
+	 * Getter for the moment the screen started running.
+	 * 
+	 * @return Start of the first frame, from System.nanoTime().
+	 */
+	public final long getStartTime() {
+		return this.startTime;
+	}
+
 	/**
 	 * Getter for screen width.
 	 * 
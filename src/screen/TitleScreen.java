@@ -4,6 +4,7 @@ import java.awt.event.KeyEvent;
 
 import engine.Cooldown;
 import engine.Core;
+import engine.SoundManager.Music;
 
 /**
  * Implements the title screen.
@@ -55,22 +56,43 @@ public class TitleScreen extends Screen {
 	protected final void update() {
 		super.update();
 
-		draw();
 		if (this.selectionCooldown.checkFinished()
 				&& this.inputDelay.checkFinished()) {
 			if (inputManager.isKeyDown(KeyEvent.VK_UP)
 					|| inputManager.isKeyDown(KeyEvent.VK_W)) {
 				previousMenuItem();
 				this.selectionCooldown.reset();
+				requestRedraw();
 			}
 			if (inputManager.isKeyDown(KeyEvent.VK_DOWN)
 					|| inputManager.isKeyDown(KeyEvent.VK_S)) {
 				nextMenuItem();
 				this.selectionCooldown.reset();
+				requestRedraw();
 			}
 			if (inputManager.isKeyDown(KeyEvent.VK_SPACE))
 				this.isRunning = false;
 		}
+		if (needsRedraw())
+			draw();
+	}
+
+	/**
+	 * Waits for input between frames, the menu only changes on key presses.
+	 * 
+	 * @return Milliseconds to wait.
+	 */
+	protected final long getIdleTime() {
+		return getMenuIdleTime();
+	}
+
+	/**
+	 * Plays the title music.
+	 * 
+	 * @return Track of the screen.
+	 */
+	public final Music getMusic() {
+		return Music.Title;
 	}
 
 	/**